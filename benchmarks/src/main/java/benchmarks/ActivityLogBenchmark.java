@@ -0,0 +1,128 @@
+package benchmarks;
+
+import database.ActivityLogDAO;
+import database.ActivityLogWriter;
+import database.DatabaseConnection;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import models.ActivityLog;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Activity log insert throughput through the real DAO, pool and writer,
+ * against an in-memory H2 database in MySQL mode. H2 is only a stand-in:
+ * it shows regressions in our batching and pooling, not MySQL's numbers.
+ * The table is emptied after every iteration so it never grows large.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ActivityLogBenchmark {
+    private static final String H2_URL = "jdbc:h2:mem:activity-bench;MODE=MySQL;DB_CLOSE_DELAY=-1";
+    private static final int ROWS = 10_000;
+
+    @Param({"1", "100", "1000"})
+    public int batchSize;
+
+    private ActivityLogDAO dao;
+    private ActivityLogWriter writer;
+    private List<ActivityLog> rows;
+    private int next;
+
+    /** Rows written, reported next to the batch rate as rows per second */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Rows {
+        public long rows;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            rows = 0;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException, SQLException {
+        // A config file of our own, so a developer's database.properties is never used
+        Path config = BenchmarkData.DATA_DIR.resolve("h2-database.properties");
+        Files.createDirectories(BenchmarkData.DATA_DIR);
+        try (Writer out = Files.newBufferedWriter(config)) {
+            out.write("db.url=" + H2_URL + "\n");
+            out.write("db.user=bench\n");
+            out.write("db.password=bench\n");
+        }
+        System.setProperty("filemanager.db.config", config.toString());
+
+        try (Connection conn = DatabaseConnection.getConnection(); Statement st = conn.createStatement()) {
+            String product = conn.getMetaData().getDatabaseProductName();
+            if (!product.equals("H2")) {
+                // The table is truncated below; never do that to a real database
+                throw new IllegalStateException("Expected the H2 stand-in but connected to " + product
+                        + " (is FILEMANAGER_DB_URL set?)");
+            }
+            st.execute("CREATE TABLE IF NOT EXISTS file_activities ("
+                    + "activity_id INT AUTO_INCREMENT PRIMARY KEY, "
+                    + "user_id INT NOT NULL, "
+                    + "file_name VARCHAR(255), "
+                    + "file_path VARCHAR(500), "
+                    + "action VARCHAR(50), "
+                    + "details TEXT, "
+                    + "timestamp TIMESTAMP DEFAULT CURRENT_TIMESTAMP)");
+            st.execute("CREATE INDEX IF NOT EXISTS idx_activities_time ON file_activities (timestamp, activity_id)");
+        }
+        dao = new ActivityLogDAO();
+        rows = BenchmarkData.activities(ROWS, BenchmarkData.SEED);
+        // Callers wait instead of dropping, so the rate below is the rate rows reach the table
+        writer = new ActivityLogWriter(dao, ActivityLogWriter.DEFAULT_CAPACITY, ActivityLogWriter.DEFAULT_BATCH_SIZE,
+                ActivityLogWriter.DEFAULT_FLUSH_INTERVAL_MS, TimeUnit.MINUTES.toMillis(1));
+    }
+
+    @TearDown(Level.Iteration)
+    public void truncate() throws SQLException {
+        try (Connection conn = DatabaseConnection.getConnection(); Statement st = conn.createStatement()) {
+            st.execute("TRUNCATE TABLE file_activities");
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        writer.shutdown();
+        DatabaseConnection.closeDataSource();
+    }
+
+    /** One insertBatch call (one transaction) of batchSize rows */
+    @Benchmark
+    public void insertBatch(Rows counter) throws SQLException {
+        dao.insertBatch(slice(batchSize));
+        counter.rows += batchSize;
+    }
+
+    /**
+     * logActivity's path: queue batchSize events and let the writer thread
+     * batch them. Measures sustained throughput, since a full queue blocks.
+     */
+    @Benchmark
+    public void writerSubmit(Rows counter) {
+        for (ActivityLog log : slice(batchSize)) {
+            if (writer.submit(log)) counter.rows++;
+        }
+    }
+
+    /** The next n generated rows, wrapping around */
+    private List<ActivityLog> slice(int n) {
+        if (next + n > rows.size()) next = 0;
+        List<ActivityLog> slice = rows.subList(next, next + n);
+        next += n;
+        return slice;
+    }
+}
@@ -0,0 +1,170 @@
+package benchmarks;
+
+import database.ActivityLogDAO;
+import database.ActivityLogPartitions;
+import database.ActivityLogQuery;
+import database.DatabaseConnection;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Checks activity log maintenance against the in-memory H2 stand-in (MySQL
+ * mode, unpartitioned, so retention takes the DELETE path):
+ * the rollup matches the raw rows, its state survives into a new instance,
+ * per-day counts agree with the raw table for ranges that start or end
+ * inside a day, and retention only deletes rows that are rolled up.
+ *
+ *   java -cp benchmarks/target/benchmarks.jar benchmarks.ActivityLogMaintenanceCheck
+ *
+ * Exits with status 1 on the first mismatch.
+ */
+public class ActivityLogMaintenanceCheck {
+    private static final String H2_URL = "jdbc:h2:mem:activity-maintenance;MODE=MySQL;DB_CLOSE_DELAY=-1";
+
+    public static void main(String[] args) throws Exception {
+        try {
+            run();
+            System.out.println("Activity log maintenance: OK");
+        } catch (AssertionError e) {
+            System.err.println("Activity log maintenance: FAILED - " + e.getMessage());
+            System.exit(1);
+        } finally {
+            DatabaseConnection.closeDataSource();
+        }
+    }
+
+    private static void run() throws Exception {
+        Path config = BenchmarkData.DATA_DIR.resolve("h2-maintenance.properties");
+        Files.createDirectories(BenchmarkData.DATA_DIR);
+        try (Writer out = Files.newBufferedWriter(config)) {
+            out.write("db.url=" + H2_URL + "\n");
+            out.write("db.user=check\n");
+            out.write("db.password=check\n");
+        }
+        System.setProperty("filemanager.db.config", config.toString());
+
+        LocalDate today = LocalDate.now();
+        try (Connection conn = DatabaseConnection.getConnection(); Statement st = conn.createStatement()) {
+            String product = conn.getMetaData().getDatabaseProductName();
+            if (!product.equals("H2")) {
+                throw new IllegalStateException("Expected the H2 stand-in but connected to " + product);
+            }
+            st.execute("CREATE TABLE users (user_id INT PRIMARY KEY, username VARCHAR(50))");
+            st.execute("INSERT INTO users VALUES (1, 'alice'), (2, 'bob')");
+            st.execute("CREATE TABLE file_activities ("
+                    + "activity_id INT AUTO_INCREMENT PRIMARY KEY, "
+                    + "user_id INT NOT NULL, "
+                    + "file_name VARCHAR(255), "
+                    + "file_path VARCHAR(500), "
+                    + "action VARCHAR(50), "
+                    + "details TEXT, "
+                    + "timestamp TIMESTAMP DEFAULT CURRENT_TIMESTAMP)");
+            // Five days of rows every three hours, two users, three actions
+            try (PreparedStatement ins = conn.prepareStatement(
+                    "INSERT INTO file_activities (user_id, file_name, file_path, action, timestamp) VALUES (?, ?, ?, ?, ?)")) {
+                String[] actions = {"CREATE", "DELETE", "RENAME"};
+                int n = 0;
+                for (LocalDateTime t = today.minusDays(4).atStartOfDay(); t.isBefore(today.atTime(23, 0)); t = t.plusHours(3)) {
+                    ins.setInt(1, 1 + n % 2);
+                    ins.setString(2, "f" + n);
+                    ins.setString(3, "/data/f" + n);
+                    ins.setString(4, actions[n % actions.length]);
+                    ins.setTimestamp(5, Timestamp.valueOf(t));
+                    ins.addBatch();
+                    n++;
+                }
+                ins.executeBatch();
+            }
+        }
+
+        ActivityLogPartitions partitions = ActivityLogDAO.startMaintenance();
+        // The first pass runs in the background and moves forward one day per transaction
+        for (int i = 0; i < 100 && !today.equals(partitions.getRolledUpThrough()); i++) Thread.sleep(100);
+        check(today.equals(partitions.getRolledUpThrough()), "rolled up through " + partitions.getRolledUpThrough());
+        check(today.equals(storedState()), "stored state " + storedState());
+
+        // Every completed day in the summary matches the raw rows
+        for (LocalDate day = today.minusDays(4); day.isBefore(today); day = day.plusDays(1)) {
+            long raw = count("SELECT COUNT(*) FROM file_activities WHERE timestamp >= ? AND timestamp < ?",
+                    day.atStartOfDay(), day.plusDays(1).atStartOfDay());
+            long summary = count("SELECT COALESCE(SUM(total), 0) FROM activity_daily_summary WHERE activity_day = ?", day);
+            check(raw == summary, day + ": raw " + raw + " vs summary " + summary);
+        }
+
+        // Summary-backed counts agree with raw-only counts (a path prefix forces raw) for in-day bounds
+        ActivityLogDAO dao = new ActivityLogDAO();
+        List<ActivityLogQuery> ranges = List.of(
+                new ActivityLogQuery(),
+                new ActivityLogQuery().to(today.minusDays(2).atTime(12, 0)),
+                new ActivityLogQuery().from(today.minusDays(3).atTime(7, 30)),
+                new ActivityLogQuery().from(today.minusDays(3).atTime(7, 30)).to(today.minusDays(1).atTime(13, 0)),
+                new ActivityLogQuery().from(today.minusDays(1).atTime(2, 0)).to(today.atTime(9, 0)),
+                new ActivityLogQuery().username("bob").to(today.minusDays(1).atStartOfDay()));
+        for (ActivityLogQuery q : ranges) {
+            Map<String, Long> viaSummary = totals(dao.countActionsPerDay(q));
+            Map<String, Long> rawOnly = totals(dao.countActionsPerDay(q.copy().pathPrefix("/data/")));
+            check(viaSummary.equals(rawOnly), "from " + q.getFrom() + " to " + q.getTo()
+                    + ": " + viaSummary + " vs raw " + rawOnly);
+        }
+
+        // A new instance (another client) resumes from the stored state instead of re-rolling:
+        // the oldest day is not recomputed even though its raw rows are gone
+        LocalDate oldest = today.minusDays(4);
+        long before = count("SELECT COALESCE(SUM(total), 0) FROM activity_daily_summary WHERE activity_day = ?", oldest);
+        try (Connection conn = DatabaseConnection.getConnection(); Statement st = conn.createStatement()) {
+            st.execute("DELETE FROM file_activities WHERE timestamp < '" + oldest.plusDays(1) + " 00:00:00'");
+        }
+        ActivityLogPartitions other = new ActivityLogPartitions(0, 6);
+        other.runMaintenance();
+        check(today.equals(other.getRolledUpThrough()), "second client rolled up through " + other.getRolledUpThrough());
+        long after = count("SELECT COALESCE(SUM(total), 0) FROM activity_daily_summary WHERE activity_day = ?", oldest);
+        check(before > 0 && before == after, "oldest day re-rolled: " + before + " -> " + after);
+
+        // Retention keeps rows newer than the cutoff (nothing here is older than a month)
+        long rows = count("SELECT COUNT(*) FROM file_activities");
+        new ActivityLogPartitions(1, 6).runMaintenance();
+        check(rows == count("SELECT COUNT(*) FROM file_activities"), "retention deleted recent rows");
+    }
+
+    private static Map<String, Long> totals(List<ActivityLogDAO.ActionCount> counts) {
+        Map<String, Long> totals = new TreeMap<>();
+        for (ActivityLogDAO.ActionCount c : counts) totals.merge(c.getDay() + " " + c.getAction(), c.getCount(), Long::sum);
+        return totals;
+    }
+
+    private static LocalDate storedState() throws Exception {
+        try (Connection conn = DatabaseConnection.getConnection(); Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery("SELECT rolled_up_through FROM activity_rollup_state WHERE id = 1")) {
+            return rs.next() ? rs.getDate(1).toLocalDate() : null;
+        }
+    }
+
+    private static long count(String sql, Object... params) throws Exception {
+        try (Connection conn = DatabaseConnection.getConnection(); PreparedStatement stmt = conn.prepareStatement(sql)) {
+            for (int i = 0; i < params.length; i++) {
+                if (params[i] instanceof LocalDate d) stmt.setDate(i + 1, Date.valueOf(d));
+                else stmt.setTimestamp(i + 1, Timestamp.valueOf((LocalDateTime) params[i]));
+            }
+            try (ResultSet rs = stmt.executeQuery()) {
+                rs.next();
+                return rs.getLong(1);
+            }
+        }
+    }
+
+    private static void check(boolean ok, String message) {
+        if (!ok) throw new AssertionError(message);
+    }
+}
@@ -0,0 +1,200 @@
+package benchmarks;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.FileTime;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.stream.Stream;
+import models.ActivityLog;
+
+/**
+ * Reproducible inputs for the benchmarks. Everything is derived from a seed
+ * (-Dbench.seed, default 42), so two runs, or two releases, measure exactly
+ * the same names, sizes, timestamps and file contents.
+ *
+ * Directories and files are generated once under -Dbench.dataDir (default
+ * target/bench-data) and reused by later runs and forks.
+ */
+final class BenchmarkData {
+    static final long SEED = Long.getLong("bench.seed", 42);
+    static final Path DATA_DIR = Paths.get(System.getProperty("bench.dataDir", "target/bench-data"));
+    // 2024-01-01 UTC; generated timestamps fall in the year after it
+    private static final long BASE_MILLIS = 1_704_067_200_000L;
+    private static final long YEAR_MILLIS = 365L * 24 * 3600 * 1000;
+    private static final String COMPLETE_MARKER = ".complete";
+
+    // File names stay ASCII so the same tree can be created under any platform encoding
+    private static final String[] WORDS = {
+        "report", "invoice", "photo", "backup", "notes", "draft", "final", "budget", "project", "meeting",
+        "summary", "data", "export", "scan", "holiday", "contract", "readme", "config", "archive", "build",
+        "resume", "overview", "presentation", "screenshot", "log", "test", "release", "design", "plan", "copy"
+    };
+    private static final String[] TEXT_WORDS = {
+        "the", "and", "file", "folder", "report", "budget", "meeting", "résumé", "übersicht", "日本語",
+        "naïve", "café", "project", "release", "notes", "update", "value", "total", "line", "end"
+    };
+    private static final String[] EXTENSIONS = {
+        ".txt", ".pdf", ".jpg", ".png", ".docx", ".xlsx", ".csv", ".md", ".java", ".zip", ".log", ".json", ""
+    };
+    private static final String[] ACTIONS = {"CREATE", "OPEN", "EDIT", "COPY", "MOVE", "DELETE", "RENAME", "COMPRESS"};
+
+    /** One synthetic directory entry */
+    static final class Entry {
+        final String name;
+        final long size;
+        final long modifiedMillis;
+        final boolean directory;
+
+        Entry(String name, long size, long modifiedMillis, boolean directory) {
+            this.name = name;
+            this.size = size;
+            this.modifiedMillis = modifiedMillis;
+            this.directory = directory;
+        }
+    }
+
+    private BenchmarkData() {
+    }
+
+    /**
+     * count unique names with log-normal sizes; about 5% are folders
+     */
+    static List<Entry> entries(int count, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        List<Entry> entries = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            boolean directory = random.nextInt(20) == 0;
+            String name = name(random, i, directory);
+            long size = directory ? 0 : (long) Math.exp(random.nextDouble() * 2 + 4 + random.nextDouble() * 12);
+            long modified = BASE_MILLIS + (long) (random.nextDouble() * YEAR_MILLIS);
+            entries.add(new Entry(name, size, modified, directory));
+        }
+        return entries;
+    }
+
+    /** Words joined like real file names, made unique by the index */
+    private static String name(SplittableRandom random, int index, boolean directory) {
+        StringBuilder sb = new StringBuilder(WORDS[random.nextInt(WORDS.length)]);
+        int extraWords = random.nextInt(3);
+        for (int w = 0; w < extraWords; w++) {
+            sb.append(random.nextBoolean() ? '_' : ' ').append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        sb.append('-').append(index);
+        if (!directory) sb.append(EXTENSIONS[random.nextInt(EXTENSIONS.length)]);
+        return sb.toString();
+    }
+
+    /**
+     * A directory holding the entries of entries(count, seed). Files are
+     * created empty (their sizes would need gigabytes at 100k entries) but
+     * carry the generated modification times.
+     */
+    static Path directory(int count, long seed) throws IOException {
+        Path dir = DATA_DIR.resolve("dir-" + count + "-" + seed);
+        if (Files.exists(dir.resolve(COMPLETE_MARKER))) return dir;
+        deleteTree(dir);
+        Files.createDirectories(dir);
+        for (Entry e : entries(count, seed)) {
+            Path p = dir.resolve(e.name);
+            if (e.directory) {
+                Files.createDirectory(p);
+            } else {
+                Files.createFile(p);
+            }
+            Files.setLastModifiedTime(p, FileTime.fromMillis(e.modifiedMillis));
+        }
+        Files.createFile(dir.resolve(COMPLETE_MARKER));
+        return dir;
+    }
+
+    /**
+     * A UTF-8 text file of about the given size: lines of words with some
+     * non-ASCII characters, as a preview would see in notes or source files
+     */
+    static Path textFile(long bytes, long seed) throws IOException {
+        Path file = DATA_DIR.resolve("text-" + bytes + "-" + seed + ".txt");
+        if (Files.isRegularFile(file) && Files.size(file) == bytes) return file;
+        Files.createDirectories(DATA_DIR);
+        SplittableRandom random = new SplittableRandom(seed);
+        StringBuilder line = new StringBuilder();
+        try (OutputStream out = Files.newOutputStream(file)) {
+            long written = 0;
+            while (written < bytes) {
+                line.setLength(0);
+                int words = 4 + random.nextInt(12);
+                for (int w = 0; w < words; w++) {
+                    if (w > 0) line.append(' ');
+                    line.append(TEXT_WORDS[random.nextInt(TEXT_WORDS.length)]);
+                }
+                line.append('\n');
+                byte[] data = line.toString().getBytes(StandardCharsets.UTF_8);
+                int len = (int) Math.min(data.length, bytes - written);
+                out.write(data, 0, len);
+                written += len;
+            }
+        }
+        return file;
+    }
+
+    /** Random bytes, which the preview shows as a hex dump */
+    static Path binaryFile(long bytes, long seed) throws IOException {
+        Path file = DATA_DIR.resolve("binary-" + bytes + "-" + seed + ".bin");
+        if (Files.isRegularFile(file) && Files.size(file) == bytes) return file;
+        Files.createDirectories(DATA_DIR);
+        SplittableRandom random = new SplittableRandom(seed);
+        byte[] chunk = new byte[64 * 1024];
+        try (OutputStream out = Files.newOutputStream(file)) {
+            long written = 0;
+            while (written < bytes) {
+                for (int i = 0; i < chunk.length; i += 8) {
+                    long v = random.nextLong();
+                    for (int b = 0; b < 8; b++) chunk[i + b] = (byte) (v >>> (b * 8));
+                }
+                int len = (int) Math.min(chunk.length, bytes - written);
+                out.write(chunk, 0, len);
+                written += len;
+            }
+        }
+        return file;
+    }
+
+    /** Activity rows as the file operations would log them */
+    static List<ActivityLog> activities(int count, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        // Activity clusters on a limited set of files, like real usage
+        List<Entry> files = entries(1000, seed);
+        List<ActivityLog> logs = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Entry e = files.get(random.nextInt(files.size()));
+            String action = ACTIONS[random.nextInt(ACTIONS.length)];
+            ActivityLog log = new ActivityLog(1 + random.nextInt(50), e.name, "/home/user/Documents/" + e.name,
+                    action, action.toLowerCase(Locale.ROOT) + " " + e.name);
+            log.setTimestamp(LocalDateTime.ofEpochSecond((BASE_MILLIS + (long) (random.nextDouble() * YEAR_MILLIS)) / 1000,
+                    0, ZoneOffset.UTC));
+            logs.add(log);
+        }
+        return logs;
+    }
+
+    static void deleteTree(Path dir) throws IOException {
+        if (!Files.exists(dir)) return;
+        try (Stream<Path> walk = Files.walk(dir)) {
+            walk.sorted(Comparator.reverseOrder()).forEach(p -> {
+                try {
+                    Files.delete(p);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Entry point of benchmarks.jar. Takes the usual JMH arguments, but unless
+ * -rf/-rff are given the results are also written as JSON to
+ * results/&lt;label&gt;-&lt;timestamp&gt;.json, where the label comes from
+ * -Dbench.label (e.g. the release being measured, default "local").
+ * Two such files can be compared with any JMH JSON viewer.
+ */
+public class BenchmarkRunner {
+    public static void main(String[] args) throws RunnerException, IOException {
+        CommandLineOptions cmd;
+        try {
+            cmd = new CommandLineOptions(args);
+        } catch (CommandLineOptionException e) {
+            System.err.println("Error parsing command line: " + e.getMessage());
+            System.exit(1);
+            return;
+        }
+        if (cmd.shouldHelp() || cmd.shouldList() || cmd.shouldListWithParams() || cmd.shouldListProfilers()
+                || cmd.shouldListResultFormats()) {
+            // Nothing to record; let JMH print what was asked for
+            org.openjdk.jmh.Main.main(args);
+            return;
+        }
+
+        OptionsBuilder options = new OptionsBuilder();
+        options.parent(cmd);
+        if (!cmd.getResult().hasValue() && !cmd.getResultFormat().hasValue()) {
+            String label = System.getProperty("bench.label", "local");
+            String stamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss"));
+            Path results = Paths.get(System.getProperty("bench.resultsDir", "results"));
+            Files.createDirectories(results);
+            Path file = results.resolve(label + "-" + stamp + ".json");
+            options.resultFormat(ResultFormatType.JSON).result(file.toString());
+            System.out.println("Results will be written to " + file.toAbsolutePath());
+        }
+        Options opts = options.build();
+        new Runner(opts).run();
+    }
+}
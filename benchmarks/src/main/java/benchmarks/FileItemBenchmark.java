@@ -0,0 +1,66 @@
+package benchmarks;
+
+import controllers.FileItem;
+import controllers.FileItemStore;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import services.DirectoryListingService;
+
+/**
+ * Cost of filling the table: building FileItems from stored values (as from
+ * the metadata index, into one column store) and listing a real directory
+ * (one attribute read per entry). Scores are per whole directory.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class FileItemBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class StoredEntries {
+        @Param({"1000", "100000", "1000000"})
+        public int entries;
+
+        final Path dir = Paths.get("/bench/stored");
+        List<BenchmarkData.Entry> data;
+
+        @Setup
+        public void setup() {
+            data = BenchmarkData.entries(entries, BenchmarkData.SEED);
+        }
+    }
+
+    /** Real files on disk; 1M would take minutes to create, so it stops at 100k */
+    @State(Scope.Benchmark)
+    public static class OnDisk {
+        @Param({"1000", "100000"})
+        public int files;
+
+        Path dir;
+
+        @Setup
+        public void setup() throws IOException {
+            dir = BenchmarkData.directory(files, BenchmarkData.SEED);
+        }
+    }
+
+    @Benchmark
+    public List<FileItem> fromStoredValues(StoredEntries s) {
+        FileItemStore.Builder store = new FileItemStore.Builder(s.dir, s.data.size());
+        for (BenchmarkData.Entry e : s.data) {
+            store.add(e.name, e.size, e.modifiedMillis, e.directory);
+        }
+        return store.build();
+    }
+
+    @Benchmark
+    public List<FileItem> listDirectory(OnDisk d) throws IOException {
+        return DirectoryListingService.listAll(d.dir);
+    }
+}
@@ -0,0 +1,114 @@
+package benchmarks;
+
+import services.FileTransferEngine;
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Checks that a copy or move onto an existing file leaves that file alone,
+ * for small files and for files at or above FileTransferEngine.TRANSFER_THRESHOLD
+ * (which take the transferTo path), and that a plain large copy is complete.
+ * The cross-store move case runs when /dev/shm is on another file store.
+ *
+ *   java -cp benchmarks/target/benchmarks.jar benchmarks.FileTransferCheck
+ *
+ * Exits with status 1 on the first mismatch.
+ */
+public class FileTransferCheck {
+    private static final Random random = new Random(42);
+
+    public static void main(String[] args) throws Exception {
+        Path work = Files.createTempDirectory("transfer-check");
+        try {
+            run(work);
+            System.out.println("File transfer: OK");
+        } catch (AssertionError e) {
+            System.err.println("File transfer: FAILED - " + e.getMessage());
+            System.exit(1);
+        } finally {
+            deleteTree(work);
+        }
+    }
+
+    private static void run(Path work) throws Exception {
+        int big = (int) FileTransferEngine.TRANSFER_THRESHOLD * 2;
+        for (FileTransferEngine.Mode mode : FileTransferEngine.Mode.values()) {
+            for (int size : new int[] {1024, big}) {
+                checkExistingTargetKept(work.resolve(mode + "-" + size), work.resolve(mode + "-" + size + "-dst"), mode, size);
+            }
+        }
+
+        // A plain large copy arrives complete
+        Path src = work.resolve("plain");
+        Path dst = work.resolve("plain-dst");
+        byte[] data = write(src.resolve("big.bin"), big + 12345);
+        FileTransferEngine.Result r = new FileTransferEngine(List.of(src.resolve("big.bin")), dst, FileTransferEngine.Mode.COPY)
+                .run(null, () -> false);
+        check(r.getErrors().isEmpty(), "plain copy errors " + r.getErrors());
+        check(Arrays.equals(data, Files.readAllBytes(dst.resolve("big.bin"))), "plain copy content differs");
+
+        // Moves between file stores take the copy path as well
+        Path shm = Paths.get("/dev/shm");
+        if (Files.isDirectory(shm) && Files.isWritable(shm) && !Files.getFileStore(shm).equals(Files.getFileStore(work))) {
+            Path other = Files.createTempDirectory(shm, "transfer-check");
+            try {
+                checkExistingTargetKept(work.resolve("cross-store"), other, FileTransferEngine.Mode.MOVE, big);
+            } finally {
+                deleteTree(other);
+            }
+        } else {
+            System.out.println("Skipping the cross-store move: /dev/shm is not a separate file store");
+        }
+    }
+
+    private static void checkExistingTargetKept(Path srcDir, Path dstDir, FileTransferEngine.Mode mode, int size)
+            throws IOException {
+        byte[] incoming = write(srcDir.resolve("file.bin"), size);
+        byte[] existing = write(dstDir.resolve("file.bin"), size);
+        FileTransferEngine.Result r = new FileTransferEngine(List.of(srcDir.resolve("file.bin")), dstDir, mode)
+                .run(null, () -> false);
+        String what = mode + " of " + size + " bytes onto an existing file";
+        check(r.getErrors().size() == 1 && r.getErrors().get(0).contains("already exists"), what + ": errors " + r.getErrors());
+        check(r.getCompleted().isEmpty(), what + ": reported as completed");
+        check(Files.exists(dstDir.resolve("file.bin")), what + ": existing target was deleted");
+        check(Arrays.equals(existing, Files.readAllBytes(dstDir.resolve("file.bin"))), what + ": existing target changed");
+        check(Arrays.equals(incoming, Files.readAllBytes(srcDir.resolve("file.bin"))), what + ": source changed");
+    }
+
+    private static byte[] write(Path file, int size) throws IOException {
+        byte[] data = new byte[size];
+        random.nextBytes(data);
+        Files.createDirectories(file.getParent());
+        Files.write(file, data);
+        return data;
+    }
+
+    private static void deleteTree(Path root) throws IOException {
+        if (!Files.exists(root)) return;
+        Files.walkFileTree(root, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                Files.delete(file);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path dir, IOException e) throws IOException {
+                Files.delete(dir);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    private static void check(boolean ok, String message) {
+        if (!ok) throw new AssertionError(message);
+    }
+}
@@ -0,0 +1,73 @@
+package benchmarks;
+
+import controllers.FileItem;
+import controllers.FileItemStore;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import org.openjdk.jmh.annotations.*;
+import services.NameIndex;
+
+/**
+ * The search box: building the trigram index for a listing and applying a
+ * query to every row, as the FilteredList does, against a plain
+ * lowercase-contains scan for reference.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class FilterBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    public int entries;
+
+    /** A short query (scan path), a common word and a rare, longer one */
+    @Param({"pd", "report", "overview_plan"})
+    public String query;
+
+    private List<FileItem> items;
+    private NameIndex index;
+
+    @Setup
+    public void setup() {
+        Path dir = Paths.get("/bench/filter");
+        FileItemStore.Builder store = new FileItemStore.Builder(dir, entries);
+        for (BenchmarkData.Entry e : BenchmarkData.entries(entries, BenchmarkData.SEED)) {
+            store.add(e.name, e.size, e.modifiedMillis, e.directory);
+        }
+        items = store.build();
+        index = new NameIndex(items);
+    }
+
+    /** Paid once per listing change, on the name-search thread */
+    @Benchmark
+    public NameIndex buildIndex() {
+        return new NameIndex(items);
+    }
+
+    @Benchmark
+    public int indexedFilter() {
+        Predicate<FileItem> matcher = index.matcher(query);
+        int matches = 0;
+        for (FileItem item : items) {
+            if (matcher.test(item)) matches++;
+        }
+        return matches;
+    }
+
+    @Benchmark
+    public int scanFilter() {
+        String q = query.toLowerCase(Locale.ROOT);
+        int matches = 0;
+        for (FileItem item : items) {
+            if (item.getName().toLowerCase(Locale.ROOT).contains(q)) matches++;
+        }
+        return matches;
+    }
+}
@@ -0,0 +1,74 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import utils.LegacyMd5PasswordHasher;
+import utils.PasswordUtils;
+import utils.Pbkdf2PasswordHasher;
+
+/**
+ * Hash and verify throughput per PBKDF2 cost setting, directly and through
+ * PasswordUtils, plus the legacy MD5 scheme for reference.
+ * Pick the cost for a target latency with -p iterations=... or let
+ * PasswordUtils.calibrateAsync measure it at startup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 3)
+@Fork(1)
+public class PasswordHashingBenchmark {
+    private static final String PASSWORD = "correct horse battery staple";
+
+    @Param({"100000", "310000", "600000", "1000000"})
+    public int iterations;
+
+    private Pbkdf2PasswordHasher pbkdf2;
+    private String pbkdf2Hash;
+    private LegacyMd5PasswordHasher md5;
+    private String md5Hash;
+
+    @Setup
+    public void setup() {
+        pbkdf2 = new Pbkdf2PasswordHasher(iterations);
+        pbkdf2Hash = pbkdf2.hash(PASSWORD);
+        md5 = new LegacyMd5PasswordHasher();
+        md5Hash = md5.hash(PASSWORD);
+    }
+
+    @Benchmark
+    public boolean pbkdf2Verify() {
+        return pbkdf2.verify(PASSWORD, pbkdf2Hash);
+    }
+
+    /** Sign-up and rehash cost: a fresh salt plus one derivation */
+    @Benchmark
+    public String pbkdf2Hash() {
+        return pbkdf2.hash(PASSWORD);
+    }
+
+    /** Login path: scheme lookup from the stored hash, then the verify it selects */
+    @Benchmark
+    public boolean passwordUtilsVerify() {
+        return PasswordUtils.verifyPassword(PASSWORD, pbkdf2Hash);
+    }
+
+    /** Concurrent logins, as bounded by the hash pool */
+    @Benchmark
+    @Threads(2)
+    public boolean pbkdf2VerifyTwoThreads() {
+        return pbkdf2.verify(PASSWORD, pbkdf2Hash);
+    }
+
+    @Benchmark
+    public boolean md5Verify() {
+        return md5.verify(PASSWORD, md5Hash);
+    }
+
+    /** Accounts not yet upgraded go through the same entry point */
+    @Benchmark
+    public boolean passwordUtilsVerifyLegacy() {
+        return PasswordUtils.verifyPassword(PASSWORD, md5Hash);
+    }
+}
@@ -0,0 +1,53 @@
+package benchmarks;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import services.FilePreviewService;
+
+/**
+ * Reading one preview page (64 KB) from files of different sizes and kinds.
+ * The first page includes charset and binary detection; the middle page is
+ * what scrolling through a large file costs. Files stay in the page cache,
+ * so this measures the CPU side, not the disk.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PreviewBenchmark {
+
+    @Param({"4096", "65536", "1048576", "8388608"})
+    public long fileSize;
+
+    @Param({"text", "binary"})
+    public String kind;
+
+    private Path file;
+    private long middle;
+    private Charset charset;
+
+    @Setup
+    public void setup() throws IOException {
+        file = kind.equals("text")
+                ? BenchmarkData.textFile(fileSize, BenchmarkData.SEED)
+                : BenchmarkData.binaryFile(fileSize, BenchmarkData.SEED);
+        middle = fileSize / 2;
+        // Later pages reuse the charset found on the first, as the preview pane does
+        charset = FilePreviewService.readPage(file, 0, null).getCharset();
+    }
+
+    @Benchmark
+    public FilePreviewService.Page firstPage() throws IOException {
+        return FilePreviewService.readPage(file, 0, null);
+    }
+
+    @Benchmark
+    public FilePreviewService.Page middlePage() throws IOException {
+        return FilePreviewService.readPage(file, middle, charset);
+    }
+}
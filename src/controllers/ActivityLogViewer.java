@@ -0,0 +1,367 @@
+package controllers;
+
+import database.ActivityLogDAO;
+import database.ActivityLogIterator;
+import database.ActivityLogQuery;
+import javafx.beans.property.SimpleStringProperty;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.concurrent.Task;
+import javafx.geometry.Insets;
+import javafx.scene.Scene;
+import javafx.scene.control.*;
+import javafx.scene.control.skin.VirtualFlow;
+import javafx.scene.layout.BorderPane;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.VBox;
+import javafx.stage.FileChooser;
+import javafx.stage.Stage;
+import javafx.stage.Window;
+import models.ActivityLog;
+import services.TaskRunner;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Window that pages through file_activities with keyset cursors.
+ * Only a window of MAX_ROWS rows is held in the table; pages are fetched in the
+ * background when the visible rows approach either end, and rows at the far end
+ * are dropped so memory stays flat however far back the user scrolls.
+ * Filters, the summary and CSV export all run in the database or stream rows,
+ * so none of them load the full history into memory.
+ */
+public class ActivityLogViewer {
+    private static final int PAGE_SIZE = 500;
+    private static final int MAX_ROWS = 20 * PAGE_SIZE;
+    private static final int PREFETCH_ROWS = 100;
+    private static final int TOP_FILES = 20;
+    private static final String[] ACTIONS = {
+        "ACCESS", "COMPRESS", "COPY", "CREATE", "CREATE_USER", "DELETE", "HARDLINK", "LOGIN", "LOGOUT", "MOVE", "RENAME"
+    };
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private final ActivityLogDAO dao;
+    private final ObservableList<ActivityLog> rows = FXCollections.observableArrayList();
+    private final TableView<ActivityLog> table = new TableView<>(rows);
+    private final Label statusLabel = new Label();
+    // Each query gets its own virtual thread, so a long export or summary does not hold up paging
+    private final TaskRunner executor = TaskRunner.root().child("activity-log");
+
+    private final TextField userFilter = new TextField();
+    private final ComboBox<String> actionFilter = new ComboBox<>();
+    private final TextField pathFilter = new TextField();
+    private final DatePicker datePicker = new DatePicker();
+    private Stage stage;
+
+    private ActivityLogQuery filter = new ActivityLogQuery();
+    private boolean hasOlder;
+    private boolean hasNewer;
+    private Task<ActivityLogDAO.Page> loading;
+
+    public ActivityLogViewer(ActivityLogDAO dao) {
+        this.dao = dao;
+    }
+
+    public void show(Window owner) {
+        table.getColumns().add(column("Time", 150, log ->
+                log.getTimestamp() == null ? "" : TIME_FORMAT.format(log.getTimestamp())));
+        table.getColumns().add(column("User", 100, ActivityLog::getUsername));
+        table.getColumns().add(column("Action", 90, ActivityLog::getAction));
+        table.getColumns().add(column("File", 180, ActivityLog::getFileName));
+        table.getColumns().add(column("Details", 300, ActivityLog::getDetails));
+        table.setColumnResizePolicy(TableView.CONSTRAINED_RESIZE_POLICY_FLEX_LAST_COLUMN);
+        table.setPlaceholder(new Label("No activity recorded"));
+
+        // Rows are only created for the visible part of the table, so the index of
+        // the row being rendered tells us how close the user is to either end
+        table.setRowFactory(tv -> new TableRow<>() {
+            @Override
+            protected void updateItem(ActivityLog item, boolean empty) {
+                super.updateItem(item, empty);
+                if (empty || item == null) return;
+                int index = getIndex();
+                if (hasOlder && index >= rows.size() - PREFETCH_ROWS) {
+                    loadOlder();
+                } else if (hasNewer && index < PREFETCH_ROWS) {
+                    loadNewer();
+                }
+            }
+        });
+
+        datePicker.setPromptText("Go to date");
+        datePicker.setOnAction(e -> reload(startCursor()));
+        Button newestButton = new Button("Newest");
+        newestButton.setOnAction(e -> {
+            datePicker.setValue(null);
+            reload(null);
+        });
+
+        userFilter.setPromptText("User");
+        userFilter.setPrefColumnCount(8);
+        actionFilter.getItems().add("");
+        actionFilter.getItems().addAll(ACTIONS);
+        actionFilter.setPromptText("Action");
+        pathFilter.setPromptText("Path starts with");
+        pathFilter.setPrefColumnCount(18);
+        Button applyButton = new Button("Filter");
+        applyButton.setDefaultButton(true);
+        applyButton.setOnAction(e -> applyFilter());
+        Button summaryButton = new Button("Summary");
+        summaryButton.setOnAction(e -> showSummary());
+        Button exportButton = new Button("Export CSV");
+        exportButton.setOnAction(e -> exportCsv());
+
+        HBox filterBar = new HBox(8, userFilter, actionFilter, pathFilter, applyButton, summaryButton, exportButton);
+        filterBar.setPadding(new Insets(6, 6, 0, 6));
+        HBox toolbar = new HBox(8, newestButton, datePicker, statusLabel);
+        toolbar.setPadding(new Insets(6));
+        BorderPane root = new BorderPane(table);
+        root.setTop(new VBox(filterBar, toolbar));
+
+        stage = new Stage();
+        stage.setTitle("Activity Logs");
+        stage.initOwner(owner);
+        stage.setScene(new Scene(root, 900, 500));
+        stage.setOnHidden(e -> {
+            if (loading != null) loading.cancel();
+            executor.close();
+        });
+        stage.show();
+
+        reload(null);
+    }
+
+    /**
+     * Start over from a cursor (null = newest row)
+     */
+    private void reload(ActivityLogDAO.Cursor from) {
+        if (loading != null) loading.cancel();
+        loading = null;
+        rows.clear();
+        hasOlder = false;
+        hasNewer = from != null;
+        statusLabel.setText("Loading...");
+        ActivityLogQuery f = filter;
+        fetch(() -> dao.getActivitiesBefore(f, from, PAGE_SIZE), page -> {
+            rows.setAll(page.getRows());
+            hasOlder = page.hasMore();
+            table.scrollTo(0);
+        });
+    }
+
+    private void loadOlder() {
+        if (loading != null || rows.isEmpty()) return;
+        ActivityLogDAO.Cursor last = ActivityLogDAO.Cursor.of(rows.get(rows.size() - 1));
+        ActivityLogQuery f = filter;
+        fetch(() -> dao.getActivitiesBefore(f, last, PAGE_SIZE), page -> {
+            int firstVisible = firstVisibleIndex();
+            rows.addAll(page.getRows());
+            hasOlder = page.hasMore();
+            int excess = rows.size() - MAX_ROWS;
+            if (excess > 0) {
+                rows.remove(0, excess);
+                hasNewer = true;
+                // Rows above the view were dropped; keep the rows the user was looking at in place
+                if (firstVisible >= 0) table.scrollTo(Math.max(0, firstVisible - excess));
+            }
+        });
+    }
+
+    private void loadNewer() {
+        if (loading != null || rows.isEmpty()) return;
+        ActivityLogDAO.Cursor first = ActivityLogDAO.Cursor.of(rows.get(0));
+        ActivityLogQuery f = filter;
+        fetch(() -> dao.getActivitiesAfter(f, first, PAGE_SIZE), page -> {
+            List<ActivityLog> newer = page.getRows();
+            int firstVisible = Math.max(0, firstVisibleIndex());
+            rows.addAll(0, newer);
+            hasNewer = page.hasMore();
+            int excess = rows.size() - MAX_ROWS;
+            if (excess > 0) {
+                rows.remove(rows.size() - excess, rows.size());
+                hasOlder = true;
+            }
+            // Keep the rows the user was looking at in place
+            table.scrollTo(firstVisible + newer.size());
+        });
+    }
+
+    /** Index of the topmost row on screen, or -1 before the table is shown */
+    private int firstVisibleIndex() {
+        if (table.lookup(".virtual-flow") instanceof VirtualFlow<?> flow && flow.getFirstVisibleCell() != null) {
+            return flow.getFirstVisibleCell().getIndex();
+        }
+        return -1;
+    }
+
+    private ActivityLogDAO.Cursor startCursor() {
+        LocalDate date = datePicker.getValue();
+        return date == null ? null : ActivityLogDAO.Cursor.endOf(date.plusDays(1).atStartOfDay());
+    }
+
+    /** The filter fields as a fresh query (used for paging, summary and export) */
+    private ActivityLogQuery currentFilter() {
+        return new ActivityLogQuery()
+                .username(userFilter.getText())
+                .action(actionFilter.getValue())
+                .pathPrefix(pathFilter.getText());
+    }
+
+    private void applyFilter() {
+        filter = currentFilter();
+        reload(startCursor());
+    }
+
+    // ===== SUMMARY AND EXPORT =====
+
+    private void showSummary() {
+        ActivityLogQuery f = currentFilter();
+        Task<String> task = new Task<>() {
+            @Override
+            protected String call() throws Exception {
+                // Both reports are GROUP BY queries; only the aggregated rows come back
+                List<ActivityLogDAO.ActionCount> perDay = dao.countActionsPerDay(f);
+                List<ActivityLogDAO.FileCount> topFiles = dao.getTopFiles(f, TOP_FILES);
+
+                StringBuilder sb = new StringBuilder();
+                sb.append("Activities per day\n");
+                sb.append("=".repeat(50)).append("\n");
+                LocalDate lastDay = null;
+                for (ActivityLogDAO.ActionCount c : perDay) {
+                    if (!c.getDay().equals(lastDay)) {
+                        sb.append("\n").append(c.getDay()).append("\n");
+                        lastDay = c.getDay();
+                    }
+                    sb.append(String.format("  %-12s %,10d%n", c.getAction(), c.getCount()));
+                }
+                sb.append("\n\nTop ").append(TOP_FILES).append(" files\n");
+                sb.append("=".repeat(50)).append("\n");
+                for (ActivityLogDAO.FileCount c : topFiles) {
+                    sb.append(String.format("%,10d  %s  (last %s)%n", c.getCount(), c.getFilePath(),
+                            c.getLastTouched() != null ? TIME_FORMAT.format(c.getLastTouched()) : "-"));
+                }
+                return sb.toString();
+            }
+        };
+        task.setOnSucceeded(e -> {
+            TextArea textArea = new TextArea(task.getValue());
+            textArea.setEditable(false);
+            textArea.setStyle("-fx-font-family: monospace;");
+            textArea.setPrefSize(650, 450);
+            Alert alert = new Alert(Alert.AlertType.INFORMATION);
+            alert.initOwner(stage);
+            alert.setTitle("Activity Summary");
+            alert.setHeaderText("Activity summary for the current filter");
+            alert.getDialogPane().setContent(textArea);
+            alert.show();
+        });
+        task.setOnFailed(e -> statusLabel.setText("Summary failed: " + task.getException().getMessage()));
+        statusLabel.setText("Building summary...");
+        executor.submit(task);
+    }
+
+    private void exportCsv() {
+        FileChooser fc = new FileChooser();
+        fc.setTitle("Export Activity Log");
+        fc.setInitialFileName("activity-log.csv");
+        File out = fc.showSaveDialog(stage);
+        if (out == null) return;
+
+        ActivityLogQuery f = currentFilter();
+        Task<Long> task = new Task<>() {
+            @Override
+            protected Long call() throws Exception {
+                // Rows are written as they are read from the open ResultSet
+                try (ActivityLogIterator it = dao.stream(f);
+                     BufferedWriter w = Files.newBufferedWriter(out.toPath(), StandardCharsets.UTF_8)) {
+                    w.write("activity_id,timestamp,username,action,file_name,file_path,details\n");
+                    while (it.hasNext()) {
+                        if (isCancelled()) break;
+                        ActivityLog log = it.next();
+                        w.write(log.getActivityId() + ","
+                                + csv(log.getTimestamp() != null ? TIME_FORMAT.format(log.getTimestamp()) : "") + ","
+                                + csv(log.getUsername()) + "," + csv(log.getAction()) + ","
+                                + csv(log.getFileName()) + "," + csv(log.getFilePath()) + ","
+                                + csv(log.getDetails()) + "\n");
+                        long n = it.getRowsRead();
+                        if (n % 10_000 == 0) updateMessage(String.format("Exported %,d rows...", n));
+                    }
+                    return it.getRowsRead();
+                }
+            }
+        };
+        task.messageProperty().addListener((obs, o, msg) -> statusLabel.setText(msg));
+        task.setOnSucceeded(e -> statusLabel.setText(String.format("Exported %,d rows to %s", task.getValue(), out.getName())));
+        task.setOnFailed(e -> statusLabel.setText("Export failed: " + task.getException().getMessage()));
+        statusLabel.setText("Exporting...");
+        executor.submit(task);
+    }
+
+    private static String csv(String value) {
+        if (value == null) return "";
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return "\"" + value.replace("\"", "\"\"") + "\"";
+    }
+
+    private interface PageQuery {
+        ActivityLogDAO.Page run() throws Exception;
+    }
+
+    private interface PageHandler {
+        void accept(ActivityLogDAO.Page page);
+    }
+
+    private void fetch(PageQuery query, PageHandler onPage) {
+        Task<ActivityLogDAO.Page> task = new Task<>() {
+            @Override
+            protected ActivityLogDAO.Page call() throws Exception {
+                return query.run();
+            }
+        };
+        task.setOnSucceeded(e -> {
+            if (loading != task) return;
+            loading = null;
+            onPage.accept(task.getValue());
+            updateStatus();
+        });
+        task.setOnFailed(e -> {
+            if (loading != task) return;
+            loading = null;
+            Throwable ex = task.getException();
+            statusLabel.setText("Failed to load activity logs: " + (ex != null ? ex.getMessage() : "unknown error"));
+        });
+        loading = task;
+        executor.submit(task);
+    }
+
+    private void updateStatus() {
+        if (rows.isEmpty()) {
+            statusLabel.setText("");
+            return;
+        }
+        ActivityLog first = rows.get(0);
+        ActivityLog last = rows.get(rows.size() - 1);
+        statusLabel.setText(String.format("Showing %,d entries from %s to %s%s",
+                rows.size(),
+                TIME_FORMAT.format(last.getTimestamp()),
+                TIME_FORMAT.format(first.getTimestamp()),
+                hasOlder ? " (scroll for older)" : ""));
+    }
+
+    private static TableColumn<ActivityLog, String> column(String title, double width,
+                                                           Function<ActivityLog, String> value) {
+        TableColumn<ActivityLog, String> col = new TableColumn<>(title);
+        col.setPrefWidth(width);
+        col.setSortable(false);
+        col.setCellValueFactory(cd -> new SimpleStringProperty(value.apply(cd.getValue())));
+        return col;
+    }
+}
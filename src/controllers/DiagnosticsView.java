@@ -0,0 +1,194 @@
+package controllers;
+
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
+import javafx.beans.property.SimpleStringProperty;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.geometry.Insets;
+import javafx.scene.Scene;
+import javafx.scene.control.*;
+import javafx.scene.layout.BorderPane;
+import javafx.scene.layout.HBox;
+import javafx.stage.FileChooser;
+import javafx.stage.Stage;
+import javafx.stage.Window;
+import javafx.util.Duration;
+import jdk.jfr.Recording;
+import utils.Metrics;
+import utils.MetricsEvents;
+import java.io.File;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * Window listing every metric in Metrics, refreshed once a second: latency
+ * percentiles and throughput of the timers, counter totals and gauge values.
+ * Record JFR captures the same numbers (plus every timed call) as a flight
+ * recording that can be opened in JDK Mission Control.
+ */
+public class DiagnosticsView {
+    /** One metric with its rate since the previous refresh */
+    public static class Row {
+        private final Metrics.Snapshot snapshot;
+        private final double ratePerSecond;
+
+        Row(Metrics.Snapshot snapshot, double ratePerSecond) {
+            this.snapshot = snapshot;
+            this.ratePerSecond = ratePerSecond;
+        }
+
+        public Metrics.Snapshot getSnapshot() { return snapshot; }
+        public double getRatePerSecond() { return ratePerSecond; }
+    }
+
+    private final ObservableList<Row> rows = FXCollections.observableArrayList();
+    private final TableView<Row> table = new TableView<>(rows);
+    private final Label statusLabel = new Label();
+    private final Button recordButton = new Button("Record JFR");
+    private final Map<String, Long> lastCounts = new HashMap<>();
+    private long lastRefreshNanos;
+    private Timeline refresher;
+    private Recording recording;
+    private Stage stage;
+
+    public void show(Window owner) {
+        table.getColumns().add(column("Metric", 200, r -> r.snapshot.getName()));
+        table.getColumns().add(column("Count", 80, r -> r.snapshot.getType() == Metrics.Type.GAUGE
+                ? "" : String.format("%,d", r.snapshot.getCount())));
+        table.getColumns().add(column("Rate/s", 70, r -> r.snapshot.getType() == Metrics.Type.GAUGE
+                ? "" : String.format("%.1f", r.ratePerSecond)));
+        table.getColumns().add(column("p50 ms", 70, r -> millis(r, r.snapshot.getP50Millis())));
+        table.getColumns().add(column("p99 ms", 70, r -> millis(r, r.snapshot.getP99Millis())));
+        table.getColumns().add(column("Max ms", 70, r -> millis(r, r.snapshot.getMaxMillis())));
+        table.getColumns().add(column("Errors", 60, r -> r.snapshot.getType() == Metrics.Type.TIMER
+                ? String.valueOf(r.snapshot.getErrors()) : ""));
+        table.getColumns().add(column("Value", 80, r -> r.snapshot.getType() == Metrics.Type.GAUGE
+                ? formatValue(r.snapshot.getValue()) : ""));
+        table.setColumnResizePolicy(TableView.CONSTRAINED_RESIZE_POLICY_FLEX_LAST_COLUMN);
+        table.setPlaceholder(new Label("Nothing measured yet"));
+
+        recordButton.setTooltip(new Tooltip("Record these metrics and every timed call as a JFR file"));
+        recordButton.setOnAction(e -> toggleRecording());
+        Button resetRates = new Button("Reset Rates");
+        resetRates.setOnAction(e -> {
+            lastCounts.clear();
+            refresh();
+        });
+
+        HBox toolbar = new HBox(8, recordButton, resetRates, statusLabel);
+        toolbar.setPadding(new Insets(6));
+        BorderPane root = new BorderPane(table);
+        root.setTop(toolbar);
+
+        stage = new Stage();
+        stage.setTitle("Diagnostics");
+        stage.initOwner(owner);
+        stage.setScene(new Scene(root, 780, 480));
+        stage.setOnHidden(e -> {
+            refresher.stop();
+            if (recording != null) {
+                recording.close();
+                recording = null;
+            }
+        });
+        stage.show();
+
+        refresh();
+        refresher = new Timeline(new KeyFrame(Duration.seconds(1), e -> refresh()));
+        refresher.setCycleCount(Timeline.INDEFINITE);
+        refresher.play();
+    }
+
+    public boolean isShowing() {
+        return stage != null && stage.isShowing();
+    }
+
+    public void toFront() {
+        stage.toFront();
+    }
+
+    private void refresh() {
+        long now = System.nanoTime();
+        double seconds = (now - lastRefreshNanos) / 1e9;
+        lastRefreshNanos = now;
+
+        Row selected = table.getSelectionModel().getSelectedItem();
+        String selectedName = selected != null ? selected.snapshot.getName() : null;
+        List<Row> fresh = new ArrayList<>();
+        for (Metrics.Snapshot s : Metrics.snapshot()) {
+            Long before = lastCounts.put(s.getName(), s.getCount());
+            double rate = before == null || seconds <= 0 ? 0 : (s.getCount() - before) / seconds;
+            fresh.add(new Row(s, rate));
+        }
+        rows.setAll(fresh);
+        if (selectedName != null) {
+            for (Row r : rows) {
+                if (r.snapshot.getName().equals(selectedName)) table.getSelectionModel().select(r);
+            }
+        }
+        if (recording == null) {
+            statusLabel.setText(rows.size() + " metrics · p50/p99 over the last 1-2 minutes");
+        }
+    }
+
+    // ===== JFR =====
+
+    private void toggleRecording() {
+        if (recording == null) {
+            try {
+                recording = MetricsEvents.startRecording();
+            } catch (RuntimeException | LinkageError e) {
+                statusLabel.setText("JFR is not available: " + e.getMessage());
+                return;
+            }
+            recordButton.setText("Stop & Save...");
+            statusLabel.setText("Recording since " + LocalDateTime.now().format(DateTimeFormatter.ofPattern("HH:mm:ss")));
+            return;
+        }
+
+        Recording finished = recording;
+        recording = null;
+        recordButton.setText("Record JFR");
+        finished.stop();
+        FileChooser fc = new FileChooser();
+        fc.setTitle("Save Recording");
+        fc.setInitialFileName("filemanager-"
+                + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss")) + ".jfr");
+        fc.getExtensionFilters().add(new FileChooser.ExtensionFilter("Flight recordings", "*.jfr"));
+        File out = fc.showSaveDialog(stage);
+        try {
+            if (out != null) {
+                finished.dump(out.toPath());
+                statusLabel.setText("Saved " + out.getName());
+            } else {
+                statusLabel.setText("Recording discarded");
+            }
+        } catch (IOException e) {
+            statusLabel.setText("Could not save recording: " + e.getMessage());
+        } finally {
+            finished.close();
+        }
+    }
+
+    private static String millis(Row r, double value) {
+        if (r.snapshot.getType() != Metrics.Type.TIMER || r.snapshot.getRecentCount() == 0) return "";
+        return value < 10 ? String.format("%.2f", value) : String.format("%.0f", value);
+    }
+
+    private static String formatValue(double value) {
+        if (Double.isNaN(value)) return "n/a";
+        return value == Math.rint(value) ? String.format("%,d", (long) value) : String.format("%.2f", value);
+    }
+
+    private static TableColumn<Row, String> column(String title, double width, Function<Row, String> value) {
+        TableColumn<Row, String> col = new TableColumn<>(title);
+        col.setPrefWidth(width);
+        col.setSortable(false);
+        col.setCellValueFactory(cd -> new SimpleStringProperty(value.apply(cd.getValue())));
+        return col;
+    }
+}
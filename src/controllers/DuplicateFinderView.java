@@ -0,0 +1,309 @@
+package controllers;
+
+import database.ActivityLogDAO;
+import javafx.beans.property.SimpleStringProperty;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.concurrent.Task;
+import javafx.geometry.Insets;
+import javafx.scene.Scene;
+import javafx.scene.control.*;
+import javafx.scene.layout.BorderPane;
+import javafx.scene.layout.HBox;
+import javafx.stage.Stage;
+import javafx.stage.Window;
+import models.ActivityLog;
+import models.User;
+import services.DeleteEngine;
+import services.DuplicateFinder;
+import services.TaskRunner;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * Window that scans folders for duplicate files and lists them grouped by
+ * content. Admins can delete the selected copies or replace them with hard
+ * links to the copy that is kept; every change is written to the activity log.
+ */
+public class DuplicateFinderView {
+    /** One file in a duplicate group */
+    public static class Row {
+        private final int groupNumber;
+        private final DuplicateFinder.Group group;
+        private final Path path;
+        private final FileItem item;
+
+        Row(int groupNumber, DuplicateFinder.Group group, Path path) {
+            this.groupNumber = groupNumber;
+            this.group = group;
+            this.path = path;
+            this.item = new FileItem(path);
+        }
+
+        public int getGroupNumber() { return groupNumber; }
+        public DuplicateFinder.Group getGroup() { return group; }
+        public Path getPath() { return path; }
+    }
+
+    private final List<Path> roots;
+    private final User user;
+    private final ActivityLogDAO activityLogDAO;
+    private final ObservableList<Row> rows = FXCollections.observableArrayList();
+    private final TableView<Row> table = new TableView<>(rows);
+    private final Label statusLabel = new Label();
+    private final ProgressBar progressBar = new ProgressBar();
+    private final Button deleteButton = new Button("Delete Selected");
+    private final Button linkButton = new Button("Replace with Hard Links");
+    private final TaskRunner executor = TaskRunner.root().serialChild("duplicate-finder");
+    private Stage stage;
+    private Task<?> running;
+
+    public DuplicateFinderView(List<Path> roots, User user, ActivityLogDAO activityLogDAO) {
+        this.roots = roots;
+        this.user = user;
+        this.activityLogDAO = activityLogDAO;
+    }
+
+    public void show(Window owner) {
+        table.getColumns().add(column("Group", 60, r -> String.valueOf(r.groupNumber)));
+        table.getColumns().add(column("Name", 200, r -> r.item.getName()));
+        table.getColumns().add(column("Folder", 320, r -> String.valueOf(r.path.getParent())));
+        table.getColumns().add(column("Size", 90, r -> formatSize(r.group.getSize())));
+        table.getColumns().add(column("Modified", 130, r -> r.item.getModified()));
+        table.setColumnResizePolicy(TableView.CONSTRAINED_RESIZE_POLICY_FLEX_LAST_COLUMN);
+        table.getSelectionModel().setSelectionMode(SelectionMode.MULTIPLE);
+        table.setPlaceholder(new Label("No duplicates found"));
+
+        Button selectButton = new Button("Select Copies");
+        selectButton.setTooltip(new Tooltip("Select every file except the oldest in each group"));
+        selectButton.setOnAction(e -> selectCopies());
+        Button rescanButton = new Button("Rescan");
+        rescanButton.setOnAction(e -> scan());
+
+        boolean admin = user != null && user.isAdmin();
+        deleteButton.setDisable(!admin);
+        linkButton.setDisable(!admin);
+        if (!admin) {
+            deleteButton.setTooltip(new Tooltip("Only administrators can remove duplicates"));
+            linkButton.setTooltip(new Tooltip("Only administrators can remove duplicates"));
+        }
+        deleteButton.setOnAction(e -> resolveSelected(DuplicateFinder.Action.DELETE));
+        linkButton.setOnAction(e -> resolveSelected(DuplicateFinder.Action.HARDLINK));
+
+        progressBar.setPrefWidth(150);
+        progressBar.setVisible(false);
+        HBox toolbar = new HBox(8, rescanButton, selectButton, deleteButton, linkButton, progressBar, statusLabel);
+        toolbar.setPadding(new Insets(6));
+        BorderPane root = new BorderPane(table);
+        root.setTop(toolbar);
+
+        stage = new Stage();
+        stage.setTitle("Duplicate Files");
+        stage.initOwner(owner);
+        stage.setScene(new Scene(root, 950, 500));
+        stage.setOnHidden(e -> {
+            if (running != null) running.cancel();
+            executor.close();
+        });
+        stage.show();
+
+        scan();
+    }
+
+    private void scan() {
+        if (running != null) running.cancel();
+        rows.clear();
+        List<Row> found = new ArrayList<>();
+        Task<DuplicateFinder.Result> task = new Task<>() {
+            @Override
+            protected DuplicateFinder.Result call() {
+                updateMessage("Scanning...");
+                DuplicateFinder.Result r = new DuplicateFinder(roots, 1).run((stage, done, total) -> {
+                    if (total > 0) {
+                        updateProgress(done, total);
+                        updateMessage(stage + "... " + (done * 100 / total) + "%");
+                    } else {
+                        updateProgress(-1, 1);
+                        updateMessage(stage + "... " + done + " files");
+                    }
+                }, this::isCancelled);
+                // Rows read their attributes, so build them here rather than on the FX thread
+                int n = 1;
+                for (DuplicateFinder.Group g : r.getGroups()) {
+                    for (Path p : g.getFiles()) found.add(new Row(n, g, p));
+                    n++;
+                }
+                return r;
+            }
+        };
+        task.setOnSucceeded(e -> {
+            DuplicateFinder.Result r = task.getValue();
+            rows.setAll(found);
+            statusLabel.setText(String.format("%,d group(s), %s reclaimable · %,d files scanned, %,d read (%s) in %.1f s",
+                    r.getGroups().size(), formatSize(r.getWastedBytes()), r.getFilesScanned(),
+                    r.getFilesHashed(), formatSize(r.getBytesRead()), r.getMillis() / 1000.0));
+            if (!r.getErrors().isEmpty()) {
+                statusLabel.setText(statusLabel.getText() + " · " + r.getErrors().size() + " unreadable");
+            }
+        });
+        task.setOnFailed(e -> statusLabel.setText("Scan failed: " + task.getException().getMessage()));
+        task.setOnCancelled(e -> statusLabel.setText("Scan cancelled"));
+        run(task);
+    }
+
+    /** Select all but the first (oldest) file of every group */
+    private void selectCopies() {
+        table.getSelectionModel().clearSelection();
+        for (int i = 0; i < rows.size(); i++) {
+            Row r = rows.get(i);
+            if (!r.group.getFiles().get(0).equals(r.path)) table.getSelectionModel().select(i);
+        }
+    }
+
+    private void resolveSelected(DuplicateFinder.Action action) {
+        if (user == null || !user.isAdmin()) return;
+        List<Row> selected = new ArrayList<>(table.getSelectionModel().getSelectedItems());
+        if (selected.isEmpty()) {
+            statusLabel.setText("Select the copies to remove first");
+            return;
+        }
+
+        // The first unselected file of each group is kept; a fully selected group is skipped
+        Map<DuplicateFinder.Group, List<Path>> byGroup = new LinkedHashMap<>();
+        for (Row r : selected) byGroup.computeIfAbsent(r.group, g -> new ArrayList<>()).add(r.path);
+        Map<DuplicateFinder.Group, Path> keepers = new HashMap<>();
+        List<String> skipped = new ArrayList<>();
+        for (Map.Entry<DuplicateFinder.Group, List<Path>> e : byGroup.entrySet()) {
+            Path keeper = e.getKey().getFiles().stream()
+                    .filter(p -> !e.getValue().contains(p))
+                    .findFirst().orElse(null);
+            if (keeper == null) {
+                skipped.add(e.getKey().getFiles().get(0).getFileName() + ": every copy selected, leave one unselected");
+            } else {
+                keepers.put(e.getKey(), keeper);
+            }
+        }
+        int count = keepers.keySet().stream().mapToInt(g -> byGroup.get(g).size()).sum();
+        if (count == 0) {
+            statusLabel.setText(skipped.get(0));
+            return;
+        }
+
+        String verb = action == DuplicateFinder.Action.DELETE ? "Delete" : "Replace";
+        // Same choice as the main window's delete: permanent, or the trash (purged in the background)
+        ButtonType okButton = new ButtonType(verb, ButtonBar.ButtonData.OK_DONE);
+        ButtonType quickButton = new ButtonType("Quick Delete", ButtonBar.ButtonData.OTHER);
+        Alert confirm = action == DuplicateFinder.Action.DELETE
+                ? new Alert(Alert.AlertType.CONFIRMATION, "", okButton, quickButton, ButtonType.CANCEL)
+                : new Alert(Alert.AlertType.CONFIRMATION, "", okButton, ButtonType.CANCEL);
+        confirm.initOwner(stage);
+        confirm.setTitle("Remove Duplicates");
+        confirm.setHeaderText(verb + " " + count + " duplicate file(s)?");
+        confirm.setContentText(action == DuplicateFinder.Action.DELETE
+                ? "One copy of each file is kept. This action cannot be undone.\n"
+                        + "Quick Delete moves the copies to the trash instantly and purges them in the background."
+                : "Each selected file becomes a hard link to the copy that is kept, so editing one changes all of them.");
+        Optional<ButtonType> answer = confirm.showAndWait();
+        if (answer.isEmpty() || answer.get() == ButtonType.CANCEL) return;
+        DeleteEngine.Mode deleteMode = answer.get() == quickButton ? DeleteEngine.Mode.TRASH : DeleteEngine.Mode.PERMANENT;
+
+        int userId = user.getUserId();
+        Task<List<String>> task = new Task<>() {
+            private final Set<Path> done = new HashSet<>();
+
+            @Override
+            protected List<String> call() {
+                List<String> errors = new ArrayList<>(skipped);
+                List<ActivityLog> audit = new ArrayList<>();
+                int processed = 0;
+                try {
+                    for (Map.Entry<DuplicateFinder.Group, Path> e : keepers.entrySet()) {
+                        if (isCancelled()) break;
+                        Path keeper = e.getValue();
+                        DuplicateFinder.ActionResult r = DuplicateFinder.resolve(e.getKey(), keeper,
+                                byGroup.get(e.getKey()), action, deleteMode);
+                        for (Path p : r.getCompleted()) {
+                            done.add(p);
+                            String details = action == DuplicateFinder.Action.HARDLINK
+                                    ? "Duplicate replaced with hard link to " + keeper
+                                    : r.getTrashed().contains(p)
+                                            ? "Duplicate deleted by admin (moved to trash, purged in background), kept " + keeper
+                                            : "Duplicate deleted by admin, kept " + keeper;
+                            audit.add(new ActivityLog(userId, String.valueOf(p.getFileName()), p.toString(),
+                                    action == DuplicateFinder.Action.DELETE ? "DELETE" : "HARDLINK", details));
+                        }
+                        errors.addAll(r.getErrors());
+                        processed += byGroup.get(e.getKey()).size();
+                        updateProgress(processed, count);
+                        updateMessage(verb + "... " + processed + " / " + count);
+                    }
+                } finally {
+                    // Audit whatever was changed, even if cancelled part way
+                    if (!audit.isEmpty()) activityLogDAO.logActivities(audit);
+                }
+                return errors;
+            }
+
+            @Override
+            protected void succeeded() {
+                rows.removeIf(r -> done.contains(r.path));
+                // A group with a single file left is no longer a duplicate
+                Map<DuplicateFinder.Group, Long> left = new HashMap<>();
+                for (Row r : rows) left.merge(r.group, 1L, Long::sum);
+                rows.removeIf(r -> left.get(r.group) < 2);
+                List<String> errors = getValue();
+                statusLabel.setText(done.size() + " duplicate(s) " + (action == DuplicateFinder.Action.DELETE
+                        ? "deleted" : "linked") + (errors.isEmpty() ? "" : ", " + errors.size() + " skipped"));
+                if (!errors.isEmpty()) showErrors(errors);
+            }
+        };
+        task.setOnFailed(e -> statusLabel.setText("Failed: " + task.getException().getMessage()));
+        run(task);
+    }
+
+    private void run(Task<?> task) {
+        running = task;
+        progressBar.progressProperty().bind(task.progressProperty());
+        progressBar.setVisible(true);
+        task.messageProperty().addListener((obs, o, msg) -> {
+            if (task == running) statusLabel.setText(msg);
+        });
+        task.runningProperty().addListener((obs, was, isRunning) -> {
+            if (!isRunning && task == running) {
+                running = null;
+                progressBar.progressProperty().unbind();
+                progressBar.setVisible(false);
+            }
+        });
+        executor.submit(task);
+    }
+
+    private void showErrors(List<String> errors) {
+        TextArea textArea = new TextArea(String.join("\n", errors));
+        textArea.setEditable(false);
+        textArea.setWrapText(true);
+        textArea.setPrefSize(500, 250);
+        Alert alert = new Alert(Alert.AlertType.WARNING);
+        alert.initOwner(stage);
+        alert.setTitle("Errors");
+        alert.setHeaderText("Some files were not changed (" + errors.size() + ")");
+        alert.getDialogPane().setContent(textArea);
+        alert.show();
+    }
+
+    private static String formatSize(long bytes) {
+        if (bytes < 1024) return bytes + " B";
+        if (bytes < 1024 * 1024) return String.format("%.1f KB", bytes / 1024.0);
+        if (bytes < 1024L * 1024 * 1024) return String.format("%.1f MB", bytes / (1024.0 * 1024));
+        return String.format("%.2f GB", bytes / (1024.0 * 1024 * 1024));
+    }
+
+    private static TableColumn<Row, String> column(String title, double width, Function<Row, String> value) {
+        TableColumn<Row, String> col = new TableColumn<>(title);
+        col.setPrefWidth(width);
+        col.setSortable(false);
+        col.setCellValueFactory(cd -> new SimpleStringProperty(value.apply(cd.getValue())));
+        return col;
+    }
+}
@@ -2,38 +2,107 @@ package controllers;
 
 import java.io.*;
 import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Instant;
 import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
 
+/**
+ * One entry of the file table: a view of one row of a FileItemStore. Nothing
+ * is copied out of the store, so getName(), getPath() and getModified() build
+ * their value on each call; getModified() is meant for occasional use, the
+ * table formats getModifiedMillis() only for the rows it shows.
+ */
 public class FileItem {
-    private final Path path;
-    private final String name;
-    private final long size;
-    private final String modified;
-    private final String type;
+    public static final DateTimeFormatter MODIFIED_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+    private static final String FOLDER = "Folder";
+    private static final String FILE = "File";
+
+    private final FileItemStore store;
+    private final int row;
+    private final int nameHash;
 
     public FileItem(Path p) {
-    	if (p == null) throw new IllegalArgumentException("Path cannot be null");
-        this.path = p;
-        this.name = p.getFileName().toString();
-        long s;
-        try { s = Files.size(p); } catch (IOException e) { s = 0; }
-        this.size = s;
-        String mod;
+        this(p, readAttributes(p));
+    }
+
+    /**
+     * Build from attributes already read by the caller (one syscall per entry)
+     */
+    public FileItem(Path p, BasicFileAttributes attrs) {
+        this(single(p).add(fileName(p), attrs));
+    }
+
+    /**
+     * Build from values stored earlier, e.g. in the metadata index
+     */
+    public FileItem(Path p, long size, long modifiedMillis, boolean directory) {
+        this(single(p).add(fileName(p), size, modifiedMillis, directory));
+    }
+
+    FileItem(FileItemStore store, int row, int nameHash) {
+        this.store = store;
+        this.row = row;
+        this.nameHash = nameHash;
+    }
+
+    private FileItem(FileItemStore.Builder one) {
+        FileItem built = one.build().get(0);
+        this.store = built.store;
+        this.row = built.row;
+        this.nameHash = built.nameHash;
+    }
+
+    private static FileItemStore.Builder single(Path p) {
+        if (p == null) throw new IllegalArgumentException("Path cannot be null");
+        return new FileItemStore.Builder(p.getParent(), 1);
+    }
+
+    private static String fileName(Path p) {
+        Path name = p.getFileName();
+        return name != null ? name.toString() : p.toString();
+    }
+
+    private static BasicFileAttributes readAttributes(Path p) {
+        if (p == null) return null;
         try {
-            mod = Files.getLastModifiedTime(p).toInstant()
-                    .atZone(ZoneId.systemDefault())
-                    .format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm"));
+            return Files.readAttributes(p, BasicFileAttributes.class);
         } catch (IOException e) {
-            mod = "";
+            return null;
         }
-        this.modified = mod;
-        this.type = Files.isDirectory(p) ? "Folder" : "File";
     }
 
-    public Path getPath() { return path; }
-    public String getName() { return name; }
-    public long getSize() { return size; }
-    public String getModified() { return modified; }
-    public String getType() { return type; }
-}
\ No newline at end of file
+    public Path getPath() {
+        Path dir = store.getDirectory();
+        return dir != null ? dir.resolve(getName()) : Paths.get(getName());
+    }
+
+    public String getName() { return store.name(row); }
+    public long getSize() { return store.size(row); }
+    public long getModifiedMillis() { return store.modified(row); }
+    public String getType() { return isDirectory() ? FOLDER : FILE; }
+    public boolean isDirectory() { return store.isDirectory(row); }
+
+    /** Formatted modification time, or "" if the attributes could not be read */
+    public String getModified() {
+        return hasAttributes() ? formatModified(getModifiedMillis()) : "";
+    }
+
+    public boolean hasAttributes() {
+        return !store.isUnknown(row);
+    }
+
+    public static String formatModified(long millis) {
+        return Instant.ofEpochMilli(millis).atZone(ZoneId.systemDefault()).format(MODIFIED_FORMAT);
+    }
+
+    /** The folder this entry is in, shared by every entry of its store */
+    Path getDirectory() {
+        return store.getDirectory();
+    }
+
+    /** getName().hashCode(), without decoding the name */
+    int nameHash() {
+        return nameHash;
+    }
+}
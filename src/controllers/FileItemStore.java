@@ -0,0 +1,150 @@
+package controllers;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Column storage for a block of entries of one directory: sizes and mtimes in
+ * long arrays, the directory and unknown-attributes flags in bit sets and all
+ * names UTF-8 encoded back to back in one byte array. FileItems are small views
+ * of one row, so a listing costs a few dozen bytes per entry instead of a Path,
+ * a name String and a formatted date per entry.
+ *
+ * A store is immutable once built and can be handed between threads. Listings
+ * build one store per chunk; rows that are no longer shown are freed with the
+ * last FileItem that refers to their store.
+ */
+public final class FileItemStore {
+    private final Path directory;
+    private final long[] sizes;
+    private final long[] modified;
+    private final BitSet directories;
+    private final BitSet unknown;
+    private final byte[] names;
+    private final int[] nameOffsets;
+
+    private FileItemStore(Builder b) {
+        int n = b.count;
+        directory = b.directory;
+        sizes = Arrays.copyOf(b.sizes, n);
+        modified = Arrays.copyOf(b.modified, n);
+        directories = b.directories;
+        unknown = b.unknown;
+        names = Arrays.copyOf(b.names, b.nameLength);
+        nameOffsets = Arrays.copyOf(b.nameOffsets, n + 1);
+    }
+
+    /** The folder every entry of this store is in */
+    public Path getDirectory() {
+        return directory;
+    }
+
+    public int size() {
+        return sizes.length;
+    }
+
+    String name(int row) {
+        int from = nameOffsets[row];
+        return new String(names, from, nameOffsets[row + 1] - from, StandardCharsets.UTF_8);
+    }
+
+    long size(int row) {
+        return sizes[row];
+    }
+
+    long modified(int row) {
+        return modified[row];
+    }
+
+    boolean isDirectory(int row) {
+        return directories.get(row);
+    }
+
+    /** True when the attributes could not be read, so size and mtime are meaningless */
+    boolean isUnknown(int row) {
+        return unknown.get(row);
+    }
+
+    /**
+     * Collects rows of one directory; build() returns the FileItems. Not thread-safe.
+     */
+    public static final class Builder {
+        private final Path directory;
+        private long[] sizes;
+        private long[] modified;
+        private final BitSet directories = new BitSet();
+        private final BitSet unknown = new BitSet();
+        private byte[] names;
+        private int[] nameOffsets;
+        private int[] hashes;
+        private int count;
+        private int nameLength;
+
+        public Builder(Path directory, int expectedCount) {
+            this.directory = directory;
+            int capacity = Math.max(expectedCount, 4);
+            sizes = new long[capacity];
+            modified = new long[capacity];
+            hashes = new int[capacity];
+            nameOffsets = new int[capacity + 1];
+            names = new byte[capacity * 16];
+        }
+
+        public int size() {
+            return count;
+        }
+
+        public Builder add(String name, long size, long modifiedMillis, boolean directory) {
+            return add(name, size, modifiedMillis, directory, false);
+        }
+
+        /**
+         * Add an entry from attributes read by the caller; null attributes mean
+         * the entry exists but could not be read
+         */
+        public Builder add(String name, BasicFileAttributes attrs) {
+            if (attrs == null) return add(name, 0, 0, false, true);
+            return add(name, attrs.size(), attrs.lastModifiedTime().toMillis(), attrs.isDirectory(), false);
+        }
+
+        private Builder add(String name, long size, long modifiedMillis, boolean dir, boolean attrsUnknown) {
+            if (count == sizes.length) {
+                int capacity = count * 2;
+                sizes = Arrays.copyOf(sizes, capacity);
+                modified = Arrays.copyOf(modified, capacity);
+                hashes = Arrays.copyOf(hashes, capacity);
+                nameOffsets = Arrays.copyOf(nameOffsets, capacity + 1);
+            }
+            byte[] encoded = name.getBytes(StandardCharsets.UTF_8);
+            if (nameLength + encoded.length > names.length) {
+                names = Arrays.copyOf(names, Math.max(names.length * 2, nameLength + encoded.length));
+            }
+            System.arraycopy(encoded, 0, names, nameLength, encoded.length);
+            nameLength += encoded.length;
+
+            sizes[count] = size;
+            modified[count] = modifiedMillis;
+            hashes[count] = name.hashCode();
+            if (dir) directories.set(count);
+            if (attrsUnknown) unknown.set(count);
+            count++;
+            nameOffsets[count] = nameLength;
+            return this;
+        }
+
+        /** The entries added so far, in order; the builder should not be used afterwards */
+        public List<FileItem> build() {
+            FileItemStore store = new FileItemStore(this);
+            List<FileItem> items = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                items.add(new FileItem(store, i, hashes[i]));
+            }
+            return items;
+        }
+    }
+}
@@ -0,0 +1,204 @@
+package controllers;
+
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Backing list for the file table with a path index, so single entries can be
+ * inserted, replaced or removed without scanning the whole list.
+ * Row order is not meaningful (the table sorts through a SortedList), which lets
+ * removal swap the last row into the freed slot.
+ *
+ * The index is an open-addressing table of row positions keyed by folder and
+ * name, so it holds no Path or boxed Integer per entry; names are only decoded
+ * to compare entries whose name hashes are equal.
+ * Must only be used from the FX thread.
+ */
+public class FileListModel {
+    private final ObservableList<FileItem> items = FXCollections.observableArrayList();
+    /** Row position + 1 per slot, 0 when empty; linear probing, at most half full */
+    private int[] slots = new int[16];
+    private int used;
+    /** Rows being added, at positions from pendingBase on, while items is not updated yet */
+    private List<FileItem> pending = List.of();
+    private int pendingBase = Integer.MAX_VALUE;
+
+    public ObservableList<FileItem> getItems() {
+        return items;
+    }
+
+    public int size() {
+        return items.size();
+    }
+
+    public FileItem find(Path path) {
+        Path name = path.getFileName();
+        if (name == null) return null;
+        int slot = lookup(path.getParent(), name.toString());
+        return slot >= 0 ? items.get(slots[slot] - 1) : null;
+    }
+
+    public void setAll(Collection<FileItem> newItems) {
+        clearIndex(newItems.size());
+        List<FileItem> list = newItems instanceof List<FileItem> l ? l : new ArrayList<>(newItems);
+        pending = list;
+        pendingBase = 0;
+        try {
+            for (int i = 0; i < list.size(); i++) {
+                FileItem item = list.get(i);
+                if (lookup(item.getDirectory(), item.getName()) >= 0) {
+                    // Duplicate paths in the input; fall back to upserting one by one
+                    clearIndex(0);
+                    pending = List.of();
+                    pendingBase = Integer.MAX_VALUE;
+                    items.clear();
+                    addAll(list);
+                    return;
+                }
+                insert(item.nameHash(), i);
+            }
+        } finally {
+            pending = List.of();
+            pendingBase = Integer.MAX_VALUE;
+        }
+        items.setAll(list);
+    }
+
+    /**
+     * Append entries, replacing any that are already present by path
+     */
+    public void addAll(Collection<FileItem> newItems) {
+        List<FileItem> appended = new ArrayList<>(newItems.size());
+        int base = items.size();
+        pending = appended;
+        pendingBase = base;
+        try {
+            for (FileItem item : newItems) {
+                int slot = lookup(item.getDirectory(), item.getName());
+                int i = slot >= 0 ? slots[slot] - 1 : -1;
+                if (i >= base) {
+                    appended.set(i - base, item);
+                } else if (i >= 0) {
+                    items.set(i, item);
+                } else {
+                    appended.add(item);
+                    insert(item.nameHash(), base + appended.size() - 1);
+                }
+            }
+        } finally {
+            pending = List.of();
+            pendingBase = Integer.MAX_VALUE;
+        }
+        items.addAll(appended);
+    }
+
+    public void upsert(FileItem item) {
+        int slot = lookup(item.getDirectory(), item.getName());
+        if (slot >= 0) {
+            items.set(slots[slot] - 1, item);
+        } else {
+            insert(item.nameHash(), items.size());
+            items.add(item);
+        }
+    }
+
+    public boolean remove(Path path) {
+        Path name = path.getFileName();
+        if (name == null) return false;
+        int slot = lookup(path.getParent(), name.toString());
+        if (slot < 0) return false;
+        int i = slots[slot] - 1;
+        int last = items.size() - 1;
+        if (i != last) {
+            // The last row moves into the freed position
+            FileItem moved = items.get(last);
+            slots[lookup(moved.getDirectory(), moved.getName())] = i + 1;
+            items.set(i, moved);
+        }
+        deleteSlot(slot);
+        items.remove(last);
+        return true;
+    }
+
+    public void clear() {
+        clearIndex(0);
+        items.clear();
+    }
+
+    // ===== INDEX =====
+
+    private FileItem at(int position) {
+        return position < pendingBase ? items.get(position) : pending.get(position - pendingBase);
+    }
+
+    /** Slot holding the entry for dir/name, or -1 */
+    private int lookup(Path dir, String name) {
+        int hash = name.hashCode();
+        int mask = slots.length - 1;
+        for (int s = home(hash, mask); slots[s] != 0; s = (s + 1) & mask) {
+            FileItem candidate = at(slots[s] - 1);
+            if (candidate.nameHash() == hash && candidate.getName().equals(name)
+                    && Objects.equals(candidate.getDirectory(), dir)) {
+                return s;
+            }
+        }
+        return -1;
+    }
+
+    private void insert(int hash, int position) {
+        if ((used + 1) * 2 > slots.length) rehash(slots.length * 2);
+        int mask = slots.length - 1;
+        int s = home(hash, mask);
+        while (slots[s] != 0) s = (s + 1) & mask;
+        slots[s] = position + 1;
+        used++;
+    }
+
+    /** Empty a slot and shift later entries of the probe run back, so lookups never stop early */
+    private void deleteSlot(int slot) {
+        int mask = slots.length - 1;
+        slots[slot] = 0;
+        used--;
+        int hole = slot;
+        for (int s = (slot + 1) & mask; slots[s] != 0; s = (s + 1) & mask) {
+            int h = home(at(slots[s] - 1).nameHash(), mask);
+            // Move the entry unless its home lies cyclically in (hole, s]
+            boolean stays = hole <= s ? (h > hole && h <= s) : (h > hole || h <= s);
+            if (!stays) {
+                slots[hole] = slots[s];
+                slots[s] = 0;
+                hole = s;
+            }
+        }
+    }
+
+    private void rehash(int capacity) {
+        int[] old = slots;
+        slots = new int[capacity];
+        int mask = capacity - 1;
+        for (int v : old) {
+            if (v == 0) continue;
+            int s = home(at(v - 1).nameHash(), mask);
+            while (slots[s] != 0) s = (s + 1) & mask;
+            slots[s] = v;
+        }
+    }
+
+    private void clearIndex(int expected) {
+        int capacity = 16;
+        while (capacity < expected * 2) capacity <<= 1;
+        slots = new int[capacity];
+        used = 0;
+    }
+
+    private static int home(int hash, int mask) {
+        // Spread the bits; String hashes of similar names differ mostly in the low bits
+        int h = hash * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & mask;
+    }
+}
@@ -0,0 +1,214 @@
+package controllers;
+
+import javafx.beans.property.ReadOnlyStringWrapper;
+import javafx.concurrent.Task;
+import javafx.scene.control.Label;
+import javafx.scene.control.TreeItem;
+import javafx.scene.control.TreeTableColumn;
+import javafx.scene.control.TreeTableView;
+import services.DirectoryListingService;
+import services.TaskRunner;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Folder hierarchy next to the file table. A folder's subfolders are read on
+ * a background thread the first time it is expanded (and again on every later
+ * expand, so the tree catches up with changes made elsewhere). Selecting a
+ * folder opens it through the onOpen callback.
+ * Must only be used from the FX thread.
+ */
+public class FolderTree {
+    private final TreeTableView<FileItem> view;
+    private final Consumer<Path> onOpen;
+    private final TaskRunner loader = TaskRunner.root().child("folder-tree");
+    private Path root;
+    // Folder to select once the nodes leading to it have loaded
+    private Path pendingReveal;
+    private boolean revealing;
+
+    public FolderTree(TreeTableView<FileItem> view, Consumer<Path> onOpen) {
+        this.view = view;
+        this.onOpen = onOpen;
+
+        view.getColumns().add(column("📁 Folder", 200, FileItem::getName));
+        view.getColumns().add(column("📅 Modified", 130, FileItem::getModified));
+        view.setColumnResizePolicy(TreeTableView.CONSTRAINED_RESIZE_POLICY_FLEX_LAST_COLUMN);
+        view.setPlaceholder(new Label("No folder"));
+        view.getSelectionModel().selectedItemProperty().addListener((obs, oldSel, newSel) -> {
+            if (!revealing && newSel != null && newSel.getValue() != null) {
+                onOpen.accept(newSel.getValue().getPath());
+            }
+        });
+    }
+
+    public Path getRoot() {
+        return root;
+    }
+
+    /**
+     * Show the hierarchy below dir
+     */
+    public void setRoot(Path dir) {
+        root = dir;
+        pendingReveal = null;
+        FolderItem item = new FolderItem(new FileItem(dir));
+        view.setRoot(item);
+        item.setExpanded(true);
+    }
+
+    /**
+     * Expand the tree down to dir and select it without firing onOpen.
+     * A folder outside the current root becomes the new root.
+     */
+    public void reveal(Path dir) {
+        if (root == null || !dir.startsWith(root)) {
+            setRoot(dir);
+        }
+        pendingReveal = dir;
+        continueReveal();
+    }
+
+    /**
+     * Re-read the subfolders of dir if its node has been loaded
+     */
+    public void refresh(Path dir) {
+        FolderItem item = find(dir);
+        if (item != null && item.loaded) item.load();
+    }
+
+    public void shutdown() {
+        loader.close();
+    }
+
+    private void continueReveal() {
+        if (pendingReveal == null || view.getRoot() == null) return;
+        FolderItem node = (FolderItem) view.getRoot();
+        for (Path part : root.relativize(pendingReveal)) {
+            if (part.toString().isEmpty()) break;
+            if (!node.loaded) {
+                // Picked up again when this node's children arrive
+                node.setExpanded(true);
+                if (!node.loading) node.load();
+                return;
+            }
+            FolderItem child = node.child(node.path().resolve(part));
+            if (child == null) {
+                pendingReveal = null;
+                select(node);
+                return;
+            }
+            node.setExpanded(true);
+            node = child;
+        }
+        pendingReveal = null;
+        select(node);
+    }
+
+    private void select(TreeItem<FileItem> item) {
+        revealing = true;
+        try {
+            view.getSelectionModel().select(item);
+            int row = view.getRow(item);
+            if (row >= 0) view.scrollTo(row);
+        } finally {
+            revealing = false;
+        }
+    }
+
+    private FolderItem find(Path dir) {
+        if (root == null || !dir.startsWith(root) || view.getRoot() == null) return null;
+        FolderItem node = (FolderItem) view.getRoot();
+        for (Path part : root.relativize(dir)) {
+            if (part.toString().isEmpty()) break;
+            node = node.child(node.path().resolve(part));
+            if (node == null) return null;
+        }
+        return node;
+    }
+
+    private class FolderItem extends TreeItem<FileItem> {
+        boolean loaded;
+        boolean loading;
+
+        FolderItem(FileItem folder) {
+            super(folder);
+            expandedProperty().addListener((obs, was, expanded) -> {
+                if (expanded && !loading) load();
+            });
+        }
+
+        Path path() {
+            return getValue().getPath();
+        }
+
+        FolderItem child(Path path) {
+            for (TreeItem<FileItem> c : getChildren()) {
+                if (c.getValue().getPath().equals(path)) return (FolderItem) c;
+            }
+            return null;
+        }
+
+        @Override
+        public boolean isLeaf() {
+            // Unknown until loaded, so every folder starts out expandable
+            return loaded && getChildren().isEmpty();
+        }
+
+        void load() {
+            loading = true;
+            Path dir = path();
+            Task<List<FileItem>> task = new Task<>() {
+                @Override
+                protected List<FileItem> call() throws Exception {
+                    return DirectoryListingService.listFolders(dir);
+                }
+            };
+            task.setOnSucceeded(e -> {
+                // Reuse existing nodes so expanded subtrees stay expanded
+                Map<Path, FolderItem> existing = new HashMap<>();
+                for (TreeItem<FileItem> c : getChildren()) existing.put(c.getValue().getPath(), (FolderItem) c);
+                List<TreeItem<FileItem>> children = new ArrayList<>();
+                for (FileItem folder : task.getValue()) {
+                    FolderItem old = existing.get(folder.getPath());
+                    if (old != null) {
+                        old.setValue(folder);
+                        children.add(old);
+                    } else {
+                        children.add(new FolderItem(folder));
+                    }
+                }
+                revealing = true;
+                try {
+                    getChildren().setAll(children);
+                } finally {
+                    revealing = false;
+                }
+                loaded = true;
+                loading = false;
+                continueReveal();
+            });
+            task.setOnFailed(e -> {
+                loaded = true;
+                loading = false;
+                getChildren().clear();
+                continueReveal();
+            });
+            loader.submit(task);
+        }
+    }
+
+    private static TreeTableColumn<FileItem, String> column(String title, double width,
+                                                            Function<FileItem, String> value) {
+        TreeTableColumn<FileItem, String> col = new TreeTableColumn<>(title);
+        col.setPrefWidth(width);
+        col.setCellValueFactory(cd -> new ReadOnlyStringWrapper(
+                cd.getValue().getValue() == null ? "" : value.apply(cd.getValue().getValue())));
+        return col;
+    }
+}
@@ -1,11 +1,14 @@
 package controllers;
 
 import database.UserDAO;
+import javafx.application.Platform;
 import javafx.fxml.FXML;
 import javafx.scene.control.*;
 import javafx.scene.layout.VBox;
 import models.User;
 import models.UserRole;
+import utils.PasswordUtils;
+import java.util.concurrent.RejectedExecutionException;
 
 public class LoginController {
     @FXML private TextField usernameField;
@@ -65,20 +68,28 @@ public class LoginController {
             return;
         }
         
-        try {
-            User user = userDAO.authenticateUser(username, password);
-            if (user != null) {
-                showStatus("Login successful! Welcome " + user.getUsername(), "success");
-                if (callback != null) {
-                    callback.onLoginSuccess(user);
-                }
-            } else {
-                showStatus("Invalid username or password", "error");
-                passwordField.clear();
-            }
-        } catch (Exception e) {
-            showStatus("Database connection error: " + e.getMessage(), "error");
-        }
+        // Hashing is deliberately slow, so it runs on the bounded hash pool
+        loginButton.setDisable(true);
+        PasswordUtils.runHashing(() -> userDAO.authenticateUser(username, password))
+                .whenComplete((user, error) -> Platform.runLater(() -> {
+                    loginButton.setDisable(false);
+                    if (error != null) {
+                        Throwable cause = error.getCause() != null ? error.getCause() : error;
+                        if (cause instanceof RejectedExecutionException) {
+                            showStatus("Too many sign-in attempts in progress. Please try again.", "error");
+                        } else {
+                            showStatus("Database connection error: " + cause.getMessage(), "error");
+                        }
+                    } else if (user != null) {
+                        showStatus("Login successful! Welcome " + user.getUsername(), "success");
+                        if (callback != null) {
+                            callback.onLoginSuccess(user);
+                        }
+                    } else {
+                        showStatus("Invalid username or password", "error");
+                        passwordField.clear();
+                    }
+                }));
     }
     
     @FXML
@@ -110,46 +121,57 @@ public class LoginController {
             return;
         }
         
+        UserRole role;
         try {
-            UserRole role = UserRole.valueOf(roleStr);
-            
-            int result = userDAO.createUser(username, password, role, email.isEmpty() ? null : email);
-            
-            switch (result) {
-                case 0: // Success
-                    showStatus("Account created successfully! You can now sign in.", "success");
-                    toggleSignUp(); // Switch back to login mode
-                    usernameField.setText(username);
-                    passwordField.clear();
-                    break;
-                    
-                case 1: // Username exists
-                    showStatus("Username '" + username + "' already exists. Please choose a different username.", "error");
-                    usernameField.selectAll();
-                    usernameField.requestFocus();
-                    break;
-                    
-                case 2: // Invalid password
-                    showStatus("Password does not meet requirements (minimum 4 characters)", "error");
-                    passwordField.clear();
-                    passwordField.requestFocus();
-                    break;
-                    
-                case 3: // Database error
-                    showStatus("Database error occurred. Please try again or contact support.", "error");
-                    break;
-                    
-                default:
-                    showStatus("Unknown error occurred. Please try again.", "error");
-                    break;
-            }
-            
+            role = UserRole.valueOf(roleStr);
         } catch (IllegalArgumentException e) {
             showStatus("Invalid user role selected", "error");
-        } catch (Exception e) {
-            System.err.println("Unexpected error during sign up: " + e.getMessage());
-            e.printStackTrace();
-            showStatus("Unexpected error: " + e.getMessage(), "error");
+            return;
+        }
+        
+        loginButton.setDisable(true);
+        PasswordUtils.runHashing(() -> userDAO.createUser(username, password, role, email.isEmpty() ? null : email))
+                .whenComplete((result, error) -> Platform.runLater(() -> {
+                    loginButton.setDisable(false);
+                    if (error != null) {
+                        Throwable cause = error.getCause() != null ? error.getCause() : error;
+                        System.err.println("Unexpected error during sign up: " + cause.getMessage());
+                        cause.printStackTrace();
+                        showStatus("Unexpected error: " + cause.getMessage(), "error");
+                    } else {
+                        showSignUpResult(result, username);
+                    }
+                }));
+    }
+    
+    private void showSignUpResult(int result, String username) {
+        switch (result) {
+            case 0: // Success
+                showStatus("Account created successfully! You can now sign in.", "success");
+                toggleSignUp(); // Switch back to login mode
+                usernameField.setText(username);
+                passwordField.clear();
+                break;
+                
+            case 1: // Username exists
+                showStatus("Username '" + username + "' already exists. Please choose a different username.", "error");
+                usernameField.selectAll();
+                usernameField.requestFocus();
+                break;
+                
+            case 2: // Invalid password
+                showStatus("Password does not meet requirements (minimum 4 characters)", "error");
+                passwordField.clear();
+                passwordField.requestFocus();
+                break;
+                
+            case 3: // Database error
+                showStatus("Database error occurred. Please try again or contact support.", "error");
+                break;
+                
+            default:
+                showStatus("Unknown error occurred. Please try again.", "error");
+                break;
         }
     }
     
@@ -1,12 +1,17 @@
 package controllers;
 
-import java.util.zip.ZipOutputStream;
-import java.util.zip.ZipEntry;
 import database.ActivityLogDAO;
 import database.DatabaseConnection;
+import database.PoolMetrics;
 import database.UserDAO;
+import javafx.animation.KeyFrame;
+import javafx.animation.PauseTransition;
+import javafx.animation.Timeline;
 import javafx.application.Platform;
 import javafx.collections.*;
+import javafx.concurrent.Task;
+import javafx.concurrent.WorkerStateEvent;
+import javafx.event.EventHandler;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Parent;
@@ -16,11 +21,30 @@ import javafx.scene.input.*;
 import javafx.scene.layout.BorderPane;
 import javafx.scene.layout.VBox;
 import javafx.stage.*;
+import javafx.collections.transformation.FilteredList;
 import javafx.collections.transformation.SortedList;
 import javafx.scene.image.*;
+import javafx.util.Duration;
 import models.ActivityLog;
 import models.User;
 import models.UserRole;
+import services.ContentIndex;
+import services.ContentSearchService;
+import services.DeleteEngine;
+import services.DirectoryListingService;
+import services.FilePreviewService;
+import services.FileTransferEngine;
+import services.ListingCache;
+import services.MetadataIndex;
+import services.PreviewCache;
+import services.ZipCompressor;
+import services.NameSearchService;
+import services.StartupPipeline;
+import services.TaskRunner;
+import services.WatchRegistry;
+import utils.Metrics;
+import utils.PasswordUtils;
+import utils.StartupTimings;
 import java.nio.file.attribute.BasicFileAttributes;
 
 import java.awt.Desktop;
@@ -28,15 +52,30 @@ import java.io.*;
 import java.nio.file.*;
 import java.time.ZoneId;
 import java.util.*;
-import java.util.concurrent.Executors;
+import java.util.concurrent.Callable;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 
 public class MainController {
     @FXML private TableView<FileItem> table;
+    @FXML private TableColumn<FileItem, Long> modifiedColumn;
     @FXML private TextField searchField;
+    @FXML private ToggleButton contentSearchToggle;
+    @FXML private ListView<ContentIndex.Hit> contentResults;
     @FXML private Button chooseDir;
+    @FXML private TreeTableView<FileItem> folderTreeView;
+    @FXML private Button backButton;
+    @FXML private Button forwardButton;
+    @FXML private Button upButton;
+    @FXML private Label pathLabel;
     @FXML private TextArea filePreviewArea;
     @FXML private Label statusLabel;
     @FXML private ProgressIndicator progressIndicator;
+    @FXML private Label previewCacheLabel;
+    @FXML private Button cancelJobButton;
+    @FXML private Label databaseStatusLabel;
+    private Timeline poolMonitor;
+    private DiagnosticsView diagnosticsView;
     @FXML private Menu databaseMenu;
     @FXML private MenuItem userMgmtMenuItem;
     @FXML private Label userLabel;
@@ -60,10 +99,68 @@ public class MainController {
 
 
     private boolean isSignUpMode = false;
+    private static final int MAX_HISTORY = 50;
+    private static final int MAX_CONTENT_HITS = 200;
+    private static final Metrics.Timer LISTING_REFRESH = Metrics.timer("listing.refresh");
+    private static final Metrics.Timer LISTING_RECONCILE = Metrics.timer("listing.reconcile");
+    private static final Metrics.Timer OP_CREATE = Metrics.timer("ops.create");
+    private static final Metrics.Timer OP_RENAME = Metrics.timer("ops.rename");
+    private static final Metrics.Timer OP_ADD_TEXT = Metrics.timer("ops.addText");
+    private static final Metrics.Timer OP_OPEN = Metrics.timer("ops.open");
+    private static final Metrics.Timer OP_DUPLICATE = Metrics.timer("ops.duplicate");
+    private static final Metrics.Timer OP_DELETE = Metrics.timer("ops.delete");
+    private static final Metrics.Timer OP_COPY = Metrics.timer("ops.copy");
+    private static final Metrics.Timer OP_MOVE = Metrics.timer("ops.move");
+    private static final Metrics.Timer OP_COMPRESS = Metrics.timer("ops.compress");
+    private static final Metrics.Timer OP_PROPERTIES = Metrics.timer("ops.properties");
+    private static final Metrics.Timer OP_LIST_USERS = Metrics.timer("ops.listUsers");
     
-    private final Path workingDirectory = Paths.get(System.getProperty("user.home"),
-                                                      "Documents", "JavaFXFileManager");
-    private final ObservableList<FileItem> masterList = FXCollections.observableArrayList();
+    private final Path homeDirectory = Paths.get(System.getProperty("user.home"),
+                                                 "Documents", "JavaFXFileManager");
+    // Content search indexes this folder's tree, wherever the table is
+    private final Path contentIndexRoot = ContentSearchService.rootFor(homeDirectory);
+    // Folder shown in the table; changed by navigation
+    private Path workingDirectory = homeDirectory;
+    private final Deque<Path> backHistory = new ArrayDeque<>();
+    private final Deque<Path> forwardHistory = new ArrayDeque<>();
+    private final ListingCache listingCache = new ListingCache();
+    private FolderTree folderTree;
+    private final FileListModel fileList = new FileListModel();
+    private final ObservableList<FileItem> masterList = fileList.getItems();
+    private final FilteredList<FileItem> filteredList = new FilteredList<>(masterList);
+    private final NameSearchService nameSearch = new NameSearchService();
+    private boolean searchIndexDirty = true;
+    private ContentSearchService contentSearch;
+    private final Label contentStatus = new Label("Type to search file contents");
+    // File to select once its folder has been listed (opened from a content hit)
+    private Path pendingSelection;
+    private final FilePreviewService previewService = new FilePreviewService();
+    private final PreviewCache previewCache = new PreviewCache();
+    private Task<FilePreviewService.Page> currentPreview;
+    private FilePreviewService.Page lastPreviewPage;
+    private Path previewPath;
+    // Work started for the signed-in user; closed (and so cancelled) on sign-out
+    private TaskRunner session = TaskRunner.root().child("session");
+    // Jobs run one at a time in submission order; currentJob is the head of the queue
+    private TaskRunner jobs = session.serialChild("file-jobs");
+    // Short file system and database calls in flight, see runIo
+    private int runningIo = 0;
+    private final Deque<Task<?>> jobQueue = new ArrayDeque<>();
+    private Task<?> currentJob;
+    private final DirectoryListingService listingService = new DirectoryListingService();
+    private Task<Integer> currentListing;
+    // One poller for every watched folder; the working directory is watched with its subfolders
+    private final WatchRegistry watchRegistry = new WatchRegistry();
+    private WatchRegistry.Watch directoryWatch;
+    private StartupPipeline startupPipeline;
+    // Shown at once by the next refresh (index snapshot at startup, last listing after sign-out),
+    // then reconciled against the directory in the background
+    private List<FileItem> cachedListing;
+    private boolean listedOnce = false;
+    private MetadataIndex metadataIndex;
+    private Task<MetadataIndex.Diff> currentReconcile;
+    private int watchEvents = 0;
+    private final PauseTransition indexSave = new PauseTransition(Duration.seconds(5));
     
     // Database integration
     private User currentUser;
@@ -76,45 +173,79 @@ public class MainController {
         userDAO = new UserDAO();
         activityLogDAO = new ActivityLogDAO();
 
-        if (!DatabaseConnection.testConnection()) {
-            showAlert("Database Error", "Cannot connect to database. Please check MySQL connection.");
-        }
-
         try {
             Files.createDirectories(workingDirectory);
         } catch (IOException e) {
             showAlert("Error", "Could not create working directory.");
         }
 
-        SortedList<FileItem> sortedList = new SortedList<>(masterList);
+        // Any change to the listing invalidates the search index; it is rebuilt on the next keystroke
+        masterList.addListener((ListChangeListener<FileItem>) c -> searchIndexDirty = true);
+        SortedList<FileItem> sortedList = new SortedList<>(filteredList);
         sortedList.comparatorProperty().bind(table.comparatorProperty());
         table.setItems(sortedList);
         table.getSelectionModel().setSelectionMode(SelectionMode.MULTIPLE);
+        setupModifiedColumn();
 
+        // Finish purging anything a previous session left in the trash
+        DeleteEngine.purgeTrashAsync();
+
+        startPoolMonitor();
         setupContextMenu();
         table.getSelectionModel().selectedItemProperty().addListener((obs, oldSel, newSel) -> {
             if (newSel != null && isLoggedIn) {
-                try {
-                    String content = Files.readString(newSel.getPath());
-                    filePreviewArea.setText(content);
-                    logActivity(newSel.getName(), newSel.getPath().toString(), "ACCESS", "File previewed");
-                } catch (IOException e) {
-                    filePreviewArea.setText("[Failed to read file]");
-                }
+                showPreview(newSel);
             } else {
-                filePreviewArea.clear();
+                clearPreview();
             }
         });
+        setupPreviewPaging();
 
         setupKeyShortcuts();
         if (searchField != null) searchField.textProperty().addListener((obs, o, n) -> filterList(n));
+        setupContentSearch();
         if (chooseDir != null) chooseDir.setOnAction(e -> pickDirectory());
+        if (folderTreeView != null) {
+            folderTree = new FolderTree(folderTreeView, this::changeDirectory);
+            folderTree.setRoot(workingDirectory);
+        }
+        updateNavigation();
 
         // Embedded login/signup form
         setupLoginForm();
         showLoginView();
 
+        metadataIndex = new MetadataIndex(workingDirectory);
+        indexSave.setOnFinished(e -> {
+            if (isLoggedIn && currentListing == null) metadataIndex.saveAsync(masterList);
+        });
         startWatchService();
+        startPipeline();
+        StartupTimings.mark("controller-initialized");
+    }
+
+    // ===== STARTUP =====
+
+    /**
+     * Database, listing and calibration warm up in the background while the
+     * login view is already usable
+     */
+    private void startPipeline() {
+        startupPipeline = new StartupPipeline(workingDirectory, userDAO);
+        startupPipeline.start();
+        startupPipeline.getDatabase().thenAccept(status -> Platform.runLater(() -> onDatabaseReady(status)));
+        startupPipeline.getListing().thenAccept(items -> Platform.runLater(() -> {
+            if (items != null && !listedOnce) cachedListing = items;
+        }));
+    }
+
+    private void onDatabaseReady(StartupPipeline.DatabaseStatus status) {
+        if (status.getState() == StartupPipeline.DatabaseState.UNAVAILABLE) {
+            showAlert("Database Error", "Cannot connect to database. Please check MySQL connection.");
+        } else if (status.getState() == StartupPipeline.DatabaseState.SCHEMA_PROBLEMS) {
+            showAlert("Database Error", "The database schema does not match this version:\n"
+                    + String.join("\n", status.getProblems()));
+        }
     }
 
     private void pickDirectory() {
@@ -179,6 +310,113 @@ public class MainController {
     }
     
 
+    // ===== FILE PREVIEW =====
+    private void showPreview(FileItem item) {
+        cancelPreview();
+        previewPath = item.getPath();
+        lastPreviewPage = null;
+        if ("Folder".equals(item.getType())) {
+            filePreviewArea.setText("[Folder]");
+            return;
+        }
+
+        // Recently viewed and unchanged: no disk I/O at all
+        FilePreviewService.Page cached = previewCache.get(item.getPath(), item.getModifiedMillis(), item.getSize());
+        updatePreviewCacheStats();
+        if (cached != null) {
+            displayPreview(item, cached);
+            return;
+        }
+        filePreviewArea.setText("Loading preview...");
+
+        Task<FilePreviewService.Page> task = previewService.load(item.getPath(), 0, null);
+        currentPreview = task;
+        task.setOnSucceeded(e -> {
+            if (task != currentPreview) return;
+            currentPreview = null;
+            FilePreviewService.Page page = task.getValue();
+            previewCache.put(item.getPath(), item.getModifiedMillis(), item.getSize(), page);
+            updatePreviewCacheStats();
+            displayPreview(item, page);
+        });
+        task.setOnFailed(e -> {
+            if (task != currentPreview) return;
+            currentPreview = null;
+            filePreviewArea.setText("[Failed to read file]");
+        });
+    }
+
+    private void displayPreview(FileItem item, FilePreviewService.Page page) {
+        lastPreviewPage = page;
+        filePreviewArea.setText(page.getText());
+        filePreviewArea.positionCaret(0);
+        logActivity(item.getName(), item.getPath().toString(), "ACCESS", "File previewed");
+    }
+
+    private void updatePreviewCacheStats() {
+        if (previewCacheLabel == null) return;
+        previewCacheLabel.setText(String.format("Preview cache: %d hits / %d misses / %d evicted (%d KB)",
+                previewCache.getHits(), previewCache.getMisses(), previewCache.getEvictions(),
+                previewCache.getUsedBytes() / 1024));
+    }
+
+    /**
+     * Append the next page when the preview is scrolled near its end
+     */
+    private void loadNextPreviewPage() {
+        FilePreviewService.Page page = lastPreviewPage;
+        if (page == null || page.isLast() || currentPreview != null) return;
+        if (page.getNextOffset() >= FilePreviewService.MAX_PREVIEW_BYTES) {
+            filePreviewArea.appendText("\n\n[Preview truncated at "
+                    + FilePreviewService.MAX_PREVIEW_BYTES / (1024 * 1024) + " MB]");
+            lastPreviewPage = null;
+            return;
+        }
+
+        Path path = previewPath;
+        Task<FilePreviewService.Page> task = previewService.load(path, page.getNextOffset(), page.getCharset());
+        currentPreview = task;
+        task.setOnSucceeded(e -> {
+            if (task != currentPreview) return;
+            currentPreview = null;
+            lastPreviewPage = task.getValue();
+            filePreviewArea.appendText(lastPreviewPage.getText());
+        });
+        task.setOnFailed(e -> {
+            if (task != currentPreview) return;
+            currentPreview = null;
+            lastPreviewPage = null;
+        });
+    }
+
+    private void setupPreviewPaging() {
+        // The scroll pane only exists once the TextArea skin is created
+        filePreviewArea.skinProperty().addListener((obs, o, skin) -> hookPreviewScroll());
+        hookPreviewScroll();
+    }
+
+    private void hookPreviewScroll() {
+        if (filePreviewArea.lookup(".scroll-pane") instanceof ScrollPane sp) {
+            sp.vvalueProperty().addListener((obs, o, v) -> {
+                if (v.doubleValue() >= sp.getVmax() * 0.9) loadNextPreviewPage();
+            });
+        }
+    }
+
+    private void cancelPreview() {
+        if (currentPreview != null) {
+            currentPreview.cancel();
+            currentPreview = null;
+        }
+    }
+
+    private void clearPreview() {
+        cancelPreview();
+        previewPath = null;
+        lastPreviewPage = null;
+        filePreviewArea.clear();
+    }
+
     @FXML
     private void handleLogin() {
         String u = usernameField.getText().trim();
@@ -187,20 +425,27 @@ public class MainController {
             showLoginStatus("Please fill in all fields", "error");
             return;
         }
-        try {
-            User user = userDAO.authenticateUser(u, p);
-            if (user != null) {
-                currentUser = user; isLoggedIn = true;
-                logActivity("System", "N/A", "LOGIN", "User logged in");
-                showLoginStatus("Login successful! Welcome " + u, "success");
-                Platform.runLater(this::showMainView);
-            } else {
-                showLoginStatus("Invalid username or password", "error");
-                passwordField.clear();
-            }
-        } catch (Exception ex) {
-            showLoginStatus("Database error: " + ex.getMessage(), "error");
-        }
+        // Hashing is deliberately slow, so it runs on the bounded hash pool
+        showLoginStatus("Signing in...", "info");
+        PasswordUtils.runHashing(() -> userDAO.authenticateUser(u, p))
+                .whenComplete((user, error) -> Platform.runLater(() -> {
+                    if (error != null) {
+                        Throwable cause = error.getCause() != null ? error.getCause() : error;
+                        if (cause instanceof RejectedExecutionException) {
+                            showLoginStatus("Too many sign-in attempts in progress. Please try again.", "error");
+                        } else {
+                            showLoginStatus("Database error: " + cause.getMessage(), "error");
+                        }
+                    } else if (user != null) {
+                        currentUser = user; isLoggedIn = true;
+                        logActivity("System", "N/A", "LOGIN", "User logged in");
+                        showLoginStatus("Login successful! Welcome " + u, "success");
+                        showMainView();
+                    } else {
+                        showLoginStatus("Invalid username or password", "error");
+                        passwordField.clear();
+                    }
+                }));
     }
 
     @FXML
@@ -215,28 +460,30 @@ public class MainController {
             return;
         }
 
-        try {
-            int result = userDAO.createUser(u, p, UserRole.valueOf(r), e.isEmpty() ? null : e);
-
-            switch (result) {
-                case 0:
-                    showLoginStatus("Account created! Please sign in.", "success");
-                    toggleSignUp();
-                    break;
-                case 1:
-                    showLoginStatus("Username already exists.", "error");
-                    break;
-                case 2:
-                    showLoginStatus("Password doesn't meet criteria.", "error");
-                    break;
-                case 3:
-                default:
-                    showLoginStatus("Database error occurred.", "error");
-                    break;
-            }
-        } catch (Exception ex) {
-            showLoginStatus("Unexpected error: " + ex.getMessage(), "error");
-        }
+        PasswordUtils.runHashing(() -> userDAO.createUser(u, p, UserRole.valueOf(r), e.isEmpty() ? null : e))
+                .whenComplete((result, error) -> Platform.runLater(() -> {
+                    if (error != null) {
+                        Throwable cause = error.getCause() != null ? error.getCause() : error;
+                        showLoginStatus("Unexpected error: " + cause.getMessage(), "error");
+                        return;
+                    }
+                    switch (result) {
+                        case 0:
+                            showLoginStatus("Account created! Please sign in.", "success");
+                            toggleSignUp();
+                            break;
+                        case 1:
+                            showLoginStatus("Username already exists.", "error");
+                            break;
+                        case 2:
+                            showLoginStatus("Password doesn't meet criteria.", "error");
+                            break;
+                        case 3:
+                        default:
+                            showLoginStatus("Database error occurred.", "error");
+                            break;
+                    }
+                }));
     }
 
 
@@ -248,31 +495,159 @@ public class MainController {
     private void showLoginStatus(String msg, String type) {
         loginMessage.setText(msg);
     }
+
+    // ===== NAVIGATION =====
+
+    /**
+     * Open a folder in the table and record the current one in the back history
+     */
     private void changeDirectory(Path newDir) {
-        try {
-            Files.createDirectories(newDir);
-            // update workingDirectory via reflection? or make workingDirectory non-final
-        } catch (IOException e) {
-            showAlert("Error","Cannot change directory.");
+        navigateTo(newDir, true);
+    }
+
+    @FXML
+    private void handleBack() {
+        if (backHistory.isEmpty()) return;
+        Path previous = workingDirectory;
+        if (navigateTo(backHistory.pop(), false)) forwardHistory.push(previous);
+        updateNavigation();
+    }
+
+    @FXML
+    private void handleForward() {
+        if (forwardHistory.isEmpty()) return;
+        Path previous = workingDirectory;
+        if (navigateTo(forwardHistory.pop(), false)) backHistory.push(previous);
+        updateNavigation();
+    }
+
+    @FXML
+    private void handleUp() {
+        Path parent = workingDirectory.getParent();
+        if (parent != null) changeDirectory(parent);
+    }
+
+    /**
+     * Switch the table, watcher and index to another folder. A folder visited
+     * recently is shown at once from the listing cache and then reconciled.
+     * Returns false if the folder cannot be opened.
+     */
+    private boolean navigateTo(Path dir, boolean recordHistory) {
+        Path target = dir.toAbsolutePath().normalize();
+        if (target.equals(workingDirectory)) return false;
+        if (!Files.isDirectory(target)) {
+            showAlert("Error", "Cannot open folder: " + target);
+            return false;
+        }
+        rememberListing();
+        pendingSelection = null;
+        if (recordHistory) {
+            backHistory.push(workingDirectory);
+            while (backHistory.size() > MAX_HISTORY) backHistory.removeLast();
+            forwardHistory.clear();
         }
-        // Note: workingDirectory is final; to fully support change, you'd store it in a mutable field.
+
+        workingDirectory = target;
+        metadataIndex = new MetadataIndex(target);
+        cancelListing();
+        indexSave.stop();
+        table.getSelectionModel().clearSelection();
+        clearPreview();
+        restartWatchService();
+
+        cachedListing = listingCache.get(target);
+        if (cachedListing == null) {
+            // Never show the previous folder's entries under the new path
+            fileList.setAll(List.of());
+        }
+        if (folderTree != null) folderTree.reveal(target);
+        updateNavigation();
         refreshFileList();
+        return true;
+    }
+
+    /** Keep the current folder's listing for back/forward, if it is complete */
+    private void rememberListing() {
+        if (!isLoggedIn || !listedOnce || currentListing != null || currentReconcile != null) return;
+        listingCache.put(workingDirectory, masterList);
+        metadataIndex.saveAsync(masterList);
     }
+
+    private void updateNavigation() {
+        if (backButton != null) backButton.setDisable(backHistory.isEmpty());
+        if (forwardButton != null) forwardButton.setDisable(forwardHistory.isEmpty());
+        if (upButton != null) upButton.setDisable(workingDirectory.getParent() == null);
+        if (pathLabel != null) pathLabel.setText(workingDirectory.toString());
+    }
+
+    /** Open a folder in place, anything else with the system application */
+    private void openItem(FileItem item) {
+        if (item.isDirectory()) {
+            changeDirectory(item.getPath());
+        } else {
+            openSelected();
+        }
+    }
+
+    private void restartWatchService() {
+        // Open the new watch before closing the old one, so directories both cover stay registered
+        WatchRegistry.Watch previous = directoryWatch;
+        startWatchService();
+        if (previous != null) previous.close();
+    }
+
+    /**
+     * Watch the working directory and its subfolders. Changes anywhere in the
+     * tree update the content index and the folder tree; the table only shows
+     * the working directory itself.
+     */
     private void startWatchService() {
-        Executors.newSingleThreadExecutor().submit(() -> {
-            try {
-                WatchService ws = FileSystems.getDefault().newWatchService();
-                workingDirectory.register(ws,
-                        StandardWatchEventKinds.ENTRY_CREATE,
-                        StandardWatchEventKinds.ENTRY_DELETE,
-                        StandardWatchEventKinds.ENTRY_MODIFY);
-                while (true) {
-                    ws.take().pollEvents();
-                    Platform.runLater(this::refreshFileList);
+        // Paths reported by the registry are absolute and normalized
+        Path watched = workingDirectory.toAbsolutePath().normalize();
+        directoryWatch = watchRegistry.watchTree(watched, new WatchRegistry.Listener() {
+            @Override
+            public void onChanges(Path dir, List<FileItem> upserts, List<Path> removed) {
+                List<Path> changed = new ArrayList<>(upserts.size());
+                for (FileItem item : upserts) changed.add(item.getPath());
+                contentSearch.filesChanged(changed, removed);
+                if (folderTree != null && (!removed.isEmpty() || upserts.stream().anyMatch(FileItem::isDirectory))) {
+                    folderTree.refresh(dir);
                 }
-            } catch (Exception ignored) {}
+                if (!dir.equals(watched)) return;
+                watchEvents++;
+                if (!isLoggedIn) return;
+                applyFileChanges(upserts, removed);
+            }
+
+            @Override
+            public void onOverflow(Path dir) {
+                // Events were lost; re-check the whole folder (only changed files are read)
+                contentSearch.filesChanged(List.of(dir), List.of());
+                if (folderTree != null) folderTree.refresh(dir);
+                if (!dir.equals(watched)) return;
+                watchEvents++;
+                refreshFileList();
+            }
         });
     }
+
+    private void applyFileChanges(List<FileItem> upserts, List<Path> removed) {
+        scheduleIndexSave();
+        FileItem selected = table.getSelectionModel().getSelectedItem();
+        for (Path p : removed) {
+            fileList.remove(p);
+            previewCache.invalidate(p);
+        }
+        for (FileItem item : upserts) {
+            fileList.upsert(item);
+            previewCache.invalidate(item.getPath());
+        }
+        // Keep the selection on a replaced row
+        if (selected != null && table.getSelectionModel().getSelectedItem() != selected) {
+            FileItem current = fileList.find(selected.getPath());
+            if (current != null) table.getSelectionModel().select(current);
+        }
+    }
     
     private void showLoginDialog() {
         try {
@@ -384,28 +759,21 @@ public class MainController {
         MenuItem compress = new MenuItem("Compress"); 
         compress.setOnAction(e -> compressSelected());
         
+        MenuItem compressStore = new MenuItem("Compress (Store Only)"); 
+        compressStore.setOnAction(e -> compressSelected(true));
+        
         MenuItem properties = new MenuItem("Properties"); 
         properties.setOnAction(e -> showProperties());
         
-        menu.getItems().addAll(open, copy, move, delete, rename, duplicate, compress, properties);
+        menu.getItems().addAll(open, copy, move, delete, rename, duplicate, compress, compressStore, properties);
         table.setContextMenu(menu);
 
+        // Single clicks are covered by the selection listener, which loads the preview
         table.setOnMouseClicked((MouseEvent evt) -> {
-            if (evt.getClickCount() == 2) openSelected();
-            else handleTableClick(evt);
+            FileItem item = table.getSelectionModel().getSelectedItem();
+            if (evt.getClickCount() == 2 && item != null) openItem(item);
         });
     }
-    @FXML
-    private void handleTableClick(MouseEvent event) {
-        FileItem sel = table.getSelectionModel().getSelectedItem();
-        if (sel == null) return;
-        try {
-            String content = Files.readString(sel.getPath());
-            filePreviewArea.setText(content);
-        } catch (IOException e) {
-            showAlert("Error","Failed to read file.");
-        }
-    }
     private void setupKeyShortcuts() {
         table.setOnKeyPressed((KeyEvent event) -> {
             if (event.getCode() == KeyCode.DELETE) {
@@ -416,51 +784,420 @@ public class MainController {
                 }
             }
             if (event.getCode() == KeyCode.F2) handleRenameFile();
+            if (event.getCode() == KeyCode.ENTER) {
+                FileItem item = table.getSelectionModel().getSelectedItem();
+                if (item != null) openItem(item);
+            }
+            if (event.getCode() == KeyCode.BACK_SPACE || (event.isAltDown() && event.getCode() == KeyCode.UP)) handleUp();
+            if (event.isAltDown() && event.getCode() == KeyCode.LEFT) handleBack();
+            if (event.isAltDown() && event.getCode() == KeyCode.RIGHT) handleForward();
             if (event.isControlDown() && event.getCode() == KeyCode.C) copySelected();
             if (event.isControlDown() && event.getCode() == KeyCode.V) moveSelected();
             if (event.isControlDown() && event.getCode() == KeyCode.F) searchField.requestFocus();
         });
     }
     
+    /**
+     * The column holds the raw mtime, so sorting compares numbers; only the
+     * visible cells format it
+     */
+    private void setupModifiedColumn() {
+        if (modifiedColumn == null) return;
+        modifiedColumn.setCellFactory(col -> new TableCell<>() {
+            @Override
+            protected void updateItem(Long millis, boolean empty) {
+                super.updateItem(millis, empty);
+                TableRow<FileItem> row = getTableRow();
+                FileItem item = empty || row == null ? null : row.getItem();
+                setText(item == null || millis == null || !item.hasAttributes() ? null : FileItem.formatModified(millis));
+            }
+        });
+    }
+
     @FXML
     private void refreshFileList() {
         if (!isLoggedIn) return;
         
+        // A newer refresh always wins over one still in flight
+        cancelListing();
+        // The index root is fixed; only the folder itself is re-checked, and only when it changed
+        contentSearch.open(contentIndexRoot);
+        contentSearch.folderOpened(workingDirectory);
+
+        List<FileItem> cached = cachedListing;
+        cachedListing = null;
+        listedOnce = true;
+        if (cached != null) {
+            // Show the snapshot now and correct it once the directory has been read
+            fileList.setAll(cached);
+            statusLabel.setText(masterList.size() + " items");
+            StartupTimings.mark("first-listing");
+            selectPending();
+            reconcileListing(0);
+            return;
+        }
+
         FileItem selected = table.getSelectionModel().getSelectedItem();
-        try {
-            List<FileItem> items = Files.list(workingDirectory)
-                                        .map(FileItem::new)
-                                        .toList();
-            masterList.setAll(items);
+        Path selectedPath = selected != null ? selected.getPath() : null;
+
+        long started = System.nanoTime();
+        Task<Integer> task = listingService.list(workingDirectory, masterList.size(), (chunk, first) -> {
+            if (first) fileList.setAll(chunk);
+            else fileList.addAll(chunk);
+        });
+        currentListing = task;
 
+        if (currentJob == null) {
+            progressIndicator.progressProperty().bind(task.progressProperty());
+            progressIndicator.setVisible(true);
+        }
+        task.messageProperty().addListener((obs, o, msg) -> {
+            if (task == currentListing && currentJob == null) statusLabel.setText(msg);
+        });
+
+        task.setOnSucceeded(e -> {
+            LISTING_REFRESH.record(System.nanoTime() - started);
+            finishListing(task);
+            metadataIndex.saveAsync(masterList);
             // Restore selection
-            if (selected != null) {
-                for (FileItem item : items) {
-                    if (item.getPath().equals(selected.getPath())) {
-                        table.getSelectionModel().select(item);
-                        break;
-                    }
-                }
+            if (selectedPath != null) {
+                FileItem item = fileList.find(selectedPath);
+                if (item != null) table.getSelectionModel().select(item);
             }
-
-        } catch (IOException e) {
+            selectPending();
+        });
+        task.setOnFailed(e -> {
+            LISTING_REFRESH.record(System.nanoTime() - started);
+            LISTING_REFRESH.error();
+            finishListing(task);
             showAlert("Error", "Failed to read files.");
+        });
+        task.setOnCancelled(e -> finishListing(task));
+    }
+
+    private void cancelListing() {
+        if (currentListing != null && currentListing.isRunning()) {
+            currentListing.cancel();
+        }
+        if (currentReconcile != null) {
+            currentReconcile.cancel();
+            currentReconcile = null;
+        }
+    }
+
+    /**
+     * Bring the shown entries in line with the directory by applying only the
+     * difference. Watcher events that arrive while the directory is being read
+     * may be older than the read, so in that case it is repeated (a few times at most).
+     */
+    private void reconcileListing(int attempt) {
+        int eventsBefore = watchEvents;
+        long started = System.nanoTime();
+        Task<MetadataIndex.Diff> task = listingService.reconcile(workingDirectory, List.copyOf(masterList));
+        currentReconcile = task;
+        task.setOnSucceeded(e -> {
+            if (task != currentReconcile || !isLoggedIn) return;
+            currentReconcile = null;
+            LISTING_RECONCILE.record(System.nanoTime() - started);
+            MetadataIndex.Diff diff = task.getValue();
+            if (!diff.isEmpty()) applyFileChanges(diff.getUpserts(), diff.getRemoved());
+            if (watchEvents != eventsBefore && attempt < 2) {
+                reconcileListing(attempt + 1);
+                return;
+            }
+            StartupTimings.mark("listing-reconciled");
+            metadataIndex.saveAsync(masterList);
+            selectPending();
+            if (currentJob == null && currentListing == null) {
+                int changed = diff.getUpserts().size() + diff.getRemoved().size();
+                statusLabel.setText(masterList.size() + " items" + (changed > 0 ? " (" + changed + " updated)" : ""));
+            }
+        });
+        task.setOnFailed(e -> {
+            if (task != currentReconcile) return;
+            currentReconcile = null;
+            LISTING_RECONCILE.record(System.nanoTime() - started);
+            LISTING_RECONCILE.error();
+            // Fall back to a full listing
+            refreshFileList();
+        });
+    }
+
+    /** Save the index a few seconds after the last change, not on every event */
+    private void scheduleIndexSave() {
+        indexSave.playFromStart();
+    }
+
+    private void finishListing(Task<Integer> task) {
+        if (task != currentListing) return;
+        currentListing = null;
+        releaseProgress();
+    }
+
+    // ===== BACKGROUND JOBS =====
+    /**
+     * Queue a long file operation for the job worker, with progress in the status bar.
+     * Callers attach their own onSucceeded/onFailed handlers. The timer measures the
+     * job from when the worker starts it, so time spent queued is not counted.
+     */
+    private void runJob(Task<?> task, Metrics.Timer timer) {
+        jobQueue.addLast(task);
+        long[] started = new long[1];
+        task.addEventHandler(WorkerStateEvent.WORKER_STATE_RUNNING, e -> started[0] = System.nanoTime());
+        task.addEventHandler(WorkerStateEvent.WORKER_STATE_SUCCEEDED, e -> timer.record(System.nanoTime() - started[0]));
+        task.addEventHandler(WorkerStateEvent.WORKER_STATE_FAILED, e -> {
+            if (started[0] != 0) timer.record(System.nanoTime() - started[0]);
+            timer.error();
+        });
+        task.messageProperty().addListener((obs, o, msg) -> {
+            if (task == currentJob) statusLabel.setText(msg);
+        });
+        task.addEventHandler(WorkerStateEvent.WORKER_STATE_SUCCEEDED, e -> finishJob(task));
+        task.addEventHandler(WorkerStateEvent.WORKER_STATE_FAILED, e -> finishJob(task));
+        task.addEventHandler(WorkerStateEvent.WORKER_STATE_CANCELLED, e -> finishJob(task));
+        if (currentJob == null) {
+            activateJob(task);
+        } else {
+            statusLabel.setText("Job queued (" + (jobQueue.size() - 1) + " waiting)");
+        }
+        jobs.submit(task);
+    }
+
+    private void activateJob(Task<?> task) {
+        currentJob = task;
+        progressIndicator.progressProperty().unbind();
+        progressIndicator.progressProperty().bind(task.progressProperty());
+        progressIndicator.setVisible(true);
+        cancelJobButton.setVisible(true);
+        cancelJobButton.setManaged(true);
+    }
+
+    private void finishJob(Task<?> task) {
+        jobQueue.remove(task);
+        if (task != currentJob) return;
+        currentJob = null;
+        Task<?> next = jobQueue.peekFirst();
+        if (next != null) {
+            activateJob(next);
+            return;
+        }
+        cancelJobButton.setVisible(false);
+        cancelJobButton.setManaged(false);
+        releaseProgress();
+    }
+
+    @FXML
+    private void handleCancelJob() {
+        if (currentJob != null) currentJob.cancel();
+    }
+
+    /**
+     * Hand the progress indicator to whatever is still running, or hide it
+     */
+    private void releaseProgress() {
+        progressIndicator.progressProperty().unbind();
+        Task<?> active = currentJob != null ? currentJob : currentListing;
+        if (active != null) {
+            progressIndicator.progressProperty().bind(active.progressProperty());
+        } else if (runningIo > 0) {
+            progressIndicator.setProgress(ProgressIndicator.INDETERMINATE_PROGRESS);
+        } else {
+            progressIndicator.setVisible(false);
+        }
+    }
+
+    /**
+     * Run a short blocking call (file system, database) in the session scope so
+     * the FX thread never waits on it. The message shows in the status bar with
+     * a busy indicator while it runs; callers attach their own handlers, which
+     * run on the FX thread. A failure is counted on the timer.
+     */
+    private <T> Task<T> runIo(String message, Metrics.Timer timer, Callable<T> work) {
+        Task<T> task = session.submit(message, () -> timer.time(work::call));
+        runningIo++;
+        if (currentJob == null && currentListing == null) {
+            progressIndicator.progressProperty().unbind();
+            progressIndicator.setProgress(ProgressIndicator.INDETERMINATE_PROGRESS);
         }
+        setStatus(message, true);
+        EventHandler<WorkerStateEvent> done = e -> {
+            runningIo--;
+            releaseProgress();
+        };
+        task.addEventHandler(WorkerStateEvent.WORKER_STATE_SUCCEEDED, done);
+        task.addEventHandler(WorkerStateEvent.WORKER_STATE_FAILED, done);
+        task.addEventHandler(WorkerStateEvent.WORKER_STATE_CANCELLED, done);
+        return task;
     }
 
     private void filterList(String filter) {
         if (!isLoggedIn) return;
+        if (isContentSearch()) {
+            searchContents(filter);
+            return;
+        }
         
         if (filter == null || filter.isBlank()) {
-            refreshFileList();
+            nameSearch.cancel();
+            filteredList.setPredicate(null);
+            return;
+        }
+        List<FileItem> snapshot = searchIndexDirty ? List.copyOf(masterList) : null;
+        searchIndexDirty = false;
+        nameSearch.search(filter, snapshot, filteredList::setPredicate);
+    }
+
+    // ===== CONTENT SEARCH =====
+
+    private void setupContentSearch() {
+        contentSearch = new ContentSearchService((status, indexing) -> {
+            contentStatus.setText(status);
+            if (contentSearchToggle != null) contentSearchToggle.setTooltip(new Tooltip(status));
+        });
+        contentResults.setPlaceholder(contentStatus);
+        contentResults.setCellFactory(list -> new ListCell<>() {
+            @Override
+            protected void updateItem(ContentIndex.Hit hit, boolean empty) {
+                super.updateItem(hit, empty);
+                if (empty || hit == null) {
+                    setText(null);
+                    return;
+                }
+                Path parent = hit.getPath().getParent();
+                String folder = parent != null && parent.startsWith(workingDirectory)
+                        ? workingDirectory.relativize(parent).toString() : String.valueOf(parent);
+                setText(hit.getPath().getFileName() + "   " + (folder.isEmpty() ? "" : folder + "   ")
+                        + "line " + hit.getLine() + "\n    " + hit.getSnippet());
+            }
+        });
+        contentResults.setOnMouseClicked(e -> {
+            if (e.getClickCount() == 2) openContentHit(contentResults.getSelectionModel().getSelectedItem());
+        });
+        contentResults.setOnKeyPressed(e -> {
+            if (e.getCode() == KeyCode.ENTER) openContentHit(contentResults.getSelectionModel().getSelectedItem());
+        });
+    }
+
+    private boolean isContentSearch() {
+        return contentSearchToggle != null && contentSearchToggle.isSelected();
+    }
+
+    @FXML
+    private void handleContentSearchToggle() {
+        boolean on = isContentSearch();
+        contentResults.setVisible(on);
+        contentResults.setManaged(on);
+        searchField.setPromptText(on ? "Search file contents below this folder... (Ctrl+F)" : "Search files... (Ctrl+F)");
+        if (on) {
+            // The table shows the whole folder while the hits list is open
+            nameSearch.cancel();
+            filteredList.setPredicate(null);
+        } else {
+            contentSearch.cancel();
+            contentResults.getItems().clear();
+        }
+        filterList(searchField.getText());
+        searchField.requestFocus();
+    }
+
+    private void searchContents(String query) {
+        if (query == null || query.isBlank()) {
+            contentSearch.cancel();
+            contentResults.getItems().clear();
+            return;
+        }
+        Path scope = workingDirectory;
+        contentSearch.search(query, MAX_CONTENT_HITS, scope, hits -> {
+            contentResults.getItems().setAll(hits);
+            if (hits.isEmpty()) {
+                contentStatus.setText(scope.toAbsolutePath().normalize().startsWith(contentIndexRoot)
+                        ? "No files contain \"" + query.strip() + "\""
+                        : "Contents are only indexed below " + contentIndexRoot);
+            }
+            if (currentJob == null) {
+                statusLabel.setText(hits.size() + (hits.size() == MAX_CONTENT_HITS ? "+" : "")
+                        + " files match (" + contentSearch.getLastSearchMillis() + " ms)");
+            }
+        });
+    }
+
+    /** Show the hit's folder and select the file in the table */
+    private void openContentHit(ContentIndex.Hit hit) {
+        if (hit == null || !isLoggedIn) return;
+        Path parent = hit.getPath().getParent();
+        if (parent == null) return;
+        if (!parent.equals(workingDirectory) && !navigateTo(parent, true)) return;
+        pendingSelection = hit.getPath();
+        selectPending();
+    }
+
+    /** Select pendingSelection if the table already lists it */
+    private void selectPending() {
+        if (pendingSelection == null) return;
+        FileItem item = fileList.find(pendingSelection);
+        if (item == null) return;
+        pendingSelection = null;
+        table.getSelectionModel().clearSelection();
+        table.getSelectionModel().select(item);
+        table.scrollTo(item);
+        table.requestFocus();
+    }
+
+    /**
+     * Save indexes and stop background work, called when the application exits
+     */
+    public void shutdown() {
+        contentSearch.shutdown();
+        watchRegistry.close();
+        if (folderTree != null) folderTree.shutdown();
+        listingService.shutdown();
+        previewService.shutdown();
+        // Cancels every remaining scope (session, windows) and waits briefly for them to stop
+        TaskRunner.shutdown(2, TimeUnit.SECONDS);
+    }
+
+    // ===== DATABASE STATUS =====
+
+    /**
+     * Refresh the status-bar pool indicator once a second. Reading the metrics
+     * never touches the database, so this is safe on the FX thread.
+     */
+    private void startPoolMonitor() {
+        if (databaseStatusLabel == null) return;
+        Tooltip tooltip = new Tooltip();
+        databaseStatusLabel.setTooltip(tooltip);
+        poolMonitor = new Timeline(new KeyFrame(Duration.seconds(1), e -> updatePoolStatus(tooltip)));
+        poolMonitor.setCycleCount(Timeline.INDEFINITE);
+        poolMonitor.play();
+        updatePoolStatus(tooltip);
+    }
+
+    private void updatePoolStatus(Tooltip tooltip) {
+        PoolMetrics.Snapshot m = DatabaseConnection.getPoolMetrics();
+        String color;
+        if (!DatabaseConnection.isInitialized() || (m.getTotal() == 0 && m.getAcquired() == 0 && m.getTimeouts() == 0)) {
+            databaseStatusLabel.setText("🔗 Connecting to database...");
+            color = "#757575";
+        } else if (m.getTimeouts() > 0 && m.getTotal() == 0) {
+            databaseStatusLabel.setText("🔗 Database unavailable");
+            color = "#D32F2F";
         } else {
-            masterList.setAll(
-                masterList.stream()
-                          .filter(item -> item.getName().toLowerCase()
-                                              .contains(filter.toLowerCase()))
-                          .toList()
-            );
+            databaseStatusLabel.setText(String.format("🔗 DB %d/%d active%s · %.1f ms",
+                    m.getActive(), m.getMax(),
+                    m.getPending() > 0 ? " · " + m.getPending() + " waiting" : "",
+                    m.getRecentAcquireMillis()));
+            color = m.getPending() > 0 ? "#F57C00" : "#007ACC";
         }
+        databaseStatusLabel.setStyle("-fx-font-size: 11px; -fx-text-fill: " + color + ";");
+        tooltip.setText(String.format(
+                "Connections: %d active, %d idle, %d total (max %d)%n"
+                + "Waiting threads: %d%n"
+                + "Acquire: %.2f ms recent, %.2f ms average, %.1f ms max (%,d acquired)%n"
+                + "Average time held: %.1f ms%n"
+                + "Acquire timeouts: %d",
+                m.getActive(), m.getIdle(), m.getTotal(), m.getMax(), m.getPending(),
+                m.getRecentAcquireMillis(), m.getAvgAcquireMillis(), m.getMaxAcquireMillis(), m.getAcquired(),
+                m.getAvgUsageMillis(), m.getTimeouts()));
     }
 
     // ===== Database Menu Handlers =====
@@ -469,43 +1206,22 @@ public class MainController {
         if (!isLoggedIn) return;
         
         try {
-            List<ActivityLog> logs = activityLogDAO.getRecentActivities(50);
-            
-            StringBuilder logText = new StringBuilder();
-            logText.append("Recent File Activities:\n");
-            logText.append("=".repeat(50)).append("\n\n");
-            
-            for (ActivityLog log : logs) {
-                logText.append(String.format("[%s] %s - %s: %s\n",
-                    log.getTimestamp().toString(),
-                    log.getUsername(),
-                    log.getAction(),
-                    log.getFileName()
-                ));
-                if (log.getDetails() != null && !log.getDetails().isEmpty()) {
-                    logText.append("  Details: ").append(log.getDetails()).append("\n");
-                }
-                logText.append("\n");
-            }
-            
-            // Show in a new window
-            Alert alert = new Alert(Alert.AlertType.INFORMATION);
-            alert.setTitle("Activity Logs");
-            alert.setHeaderText("File Activity History");
-            
-            TextArea textArea = new TextArea(logText.toString());
-            textArea.setEditable(false);
-            textArea.setWrapText(true);
-            textArea.setPrefSize(600, 400);
-            
-            alert.getDialogPane().setContent(textArea);
-            alert.showAndWait();
-            
+            new ActivityLogViewer(activityLogDAO).show(table.getScene().getWindow());
         } catch (Exception e) {
             showAlert("Error", "Failed to load activity logs: " + e.getMessage());
         }
     }
     
+    @FXML
+    private void handleDiagnostics() {
+        if (diagnosticsView != null && diagnosticsView.isShowing()) {
+            diagnosticsView.toFront();
+            return;
+        }
+        diagnosticsView = new DiagnosticsView();
+        diagnosticsView.show(table.getScene().getWindow());
+    }
+
     @FXML
     private void handleUserManagement() {
         if (!isLoggedIn || !currentUser.isAdmin()) {
@@ -538,9 +1254,25 @@ public class MainController {
         
         currentUser = null;
         isLoggedIn = false;
+        boolean complete = currentListing == null && currentReconcile == null;
+        cancelListing();
         updateUIForLoginState();
-        masterList.clear();
-        filePreviewArea.clear();
+        if (complete && listedOnce) {
+            // The next sign-in starts from this listing
+            cachedListing = List.copyOf(masterList);
+            metadataIndex.saveAsync(masterList);
+        }
+        indexSave.stop();
+        // Cancel the signed-out user's jobs and calls; the next session starts with fresh scopes
+        session.close();
+        session = TaskRunner.root().child("session");
+        jobs = session.serialChild("file-jobs");
+        fileList.clear();
+        clearPreview();
+        previewCache.clear();
+        contentSearch.cancel();
+        contentResults.getItems().clear();
+        pendingSelection = null;
         
         // Show login dialog again
         showLoginDialog();
@@ -548,8 +1280,10 @@ public class MainController {
 
     // ===== User Management Methods =====
     private void showAllUsers() {
-        try {
-            List<User> users = userDAO.getAllUsers();
+        Task<List<User>> task = runIo("Loading users...", OP_LIST_USERS, userDAO::getAllUsers);
+        task.setOnSucceeded(e -> {
+            setStatus(masterList.size() + " items", false);
+            List<User> users = task.getValue();
             
             StringBuilder userList = new StringBuilder();
             userList.append("All Users:\n");
@@ -577,10 +1311,11 @@ public class MainController {
             
             alert.getDialogPane().setContent(textArea);
             alert.showAndWait();
-            
-        } catch (Exception e) {
-            showAlert("Error", "Failed to load users: " + e.getMessage());
-        }
+        });
+        task.setOnFailed(e -> {
+            setStatus("Failed to load users", false);
+            showAlert("Error", "Failed to load users: " + task.getException().getMessage());
+        });
     }
     
     private void createNewUser() {
@@ -606,28 +1341,30 @@ public class MainController {
         Optional<String> role = roleDialog.showAndWait();
         if (!role.isPresent()) return;
         
-        try {
-        	int result = userDAO.createUser(
+        // Hashing the password is deliberately slow, so it runs on the bounded hash pool
+        setStatus("Creating user " + username.get().trim() + "...", true);
+        PasswordUtils.runHashing(() -> userDAO.createUser(
         		    username.get().trim(), 
         		    password.get(), 
         		    UserRole.valueOf(role.get()), 
         		    null
-        		);
-
-        		if (result == 0) {
-        		    showAlert("Success", "User created successfully!");
-        		    logActivity("System", "N/A", "CREATE_USER", "Created user: " + username.get());
-        		} else if (result == 1) {
-        		    showAlert("Error", "Username already exists.");
-        		} else if (result == 2) {
-        		    showAlert("Error", "Password does not meet the required criteria.");
-        		} else {
-        		    showAlert("Error", "Failed to create user due to a database error.");
-        		}
-
-        } catch (Exception e) {
-            showAlert("Error", "Error creating user: " + e.getMessage());
-        }
+        		))
+        		.whenComplete((result, error) -> Platform.runLater(() -> {
+        		    setStatus(masterList.size() + " items", false);
+        		    if (error != null) {
+        		        Throwable cause = error.getCause() != null ? error.getCause() : error;
+        		        showAlert("Error", "Error creating user: " + cause.getMessage());
+        		    } else if (result == 0) {
+        		        showAlert("Success", "User created successfully!");
+        		        logActivity("System", "N/A", "CREATE_USER", "Created user: " + username.get());
+        		    } else if (result == 1) {
+        		        showAlert("Error", "Username already exists.");
+        		    } else if (result == 2) {
+        		        showAlert("Error", "Password does not meet the required criteria.");
+        		    } else {
+        		        showAlert("Error", "Failed to create user due to a database error.");
+        		    }
+        		}));
     }
     
     private void changeUserRole() {
@@ -653,20 +1390,19 @@ public class MainController {
         dialog.setGraphic(new Label("📄"));
         dialog.setHeaderText("Enter file name (with extension):");
         dialog.showAndWait().ifPresent(name -> {
-            setStatus("Creating file: " + name, true);
-            try {
-                Path newFile = workingDirectory.resolve(name);
-                Files.createFile(newFile);
+            Path newFile = workingDirectory.resolve(name);
+            Task<Path> task = runIo("Creating file: " + name, OP_CREATE, () -> Files.createFile(newFile));
+            task.setOnSucceeded(e -> {
                 refreshFileList();
                 setStatus("File created: " + name, false);
                 
                 // Log activity
                 logActivity(name, newFile.toString(), "CREATE", "File created by user");
-                
-            } catch (IOException e) {
+            });
+            task.setOnFailed(e -> {
                 showAlert("Error", "Failed to create file.");
                 setStatus("Failed to create file: " + name, false);
-            }
+            });
         });
     }
     
@@ -715,26 +1451,66 @@ public class MainController {
             return; 
         }
         
-        // Confirmation dialog
-        Alert confirmAlert = new Alert(Alert.AlertType.CONFIRMATION);
+        // One confirmation for the whole selection, including folder contents
+        ButtonType deleteButton = new ButtonType("Delete", ButtonBar.ButtonData.OK_DONE);
+        ButtonType quickButton = new ButtonType("Quick Delete", ButtonBar.ButtonData.OTHER);
+        Alert confirmAlert = new Alert(Alert.AlertType.CONFIRMATION, "", deleteButton, quickButton, ButtonType.CANCEL);
         confirmAlert.setTitle("Confirm Deletion");
-        confirmAlert.setHeaderText("Delete " + sel.size() + " file(s)?");
-        confirmAlert.setContentText("This action cannot be undone.");
+        confirmAlert.setHeaderText("Delete " + sel.size() + " item(s)?");
+        confirmAlert.setContentText("Folders are deleted with all their contents. This action cannot be undone.\n"
+                + "Quick Delete moves items to the trash instantly and purges them in the background.");
         
         Optional<ButtonType> result = confirmAlert.showAndWait();
-        if (result.isPresent() && result.get() == ButtonType.OK) {
-            sel.forEach(item -> {
-                try { 
-                    Files.delete(item.getPath());
-                    // Log deletion
-                    logActivity(item.getName(), item.getPath().toString(), "DELETE", "File deleted by admin");
+        if (result.isEmpty() || result.get() == ButtonType.CANCEL) return;
+
+        DeleteEngine.Mode mode = result.get() == quickButton ? DeleteEngine.Mode.TRASH : DeleteEngine.Mode.PERMANENT;
+        List<Path> targets = sel.stream().map(FileItem::getPath).toList();
+        int userId = currentUser.getUserId();
+
+        Task<DeleteEngine.Result> task = new Task<>() {
+            @Override
+            protected DeleteEngine.Result call() {
+                updateMessage("Deleting " + targets.size() + " item(s)...");
+                DeleteEngine engine = new DeleteEngine(targets, mode);
+                try {
+                    engine.run((done, total) -> {
+                        updateProgress(done, total);
+                        updateMessage("Deleting... " + done + " / " + total);
+                    }, this::isCancelled);
+                } finally {
+                    // Audit whatever was removed, even if cancelled part way
+                    writeDeleteAudit(engine.getResult());
+                }
+                return engine.getResult();
+            }
+
+            private void writeDeleteAudit(DeleteEngine.Result r) {
+                // One batched audit write for every removed file and folder
+                List<ActivityLog> audit = new ArrayList<>();
+                for (Path p : r.getDeletedFiles()) {
+                    audit.add(new ActivityLog(userId, String.valueOf(p.getFileName()), p.toString(),
+                            "DELETE", "File deleted by admin"));
                 }
-                catch (IOException e){ 
-                    showAlert("Error","Failed to delete: " + item.getName()); 
+                for (Path p : r.getTrashed()) {
+                    audit.add(new ActivityLog(userId, String.valueOf(p.getFileName()), p.toString(),
+                            "DELETE", "File deleted by admin (moved to trash, purged in background)"));
                 }
-            });
-            refreshFileList();
-        }
+                if (!audit.isEmpty()) activityLogDAO.logActivities(audit);
+            }
+        };
+        task.setOnSucceeded(e -> {
+            DeleteEngine.Result r = task.getValue();
+            setStatus("Deleted " + r.getCompleted().size() + " of " + targets.size() + " item(s)", false);
+            if (!r.getErrors().isEmpty()) {
+                showErrorSummary("Delete finished with errors", r.getErrors());
+            }
+        });
+        task.setOnFailed(e -> {
+            setStatus("Delete failed", false);
+            showAlert("Error", "Delete failed: " + task.getException().getMessage());
+        });
+        task.setOnCancelled(e -> setStatus("Delete cancelled", false));
+        runJob(task, OP_DELETE);
     }
 
     @FXML 
@@ -755,17 +1531,19 @@ public class MainController {
         dialog.setGraphic(new Label("📄"));
         dialog.setHeaderText("Enter new file name:");
         dialog.showAndWait().ifPresent(newName -> {
-            try {
-                Path newPath = workingDirectory.resolve(newName);
-                Files.move(sel.getPath(), newPath);
+            Path newPath = workingDirectory.resolve(newName);
+            Task<Path> task = runIo("Renaming " + sel.getName(), OP_RENAME, () -> Files.move(sel.getPath(), newPath));
+            task.setOnSucceeded(e -> {
                 refreshFileList();
+                setStatus("Renamed to " + newName, false);
                 
                 // Log rename
                 logActivity(sel.getName(), sel.getPath().toString(), "RENAME", "Renamed to: " + newName);
-                
-            } catch (IOException e) {
+            });
+            task.setOnFailed(e -> {
+                setStatus("Rename failed", false);
                 showAlert("Error","Failed to rename file.");
-            }
+            });
         });
     }
 
@@ -777,13 +1555,19 @@ public class MainController {
         dialog.setGraphic(new Label("📄"));
         dialog.setHeaderText("Enter text to add to file:");
         dialog.showAndWait().ifPresent(text -> {
-            try (BufferedWriter writer = Files.newBufferedWriter(
-                     sel.getPath(), StandardOpenOption.APPEND)) {
-                writer.write(text);
-                writer.newLine();
-            } catch (IOException e) {
+            Task<Void> task = runIo("Writing to " + sel.getName(), OP_ADD_TEXT, () -> {
+                try (BufferedWriter writer = Files.newBufferedWriter(
+                        sel.getPath(), StandardOpenOption.APPEND)) {
+                    writer.write(text);
+                    writer.newLine();
+                }
+                return null;
+            });
+            task.setOnSucceeded(e -> setStatus("Text added to " + sel.getName(), false));
+            task.setOnFailed(e -> {
+                setStatus("Write failed", false);
                 showAlert("Error","Failed to write to file.");
-            }
+            });
         });
     }
     @FXML private void showAlert(String title, String content) {
@@ -795,81 +1579,210 @@ public class MainController {
     }
     private void setStatus(String message, boolean loading) {
         statusLabel.setText(message);
-        progressIndicator.setVisible(loading);
+        progressIndicator.setVisible(loading || currentJob != null || currentListing != null || runningIo > 0);
     }
     @FXML private void openSelected() {
+        // Desktop.open blocks until the desktop has looked up a handler, which can take a while
         table.getSelectionModel().getSelectedItems().forEach(item -> {
-            try { Desktop.getDesktop().open(item.getPath().toFile()); }
-            catch (IOException e){ showAlert("Error","Cannot open: " + item.getName()); }
+            Task<Void> task = runIo("Opening " + item.getName(), OP_OPEN, () -> {
+                Desktop.getDesktop().open(item.getPath().toFile());
+                return null;
+            });
+            task.setOnSucceeded(e -> setStatus("Opened " + item.getName(), false));
+            task.setOnFailed(e -> {
+                setStatus("Cannot open: " + item.getName(), false);
+                showAlert("Error","Cannot open: " + item.getName());
+            });
         });
     }
     @FXML private void copySelected() {
-        FileChooser fc = new FileChooser();
-        fc.setTitle("Copy Files To...");
-        File dest = fc.showSaveDialog(table.getScene().getWindow());
-        if (dest == null) return;
-        table.getSelectionModel().getSelectedItems().forEach(item -> {
-            try {
-                Files.copy(item.getPath(), dest.toPath().resolve(item.getName()));
-            } catch (IOException e) {
-                showAlert("Error","Copy failed for: " + item.getName());
-            }
-        });
-        refreshFileList();
+        transferSelected(FileTransferEngine.Mode.COPY);
     }
 
     @FXML private void moveSelected() {
-        FileChooser fc = new FileChooser();
-        fc.setTitle("Move Files To...");
-        File dest = fc.showSaveDialog(table.getScene().getWindow());
+        transferSelected(FileTransferEngine.Mode.MOVE);
+    }
+
+    /**
+     * Copy or move the selection into a chosen folder on the job worker.
+     * Per-item failures are collected and reported once at the end.
+     */
+    private void transferSelected(FileTransferEngine.Mode mode) {
+        boolean move = mode == FileTransferEngine.Mode.MOVE;
+        List<Path> sources = table.getSelectionModel().getSelectedItems().stream()
+                                  .map(FileItem::getPath)
+                                  .toList();
+        if (sources.isEmpty()) {
+            showAlert("Warning","No file selected.");
+            return;
+        }
+        DirectoryChooser dc = new DirectoryChooser();
+        dc.setTitle(move ? "Move Files To..." : "Copy Files To...");
+        dc.setInitialDirectory(workingDirectory.toFile());
+        File dest = dc.showDialog(table.getScene().getWindow());
         if (dest == null) return;
-        table.getSelectionModel().getSelectedItems().forEach(item -> {
-            try {
-                Files.move(item.getPath(), dest.toPath().resolve(item.getName()));
-            } catch (IOException e) {
-                showAlert("Error","Move failed for: " + item.getName());
+
+        String verb = move ? "Moving" : "Copying";
+        Task<FileTransferEngine.Result> task = new Task<>() {
+            @Override
+            protected FileTransferEngine.Result call() throws IOException {
+                updateMessage(verb + " " + sources.size() + " item(s)...");
+                FileTransferEngine engine = new FileTransferEngine(sources, dest.toPath(), mode);
+                return engine.run((done, total, rate) -> {
+                    updateProgress(done, total);
+                    updateMessage(String.format("%s... %d / %d MB (%.1f MB/s)",
+                            verb, done >> 20, total >> 20, rate / (1024.0 * 1024.0)));
+                }, this::isCancelled);
+            }
+        };
+        task.setOnSucceeded(e -> {
+            FileTransferEngine.Result result = task.getValue();
+            for (Path p : result.getCompleted()) {
+                logActivity(p.getFileName().toString(), p.toString(), move ? "MOVE" : "COPY",
+                        (move ? "Moved to: " : "Copied to: ") + dest.getPath());
+            }
+            double seconds = Math.max(result.getMillis(), 1) / 1000.0;
+            setStatus(String.format("%s %d of %d item(s), %d MB in %.1fs (%.1f MB/s)",
+                    move ? "Moved" : "Copied", result.getCompleted().size(), sources.size(),
+                    result.getBytes() >> 20, seconds, result.getBytes() / seconds / (1024 * 1024)), false);
+            if (!result.getErrors().isEmpty()) {
+                showErrorSummary((move ? "Move" : "Copy") + " finished with errors", result.getErrors());
             }
         });
-        refreshFileList();
+        task.setOnFailed(e -> {
+            setStatus((move ? "Move" : "Copy") + " failed", false);
+            showAlert("Error", (move ? "Move" : "Copy") + " failed: " + task.getException().getMessage());
+        });
+        task.setOnCancelled(e -> setStatus((move ? "Move" : "Copy") + " cancelled", false));
+        runJob(task, move ? OP_MOVE : OP_COPY);
+    }
+
+    private void showErrorSummary(String header, List<String> errors) {
+        Alert alert = new Alert(Alert.AlertType.WARNING);
+        alert.setTitle("Errors");
+        alert.setHeaderText(header + " (" + errors.size() + ")");
+
+        TextArea textArea = new TextArea(String.join("\n", errors));
+        textArea.setEditable(false);
+        textArea.setWrapText(true);
+        textArea.setPrefSize(500, 250);
+
+        alert.getDialogPane().setContent(textArea);
+        alert.showAndWait();
+    }
+
+    /**
+     * Look for duplicate files in the selected folders, or the whole working directory
+     */
+    @FXML
+    private void handleFindDuplicates() {
+        if (!isLoggedIn) {
+            showAlert("Error", "Please log in first.");
+            return;
+        }
+        List<Path> roots = table.getSelectionModel().getSelectedItems().stream()
+                .filter(item -> "Folder".equals(item.getType()))
+                .map(FileItem::getPath)
+                .toList();
+        if (roots.isEmpty()) roots = List.of(workingDirectory);
+        new DuplicateFinderView(roots, currentUser, activityLogDAO).show(table.getScene().getWindow());
     }
 
     @FXML private void duplicateSelected() {
-        table.getSelectionModel().getSelectedItems().forEach(item -> {
-            Path copy = item.getPath().resolveSibling(item.getName() + "-copy");
-            try { Files.copy(item.getPath(), copy); }
-            catch (IOException e){ showAlert("Error","Duplicate failed: " + item.getName()); }
+        List<Path> sources = table.getSelectionModel().getSelectedItems().stream()
+                .map(FileItem::getPath)
+                .toList();
+        if (sources.isEmpty()) return;
+        // One call for the whole selection; the names that failed are reported together
+        Task<List<String>> task = runIo("Duplicating " + sources.size() + " item(s)...", OP_DUPLICATE, () -> {
+            List<String> failed = new ArrayList<>();
+            for (Path source : sources) {
+                if (Thread.currentThread().isInterrupted()) break;
+                try {
+                    Files.copy(source, source.resolveSibling(source.getFileName() + "-copy"));
+                } catch (IOException e) {
+                    failed.add(source.getFileName().toString());
+                }
+            }
+            if (failed.size() == sources.size()) throw new IOException("Duplicate failed");
+            return failed;
+        });
+        task.setOnSucceeded(e -> {
+            refreshFileList();
+            List<String> failed = task.getValue();
+            setStatus("Duplicated " + (sources.size() - failed.size()) + " item(s)", false);
+            if (!failed.isEmpty()) showAlert("Error","Duplicate failed: " + String.join(", ", failed));
+        });
+        task.setOnFailed(e -> {
+            setStatus("Duplicate failed", false);
+            showAlert("Error","Duplicate failed: " + String.join(", ",
+                    sources.stream().map(p -> p.getFileName().toString()).toList()));
         });
-        refreshFileList();
     }
 
     @FXML private void compressSelected() {
+        compressSelected(false);
+    }
+
+    /**
+     * Zip the selected files and folders in the background.
+     * storeOnly skips deflate entirely; otherwise already-compressed types are stored as-is.
+     */
+    private void compressSelected(boolean storeOnly) {
+        List<Path> sources = table.getSelectionModel().getSelectedItems().stream()
+                                  .map(FileItem::getPath)
+                                  .toList();
+        if (sources.isEmpty()) {
+            showAlert("Warning","No file selected.");
+            return;
+        }
         FileChooser fc = new FileChooser();
         fc.setInitialFileName("archive.zip");
+        fc.setInitialDirectory(workingDirectory.toFile());
         File out = fc.showSaveDialog(table.getScene().getWindow());
         if (out == null) return;
-        try (ZipOutputStream zos = new ZipOutputStream(new FileOutputStream(out))) {
-            for (FileItem item : table.getSelectionModel().getSelectedItems()) {
-                zos.putNextEntry(new ZipEntry(item.getName()));
-                Files.copy(item.getPath(), zos);
-                zos.closeEntry();
+
+        Task<Long> task = new Task<>() {
+            @Override
+            protected Long call() throws IOException {
+                updateMessage("Compressing to " + out.getName() + "...");
+                ZipCompressor compressor = new ZipCompressor(sources, out.toPath(), storeOnly);
+                return compressor.compress((done, total) -> {
+                    updateProgress(done, total);
+                    updateMessage(String.format("Compressing... %d / %d MB", done >> 20, total >> 20));
+                }, this::isCancelled);
             }
-        } catch (IOException e) {
-            showAlert("Error","Compression failed.");
-        }
+        };
+        task.setOnSucceeded(e -> {
+            setStatus("Created " + out.getName() + " (" + task.getValue() / 1024 + " KB)", false);
+            logActivity(out.getName(), out.getPath(), "COMPRESS",
+                    "Compressed " + sources.size() + " item(s)" + (storeOnly ? " (store only)" : ""));
+        });
+        task.setOnFailed(e -> {
+            setStatus("Compression failed", false);
+            showAlert("Error","Compression failed: " + task.getException().getMessage());
+        });
+        task.setOnCancelled(e -> setStatus("Compression cancelled", false));
+        runJob(task, OP_COMPRESS);
     }
     private void showProperties() {
         FileItem item = table.getSelectionModel().getSelectedItem();
         if (item == null) return;
-        try {
-            BasicFileAttributes attr = Files.readAttributes(item.getPath(), BasicFileAttributes.class);
+        Task<BasicFileAttributes> task = runIo("Reading properties of " + item.getName(), OP_PROPERTIES,
+                () -> Files.readAttributes(item.getPath(), BasicFileAttributes.class));
+        task.setOnSucceeded(e -> {
+            BasicFileAttributes attr = task.getValue();
             String info = String.format("Name: %s\nSize: %d bytes\nCreated: %s\nModified: %s",
                     item.getName(), attr.size(),
                     attr.creationTime().toInstant().atZone(ZoneId.systemDefault()).toLocalDateTime(),
                     attr.lastModifiedTime().toInstant().atZone(ZoneId.systemDefault()).toLocalDateTime());
+            setStatus(masterList.size() + " items", false);
             showAlert("Properties", info);
-        } catch (IOException e) {
+        });
+        task.setOnFailed(e -> {
+            setStatus("Cannot read properties", false);
             showAlert("Error","Cannot read properties.");
-        }
+        });
     }
 
 
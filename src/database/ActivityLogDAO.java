@@ -1,75 +1,424 @@
 package database;
 
 import models.ActivityLog;
+import utils.Metrics;
 import java.sql.*;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.YearMonth;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 public class ActivityLogDAO {
-    
+    private static final Metrics.Timer INSERT_BATCH = Metrics.timer("db.activity.insertBatch");
+    private static final Metrics.Counter ROWS_WRITTEN = Metrics.counter("db.activity.rowsWritten");
+    private static final Metrics.Timer PAGE = Metrics.timer("db.activity.page");
+    private static final Metrics.Timer STREAM = Metrics.timer("db.activity.stream");
+    private static final Metrics.Timer SUMMARY = Metrics.timer("db.activity.countPerDay");
+    private static final Metrics.Timer TOP_FILES = Metrics.timer("db.activity.topFiles");
+    private static final int MAX_BATCH_ROWS = 1000;
+    private static final String INSERT_SQL =
+        "INSERT INTO file_activities (user_id, file_name, file_path, action, details, timestamp) VALUES (?, ?, ?, ?, ?, ?)";
+
+    private static final String BASE_SELECT =
+        "SELECT fa.*, u.username FROM file_activities fa JOIN users u ON fa.user_id = u.user_id";
+
+    private static ActivityLogWriter writer;
+    private static volatile ActivityLogPartitions partitions;
+
+    /**
+     * Position in the log, ordered by (timestamp, activity_id).
+     * Pages are read relative to a cursor instead of with OFFSET, so reading deep
+     * into the history costs the same as reading the newest rows.
+     * Needs the (timestamp, activity_id) index from the README.
+     */
+    public static class Cursor {
+        private final LocalDateTime timestamp;
+        private final int activityId;
+
+        public Cursor(LocalDateTime timestamp, int activityId) {
+            this.timestamp = timestamp;
+            this.activityId = activityId;
+        }
+
+        /** Cursor positioned just after every row at or before the given time */
+        public static Cursor endOf(LocalDateTime timestamp) {
+            return new Cursor(timestamp, Integer.MAX_VALUE);
+        }
+
+        public static Cursor of(ActivityLog log) {
+            return new Cursor(log.getTimestamp(), log.getActivityId());
+        }
+
+        public LocalDateTime getTimestamp() { return timestamp; }
+        public int getActivityId() { return activityId; }
+    }
+
+    /** Activities on one day for one action */
+    public static class ActionCount {
+        private final LocalDate day;
+        private final String action;
+        private final long count;
+
+        ActionCount(LocalDate day, String action, long count) {
+            this.day = day;
+            this.action = action;
+            this.count = count;
+        }
+
+        public LocalDate getDay() { return day; }
+        public String getAction() { return action; }
+        public long getCount() { return count; }
+    }
+
+    /** How often a path appears in the log */
+    public static class FileCount {
+        private final String filePath;
+        private final long count;
+        private final LocalDateTime lastTouched;
+
+        FileCount(String filePath, long count, LocalDateTime lastTouched) {
+            this.filePath = filePath;
+            this.count = count;
+            this.lastTouched = lastTouched;
+        }
+
+        public String getFilePath() { return filePath; }
+        public long getCount() { return count; }
+        public LocalDateTime getLastTouched() { return lastTouched; }
+    }
+
+    /**
+     * Rows in newest-first order, plus whether more exist in the direction read
+     */
+    public static class Page {
+        private final List<ActivityLog> rows;
+        private final boolean more;
+
+        Page(List<ActivityLog> rows, boolean more) {
+            this.rows = rows;
+            this.more = more;
+        }
+
+        public List<ActivityLog> getRows() { return rows; }
+        public boolean hasMore() { return more; }
+        public Cursor getFirst() { return rows.isEmpty() ? null : Cursor.of(rows.get(0)); }
+        public Cursor getLast() { return rows.isEmpty() ? null : Cursor.of(rows.get(rows.size() - 1)); }
+    }
+
+    /**
+     * Shared background writer, started on first use and flushed when the pool closes
+     */
+    public static synchronized ActivityLogWriter getWriter() {
+        if (writer == null) {
+            writer = new ActivityLogWriter(new ActivityLogDAO());
+            DatabaseConnection.addCloseHook(writer::shutdown);
+            ActivityLogWriter w = writer;
+            Metrics.gauge("activity.queued", w::getQueuedCount);
+            Metrics.gauge("activity.dropped", w::getDroppedCount);
+            Metrics.gauge("activity.failed", w::getFailedCount);
+            Metrics.gauge("activity.blocked", w::getBlockedCount);
+        }
+        return writer;
+    }
+
+    /**
+     * Start partition upkeep, rollups and retention in the background (idempotent)
+     */
+    public static synchronized ActivityLogPartitions startMaintenance() {
+        if (partitions == null) {
+            partitions = new ActivityLogPartitions();
+            partitions.start();
+            DatabaseConnection.addCloseHook(partitions::stop);
+        }
+        return partitions;
+    }
+
+    /**
+     * Queue an activity for the background writer.
+     * Returns false only if the event had to be dropped.
+     */
     public boolean logActivity(int userId, String fileName, String filePath, String action, String details) {
-        String sql = "INSERT INTO file_activities (user_id, file_name, file_path, action, details) VALUES (?, ?, ?, ?, ?)";
-        
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-            
-            stmt.setInt(1, userId);
-            stmt.setString(2, fileName);
-            stmt.setString(3, filePath);
-            stmt.setString(4, action);
-            stmt.setString(5, details);
-            
-            return stmt.executeUpdate() > 0;
+        return getWriter().submit(new ActivityLog(userId, fileName, filePath, action, details));
+    }
+
+    /**
+     * Write many activities at once, bypassing the queue.
+     * Meant for bulk operations on a background thread (e.g. one row per deleted file),
+     * which would otherwise overflow the writer queue.
+     */
+    public boolean logActivities(List<ActivityLog> logs) {
+        try {
+            insertBatch(logs);
+            return true;
         } catch (SQLException e) {
             e.printStackTrace();
             return false;
         }
     }
+
+    /**
+     * Write a batch of activities in one transaction
+     */
+    public void insertBatch(List<ActivityLog> logs) throws SQLException {
+        if (logs.isEmpty()) return;
+
+        INSERT_BATCH.time(() -> {
+            try (Connection conn = DatabaseConnection.getConnection()) {
+                boolean autoCommit = conn.getAutoCommit();
+                conn.setAutoCommit(false);
+                try (PreparedStatement stmt = conn.prepareStatement(INSERT_SQL)) {
+                    int pending = 0;
+                    for (ActivityLog log : logs) {
+                        stmt.setInt(1, log.getUserId());
+                        stmt.setString(2, log.getFileName());
+                        stmt.setString(3, log.getFilePath());
+                        stmt.setString(4, log.getAction());
+                        stmt.setString(5, log.getDetails());
+                        stmt.setTimestamp(6, Timestamp.valueOf(log.getTimestamp()));
+                        stmt.addBatch();
+                        if (++pending == MAX_BATCH_ROWS) {
+                            stmt.executeBatch();
+                            pending = 0;
+                        }
+                    }
+                    if (pending > 0) stmt.executeBatch();
+                    conn.commit();
+                    ROWS_WRITTEN.add(logs.size());
+                    return logs.size();
+                } catch (SQLException e) {
+                    conn.rollback();
+                    throw e;
+                } finally {
+                    conn.setAutoCommit(autoCommit);
+                }
+            }
+        });
+    }
     
+    /**
+     * The newest activities, read from the current month's partition when it has enough
+     */
     public List<ActivityLog> getRecentActivities(int limit) {
-        List<ActivityLog> activities = new ArrayList<>();
-        String sql = """
-            SELECT fa.*, u.username 
-            FROM file_activities fa 
-            JOIN users u ON fa.user_id = u.user_id 
-            ORDER BY fa.timestamp DESC 
-            LIMIT ?
-            """;
-        
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-            
-            stmt.setInt(1, limit);
-            ResultSet rs = stmt.executeQuery();
-            
-            while (rs.next()) {
-                activities.add(mapResultSetToActivityLog(rs));
-            }
+        try {
+            return getActivitiesBefore(null, limit).getRows();
         } catch (SQLException e) {
             e.printStackTrace();
+            return new ArrayList<>();
         }
-        return activities;
+    }
+
+    /** Start of the hot partition (the current month) */
+    private static LocalDateTime hotStart() {
+        return YearMonth.now().atDay(1).atStartOfDay();
     }
     
-    public List<ActivityLog> getActivitiesByUser(int userId) {
-        List<ActivityLog> activities = new ArrayList<>();
-        String sql = """
-            SELECT fa.*, u.username 
-            FROM file_activities fa 
-            JOIN users u ON fa.user_id = u.user_id 
-            WHERE fa.user_id = ? 
-            ORDER BY fa.timestamp DESC
-            """;
-        
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
+    /**
+     * Up to limit rows strictly older than the cursor, newest first.
+     * A null cursor starts at the newest row.
+     */
+    public Page getActivitiesBefore(Cursor cursor, int limit) throws SQLException {
+        return getActivitiesBefore(new ActivityLogQuery(), cursor, limit);
+    }
+
+    /**
+     * Like getActivitiesBefore(cursor, limit), restricted to rows matching the filter
+     */
+    public Page getActivitiesBefore(ActivityLogQuery filter, Cursor cursor, int limit) throws SQLException {
+        if (cursor == null && (filter.getFrom() == null || filter.getFrom().isBefore(hotStart()))) {
+            // The newest page usually fits in the current month's partition, so try
+            // that first and let partition pruning skip everything older
+            Page hot = getActivitiesBefore(filter.copy().from(hotStart()), null, limit);
+            if (hot.hasMore()) return hot;
+        }
+        // "timestamp <= ?" on its own keeps this a single index range scan
+        String where = cursor == null
+                ? filter.whereClause()
+                : filter.whereClause("fa.timestamp <= ?", "(fa.timestamp < ? OR fa.activity_id < ?)");
+        String sql = BASE_SELECT + where + "ORDER BY fa.timestamp DESC, fa.activity_id DESC LIMIT ?";
+        List<ActivityLog> rows = queryPage(sql, filter, cursor, limit);
+        boolean more = rows.size() > limit;
+        if (more) rows.remove(rows.size() - 1);
+        return new Page(rows, more);
+    }
+
+    /**
+     * Up to limit rows strictly newer than the cursor, returned newest first
+     */
+    public Page getActivitiesAfter(Cursor cursor, int limit) throws SQLException {
+        return getActivitiesAfter(new ActivityLogQuery(), cursor, limit);
+    }
+
+    public Page getActivitiesAfter(ActivityLogQuery filter, Cursor cursor, int limit) throws SQLException {
+        String where = filter.whereClause("fa.timestamp >= ?", "(fa.timestamp > ? OR fa.activity_id > ?)");
+        String sql = BASE_SELECT + where + "ORDER BY fa.timestamp ASC, fa.activity_id ASC LIMIT ?";
+        List<ActivityLog> rows = queryPage(sql, filter, cursor, limit);
+        boolean more = rows.size() > limit;
+        if (more) rows.remove(rows.size() - 1);
+        Collections.reverse(rows);
+        return new Page(rows, more);
+    }
+
+    /** Runs a page query with the filter and cursor bound; fetches one extra row to detect more */
+    private List<ActivityLog> queryPage(String sql, ActivityLogQuery filter, Cursor cursor, int limit)
+            throws SQLException {
+        return PAGE.time(() -> {
+            List<ActivityLog> rows = new ArrayList<>(limit + 1);
+            try (Connection conn = DatabaseConnection.getConnection();
+                 PreparedStatement stmt = conn.prepareStatement(sql)) {
+            
+                int i = filter.bind(stmt, 1);
+                if (cursor != null) {
+                    Timestamp ts = Timestamp.valueOf(cursor.getTimestamp());
+                    stmt.setTimestamp(i++, ts);
+                    stmt.setTimestamp(i++, ts);
+                    stmt.setInt(i++, cursor.getActivityId());
+                }
+                stmt.setInt(i, limit + 1);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        rows.add(mapResultSetToActivityLog(rs));
+                    }
+                }
+            }
+            return rows;
+        });
+    }
+
+    /**
+     * Matching activities, newest first, read from an open ResultSet as the caller
+     * iterates. Rows are fetched query.getFetchSize() at a time, so exports and
+     * reports never hold the whole result in memory. The caller must close the
+     * iterator (try-with-resources), which returns the connection to the pool.
+     */
+    public ActivityLogIterator stream(ActivityLogQuery query) throws SQLException {
+        String sql = BASE_SELECT + query.whereClause() + "ORDER BY fa.timestamp DESC, fa.activity_id DESC"
+                + (query.getLimit() > 0 ? " LIMIT " + query.getLimit() : "");
+        // Times opening the cursor; rows are read later by the caller
+        return STREAM.time(() -> {
+            Connection conn = DatabaseConnection.getConnection();
+            try {
+                PreparedStatement stmt = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                stmt.setFetchSize(query.getFetchSize());
+                query.bind(stmt, 1);
+                return new ActivityLogIterator(conn, stmt, stmt.executeQuery(), this::mapResultSetToActivityLog);
+            } catch (SQLException e) {
+                conn.close();
+                throw e;
+            }
+        });
+    }
+
+    /**
+     * Number of activities per day and action, computed by the database.
+     * Ordered by day, then action. The time range is [from, to), as for raw rows.
+     */
+    public List<ActionCount> countActionsPerDay(ActivityLogQuery filter) throws SQLException {
+        LocalDate rolledUp = partitions != null ? partitions.getRolledUpThrough() : null;
+        LocalDateTime from = filter.getFrom();
+        LocalDateTime to = filter.getTo();
+        // Whole days inside the range and before the rollup state come from the summary
+        LocalDate firstDay = from == null ? null
+                : from.toLocalTime().equals(LocalTime.MIDNIGHT) ? from.toLocalDate() : from.toLocalDate().plusDays(1);
+        LocalDate endDay = rolledUp == null || to == null || !to.toLocalDate().isBefore(rolledUp)
+                ? rolledUp : to.toLocalDate();
+        if (endDay == null || !filter.canUseSummary() || (firstDay != null && !firstDay.isBefore(endDay))) {
+            return countRawActionsPerDay(filter);
+        }
+        // Completed days come from the rollup (raw rows may already be dropped),
+        // a partial first day and everything from endDay on from the raw table
+        List<ActionCount> counts = new ArrayList<>();
+        if (from != null && firstDay.isAfter(from.toLocalDate())) {
+            counts.addAll(countRawActionsPerDay(filter.copy().to(firstDay.atStartOfDay())));
+        }
+        String sql = "SELECT s.activity_day, s.action, SUM(s.total) AS total "
+                + "FROM activity_daily_summary s "
+                + (filter.needsUsers() ? "JOIN users u ON s.user_id = u.user_id " : "")
+                + (firstDay != null ? filter.summaryWhereClause("s.activity_day >= ?", "s.activity_day < ?")
+                        : filter.summaryWhereClause("s.activity_day < ?"))
+                + "GROUP BY s.activity_day, s.action ORDER BY s.activity_day, s.action";
+        counts.addAll(SUMMARY.time(() -> {
+            List<ActionCount> days = new ArrayList<>();
+            try (Connection conn = DatabaseConnection.getConnection();
+                 PreparedStatement stmt = conn.prepareStatement(sql)) {
             
-            stmt.setInt(1, userId);
-            ResultSet rs = stmt.executeQuery();
+                int i = filter.bindSummary(stmt, 1);
+                if (firstDay != null) stmt.setDate(i++, Date.valueOf(firstDay));
+                stmt.setDate(i, Date.valueOf(endDay));
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        days.add(new ActionCount(rs.getDate("activity_day").toLocalDate(), rs.getString("action"), rs.getLong("total")));
+                    }
+                }
+            }
+            return days;
+        }));
+        if (to == null || to.isAfter(endDay.atStartOfDay())) {
+            counts.addAll(countRawActionsPerDay(filter.copy().from(endDay.atStartOfDay())));
+        }
+        return counts;
+    }
+
+    private List<ActionCount> countRawActionsPerDay(ActivityLogQuery filter) throws SQLException {
+        String sql = "SELECT DATE(fa.timestamp) AS activity_day, fa.action, COUNT(*) AS total "
+                + "FROM file_activities fa " + usersJoin(filter) + filter.whereClause()
+                + "GROUP BY DATE(fa.timestamp), fa.action ORDER BY activity_day, fa.action";
+        return SUMMARY.time(() -> {
+            List<ActionCount> counts = new ArrayList<>();
+            try (Connection conn = DatabaseConnection.getConnection();
+                 PreparedStatement stmt = conn.prepareStatement(sql)) {
+            
+                filter.bind(stmt, 1);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        counts.add(new ActionCount(rs.getDate("activity_day").toLocalDate(), rs.getString("action"), rs.getLong("total")));
+                    }
+                }
+            }
+            return counts;
+        });
+    }
+
+    /**
+     * The most frequently touched file paths, computed by the database
+     */
+    public List<FileCount> getTopFiles(ActivityLogQuery filter, int limit) throws SQLException {
+        String sql = "SELECT fa.file_path, COUNT(*) AS total, MAX(fa.timestamp) AS last_touched "
+                + "FROM file_activities fa " + usersJoin(filter) + filter.whereClause()
+                + "GROUP BY fa.file_path ORDER BY total DESC LIMIT ?";
+        return TOP_FILES.time(() -> {
+            List<FileCount> counts = new ArrayList<>();
+            try (Connection conn = DatabaseConnection.getConnection();
+                 PreparedStatement stmt = conn.prepareStatement(sql)) {
             
-            while (rs.next()) {
-                activities.add(mapResultSetToActivityLog(rs));
+                int i = filter.bind(stmt, 1);
+                stmt.setInt(i, limit);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        Timestamp last = rs.getTimestamp("last_touched");
+                        counts.add(new FileCount(rs.getString("file_path"), rs.getLong("total"),
+                                last != null ? last.toLocalDateTime() : null));
+                    }
+                }
             }
+            return counts;
+        });
+    }
+
+    /** Aggregates only need the users table when filtering by username */
+    private static String usersJoin(ActivityLogQuery filter) {
+        return filter.needsUsers() ? "JOIN users u ON fa.user_id = u.user_id " : "";
+    }
+
+    /**
+     * A user's most recent activities, newest first
+     */
+    public List<ActivityLog> getActivitiesByUser(int userId, int limit) {
+        List<ActivityLog> activities = new ArrayList<>();
+        try (ActivityLogIterator it = stream(new ActivityLogQuery().userId(userId).limit(limit))) {
+            it.forEachRemaining(activities::add);
         } catch (SQLException e) {
             e.printStackTrace();
         }
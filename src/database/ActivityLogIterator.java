@@ -0,0 +1,85 @@
+package database;
+
+import models.ActivityLog;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Iterates over an open activity log ResultSet, mapping one row at a time.
+ * Holds a pooled connection until closed; always use try-with-resources.
+ * Read errors surface as RuntimeException from hasNext/next.
+ */
+public class ActivityLogIterator implements Iterator<ActivityLog>, AutoCloseable {
+
+    interface RowMapper {
+        ActivityLog map(ResultSet rs) throws SQLException;
+    }
+
+    private final Connection conn;
+    private final PreparedStatement stmt;
+    private final ResultSet rs;
+    private final RowMapper mapper;
+    private ActivityLog next;
+    private boolean done;
+    private long rowsRead;
+
+    ActivityLogIterator(Connection conn, PreparedStatement stmt, ResultSet rs, RowMapper mapper) {
+        this.conn = conn;
+        this.stmt = stmt;
+        this.rs = rs;
+        this.mapper = mapper;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (next != null) return true;
+        if (done) return false;
+        try {
+            if (rs.next()) {
+                next = mapper.map(rs);
+                rowsRead++;
+                return true;
+            }
+        } catch (SQLException e) {
+            close();
+            throw new RuntimeException("Error reading activity log", e);
+        }
+        // Release the connection as soon as the result is exhausted
+        close();
+        return false;
+    }
+
+    @Override
+    public ActivityLog next() {
+        if (!hasNext()) throw new NoSuchElementException();
+        ActivityLog row = next;
+        next = null;
+        return row;
+    }
+
+    /** Rows read from the database so far */
+    public long getRowsRead() {
+        return rowsRead;
+    }
+
+    @Override
+    public void close() {
+        if (done) return;
+        done = true;
+        try {
+            rs.close();
+        } catch (SQLException ignored) {}
+        try {
+            stmt.close();
+        } catch (SQLException ignored) {}
+        try {
+            conn.close();
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+}
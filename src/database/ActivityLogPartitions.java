@@ -0,0 +1,406 @@
+package database;
+
+import java.sql.*;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import utils.Metrics;
+
+/**
+ * Storage maintenance for file_activities.
+ * <ul>
+ * <li>Keeps monthly RANGE partitions (p202610, ..., pmax) created ahead of time.</li>
+ * <li>Rolls completed days up into activity_daily_summary, so reports keep working
+ *     after raw rows are gone.</li>
+ * <li>Applies the retention policy by dropping whole partitions that are older
+ *     than the retention window and already rolled up.</li>
+ * </ul>
+ * If the table is not partitioned (see README for the migration, or an embedded
+ * database such as H2) retention falls back to deleting old rows in small batches.
+ *
+ * Every client schedules the job, but a pass only runs while it holds the
+ * MySQL named lock LOCK_NAME, so clients sharing a database never run the DDL
+ * or the rollup at the same time. How far the rollup got is stored in
+ * activity_rollup_state, so a client resumes where any other one stopped.
+ * Passes, skipped passes, partitions added or dropped and expired rows are
+ * published as activity.* metrics for the Diagnostics view.
+ *
+ * Settings: -Dfilemanager.activity.retentionMonths (0 keeps everything) and
+ * -Dfilemanager.activity.maintenanceHours.
+ */
+public class ActivityLogPartitions {
+    public static final int DEFAULT_RETENTION_MONTHS = 24;
+    public static final int MONTHS_AHEAD = 2;
+    private static final int DELETE_BATCH_ROWS = 10_000;
+    private static final Metrics.Timer MAINTENANCE = Metrics.timer("activity.maintenance");
+    private static final Metrics.Counter SKIPPED = Metrics.counter("activity.maintenanceSkipped");
+    private static final Metrics.Counter PARTITIONS_ADDED = Metrics.counter("activity.partitionsAdded");
+    private static final Metrics.Counter PARTITIONS_DROPPED = Metrics.counter("activity.partitionsDropped");
+    private static final Metrics.Counter ROWS_EXPIRED = Metrics.counter("activity.rowsExpired");
+    private static final DateTimeFormatter PARTITION_NAME = DateTimeFormatter.ofPattern("'p'yyyyMM");
+
+    private static final String CREATE_SUMMARY_SQL = """
+        CREATE TABLE IF NOT EXISTS activity_daily_summary (
+            activity_day DATE NOT NULL,
+            user_id INT NOT NULL,
+            action VARCHAR(50) NOT NULL,
+            total INT NOT NULL,
+            PRIMARY KEY (activity_day, user_id, action)
+        )
+        """;
+    // One row: the first day that is not rolled up yet
+    private static final String CREATE_STATE_SQL = """
+        CREATE TABLE IF NOT EXISTS activity_rollup_state (
+            id INT NOT NULL PRIMARY KEY,
+            rolled_up_through DATE NOT NULL
+        )
+        """;
+    public static final String LOCK_NAME = "filemanager.activity_maintenance";
+
+    private final int retentionMonths;
+    private final long intervalHours;
+    private ScheduledExecutorService scheduler;
+    private volatile LocalDate rolledUpThrough;
+
+    public ActivityLogPartitions() {
+        this(Integer.getInteger("filemanager.activity.retentionMonths", DEFAULT_RETENTION_MONTHS),
+             Long.getLong("filemanager.activity.maintenanceHours", 6));
+    }
+
+    public ActivityLogPartitions(int retentionMonths, long intervalHours) {
+        this.retentionMonths = Math.max(0, retentionMonths);
+        this.intervalHours = Math.max(1, intervalHours);
+    }
+
+    /**
+     * Run maintenance now and then every intervalHours on a low-priority daemon thread
+     */
+    public synchronized void start() {
+        if (scheduler != null) return;
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "activity-maintenance");
+            t.setDaemon(true);
+            t.setPriority(Thread.MIN_PRIORITY);
+            return t;
+        });
+        scheduler.scheduleWithFixedDelay(this::runSafely, 0, intervalHours, TimeUnit.HOURS);
+    }
+
+    public synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    /**
+     * First day that is not yet in activity_daily_summary, or null if nothing has
+     * been rolled up. Days before it can be read from the summary table. Read from
+     * activity_rollup_state on every pass, whichever client did the rollup.
+     */
+    public LocalDate getRolledUpThrough() {
+        return rolledUpThrough;
+    }
+
+    private void runSafely() {
+        try {
+            runMaintenance();
+        } catch (Exception e) {
+            System.err.println("Activity log maintenance failed: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * One pass: add upcoming partitions, roll up completed days, apply retention.
+     * Skipped (apart from reading the rollup state) while another client holds the lock.
+     */
+    public void runMaintenance() throws SQLException {
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute(CREATE_SUMMARY_SQL);
+                stmt.execute(CREATE_STATE_SQL);
+            }
+            rolledUpThrough = readRolledUpThrough(conn);
+            if (!acquireLock(conn)) {
+                SKIPPED.increment();
+                return;
+            }
+            try (Metrics.Sample sample = MAINTENANCE.start()) {
+                try {
+                    maintain(conn);
+                } catch (SQLException | RuntimeException e) {
+                    sample.failed();
+                    throw e;
+                }
+            } finally {
+                releaseLock(conn);
+            }
+        }
+    }
+
+    private void maintain(Connection conn) throws SQLException {
+        List<Partition> partitions = listPartitions(conn);
+        if (!partitions.isEmpty()) {
+            addUpcomingPartitions(conn, partitions);
+        }
+        rollUp(conn);
+        if (retentionMonths > 0) {
+            LocalDateTime cutoff = YearMonth.now().minusMonths(retentionMonths).atDay(1).atStartOfDay();
+            if (partitions.isEmpty()) {
+                deleteOlderThan(conn, cutoff);
+            } else {
+                dropPartitionsBefore(conn, partitions, cutoff);
+            }
+        }
+    }
+
+    // ===== LOCKING =====
+
+    /**
+     * Take the named lock without waiting; false if another client holds it.
+     * Databases without GET_LOCK (the embedded H2 stand-in) have a single client.
+     */
+    private boolean acquireLock(Connection conn) {
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT GET_LOCK(?, 0)")) {
+            stmt.setString(1, LOCK_NAME);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() && rs.getInt(1) == 1;
+            }
+        } catch (SQLException e) {
+            return true;
+        }
+    }
+
+    private void releaseLock(Connection conn) {
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT RELEASE_LOCK(?)")) {
+            stmt.setString(1, LOCK_NAME);
+            stmt.executeQuery().close();
+        } catch (SQLException e) {
+            // No GET_LOCK support, or the connection is gone (which releases the lock too)
+        }
+    }
+
+    // ===== PARTITIONS =====
+
+    private static class Partition {
+        final String name;
+        final String description; // Upper bound as UNIX_TIMESTAMP, or MAXVALUE
+
+        Partition(String name, String description) {
+            this.name = name;
+            this.description = description;
+        }
+
+        boolean isMax() {
+            return "MAXVALUE".equalsIgnoreCase(description);
+        }
+    }
+
+    /** Partitions in ascending order; empty if the table is not partitioned */
+    private List<Partition> listPartitions(Connection conn) {
+        String sql = """
+            SELECT PARTITION_NAME, PARTITION_DESCRIPTION
+            FROM information_schema.PARTITIONS
+            WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'file_activities'
+              AND PARTITION_NAME IS NOT NULL
+            ORDER BY PARTITION_ORDINAL_POSITION
+            """;
+        List<Partition> partitions = new ArrayList<>();
+        try (PreparedStatement stmt = conn.prepareStatement(sql);
+             ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                partitions.add(new Partition(rs.getString(1), rs.getString(2)));
+            }
+        } catch (SQLException e) {
+            // No information_schema.PARTITIONS (e.g. H2): treat as unpartitioned
+        }
+        return partitions;
+    }
+
+    /**
+     * Split the catch-all pmax so each of the next MONTHS_AHEAD months has its own
+     * partition before any row lands in it
+     */
+    private void addUpcomingPartitions(Connection conn, List<Partition> partitions) throws SQLException {
+        Partition max = partitions.get(partitions.size() - 1);
+        if (!max.isMax()) {
+            System.err.println("file_activities has no MAXVALUE partition; not adding partitions");
+            return;
+        }
+        List<String> existing = new ArrayList<>();
+        for (Partition p : partitions) existing.add(p.name);
+
+        List<String> added = new ArrayList<>();
+        YearMonth month = YearMonth.now();
+        for (int i = 0; i <= MONTHS_AHEAD; i++, month = month.plusMonths(1)) {
+            String name = PARTITION_NAME.format(month.atDay(1));
+            if (existing.contains(name)) continue;
+            added.add("PARTITION " + name + " VALUES LESS THAN (UNIX_TIMESTAMP('"
+                    + month.plusMonths(1).atDay(1) + " 00:00:00'))");
+        }
+        if (added.isEmpty()) return;
+        added.add("PARTITION " + max.name + " VALUES LESS THAN MAXVALUE");
+        String sql = "ALTER TABLE file_activities REORGANIZE PARTITION " + max.name
+                + " INTO (" + String.join(", ", added) + ")";
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute(sql);
+        }
+        PARTITIONS_ADDED.add(added.size() - 1);
+    }
+
+    /**
+     * Drop monthly partitions that end on or before the cutoff and whose days are
+     * all in the summary table. Dropping a partition is a metadata operation, unlike
+     * DELETE, which would rewrite indexes row by row.
+     */
+    private void dropPartitionsBefore(Connection conn, List<Partition> partitions, LocalDateTime cutoff)
+            throws SQLException {
+        long cutoffSeconds;
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT UNIX_TIMESTAMP(?)")) {
+            stmt.setTimestamp(1, Timestamp.valueOf(cutoff));
+            try (ResultSet rs = stmt.executeQuery()) {
+                rs.next();
+                cutoffSeconds = rs.getLong(1);
+            }
+        }
+        long rolledUpSeconds = Long.MIN_VALUE;
+        if (rolledUpThrough != null) {
+            try (PreparedStatement stmt = conn.prepareStatement("SELECT UNIX_TIMESTAMP(?)")) {
+                stmt.setTimestamp(1, Timestamp.valueOf(rolledUpThrough.atStartOfDay()));
+                try (ResultSet rs = stmt.executeQuery()) {
+                    rs.next();
+                    rolledUpSeconds = rs.getLong(1);
+                }
+            }
+        }
+
+        List<String> drop = new ArrayList<>();
+        for (Partition p : partitions) {
+            if (p.isMax()) break;
+            long upper = Long.parseLong(p.description.trim());
+            if (upper > cutoffSeconds || upper > rolledUpSeconds) break;
+            drop.add(p.name);
+        }
+        if (drop.isEmpty()) return;
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("ALTER TABLE file_activities DROP PARTITION " + String.join(", ", drop));
+        }
+        PARTITIONS_DROPPED.add(drop.size());
+    }
+
+    /**
+     * Fallback retention for unpartitioned tables: short DELETE batches so no
+     * single statement holds locks for long
+     */
+    private void deleteOlderThan(Connection conn, LocalDateTime cutoff) throws SQLException {
+        if (rolledUpThrough == null || rolledUpThrough.atStartOfDay().isBefore(cutoff)) return;
+        String sql = "DELETE FROM file_activities WHERE timestamp < ? LIMIT " + DELETE_BATCH_ROWS;
+        long total = 0;
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setTimestamp(1, Timestamp.valueOf(cutoff));
+            int n;
+            do {
+                n = stmt.executeUpdate();
+                total += n;
+            } while (n == DELETE_BATCH_ROWS && !Thread.currentThread().isInterrupted());
+        }
+        ROWS_EXPIRED.add(total);
+    }
+
+    // ===== ROLLUP =====
+
+    private static LocalDate readRolledUpThrough(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT rolled_up_through FROM activity_rollup_state WHERE id = 1")) {
+            return rs.next() ? rs.getDate(1).toLocalDate() : null;
+        }
+    }
+
+    /** Record progress; runs in the caller's transaction */
+    private static void writeRolledUpThrough(Connection conn, LocalDate day) throws SQLException {
+        try (PreparedStatement update = conn.prepareStatement(
+                "UPDATE activity_rollup_state SET rolled_up_through = ? WHERE id = 1")) {
+            update.setDate(1, Date.valueOf(day));
+            if (update.executeUpdate() > 0) return;
+        }
+        try (PreparedStatement insert = conn.prepareStatement(
+                "INSERT INTO activity_rollup_state (id, rolled_up_through) VALUES (1, ?)")) {
+            insert.setDate(1, Date.valueOf(day));
+            insert.executeUpdate();
+        }
+    }
+
+    /**
+     * Summarise every completed day since the stored rollup state. The last
+     * rolled-up day is recomputed, since rows queued by the log writer at
+     * midnight can land after it was first rolled up.
+     */
+    private void rollUp(Connection conn) throws SQLException {
+        LocalDate start;
+        if (rolledUpThrough != null) {
+            start = rolledUpThrough.minusDays(1);
+        } else {
+            // No state yet: continue a summary written before the state table existed, or start from scratch
+            try (Statement stmt = conn.createStatement();
+                 ResultSet rs = stmt.executeQuery("SELECT MAX(activity_day) FROM activity_daily_summary")) {
+                Date last = rs.next() ? rs.getDate(1) : null;
+                if (last != null) {
+                    start = last.toLocalDate();
+                } else {
+                    try (ResultSet first = stmt.executeQuery("SELECT MIN(timestamp) FROM file_activities")) {
+                        Timestamp ts = first.next() ? first.getTimestamp(1) : null;
+                        if (ts == null) return;
+                        start = ts.toLocalDateTime().toLocalDate();
+                    }
+                }
+            }
+        }
+
+        LocalDate today = LocalDate.now();
+        String delete = "DELETE FROM activity_daily_summary WHERE activity_day = ?";
+        String insert = """
+            INSERT INTO activity_daily_summary (activity_day, user_id, action, total)
+            SELECT ?, user_id, COALESCE(action, ''), COUNT(*)
+            FROM file_activities
+            WHERE timestamp >= ? AND timestamp < ?
+            GROUP BY user_id, COALESCE(action, '')
+            """;
+        boolean autoCommit = conn.getAutoCommit();
+        conn.setAutoCommit(false);
+        try (PreparedStatement del = conn.prepareStatement(delete);
+             PreparedStatement ins = conn.prepareStatement(insert)) {
+            // One transaction per day keeps each step short and the summary consistent
+            for (LocalDate day = start; day.isBefore(today); day = day.plusDays(1)) {
+                if (Thread.currentThread().isInterrupted()) break;
+                del.setDate(1, Date.valueOf(day));
+                del.executeUpdate();
+                ins.setDate(1, Date.valueOf(day));
+                ins.setTimestamp(2, Timestamp.valueOf(day.atStartOfDay()));
+                ins.setTimestamp(3, Timestamp.valueOf(day.plusDays(1).atStartOfDay()));
+                ins.executeUpdate();
+                // The state moves forward in the same transaction as the day's summary
+                writeRolledUpThrough(conn, day.plusDays(1));
+                conn.commit();
+                rolledUpThrough = day.plusDays(1);
+            }
+            if (rolledUpThrough == null && start.equals(today)) {
+                // Every row is from today: nothing before it to summarise
+                writeRolledUpThrough(conn, start);
+                conn.commit();
+                rolledUpThrough = start;
+            }
+        } catch (SQLException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(autoCommit);
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package database;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Filters for activity log queries. Unset filters are left out of the WHERE
+ * clause entirely, so each combination gets a plain indexable predicate.
+ *
+ * <pre>
+ * new ActivityLogQuery().username("alice").action("DELETE").from(start).limit(1000)
+ * </pre>
+ */
+public class ActivityLogQuery {
+    public static final int DEFAULT_FETCH_SIZE = 1000;
+
+    private Integer userId;
+    private String username;
+    private String action;
+    private String pathPrefix;
+    private LocalDateTime from;
+    private LocalDateTime to;
+    private int limit;
+    private int fetchSize = DEFAULT_FETCH_SIZE;
+
+    public ActivityLogQuery userId(int userId) {
+        this.userId = userId;
+        return this;
+    }
+
+    public ActivityLogQuery username(String username) {
+        this.username = blankToNull(username);
+        return this;
+    }
+
+    public ActivityLogQuery action(String action) {
+        this.action = blankToNull(action);
+        return this;
+    }
+
+    /** Only activities on files under this path (plain prefix match, no wildcards) */
+    public ActivityLogQuery pathPrefix(String pathPrefix) {
+        this.pathPrefix = blankToNull(pathPrefix);
+        return this;
+    }
+
+    /** Inclusive lower bound on the timestamp */
+    public ActivityLogQuery from(LocalDateTime from) {
+        this.from = from;
+        return this;
+    }
+
+    /** Exclusive upper bound on the timestamp */
+    public ActivityLogQuery to(LocalDateTime to) {
+        this.to = to;
+        return this;
+    }
+
+    /** Maximum rows to return; 0 means no limit */
+    public ActivityLogQuery limit(int limit) {
+        this.limit = Math.max(0, limit);
+        return this;
+    }
+
+    /** Rows the driver fetches per round trip when streaming */
+    public ActivityLogQuery fetchSize(int fetchSize) {
+        this.fetchSize = Math.max(1, fetchSize);
+        return this;
+    }
+
+    public int getLimit() { return limit; }
+    public int getFetchSize() { return fetchSize; }
+
+    public LocalDateTime getFrom() { return from; }
+    public LocalDateTime getTo() { return to; }
+
+    /** A copy that can be narrowed without changing this query */
+    public ActivityLogQuery copy() {
+        ActivityLogQuery q = new ActivityLogQuery();
+        q.userId = userId;
+        q.username = username;
+        q.action = action;
+        q.pathPrefix = pathPrefix;
+        q.from = from;
+        q.to = to;
+        q.limit = limit;
+        q.fetchSize = fetchSize;
+        return q;
+    }
+
+    /**
+     * The WHERE conditions for this filter (without the WHERE keyword), or an
+     * empty string if nothing is filtered. Assumes file_activities is aliased fa
+     * and users is aliased u.
+     */
+    String whereConditions() {
+        List<String> conditions = new ArrayList<>();
+        if (userId != null) conditions.add("fa.user_id = ?");
+        if (username != null) conditions.add("u.username = ?");
+        if (action != null) conditions.add("fa.action = ?");
+        if (pathPrefix != null) conditions.add("fa.file_path LIKE ? ESCAPE '!'");
+        if (from != null) conditions.add("fa.timestamp >= ?");
+        if (to != null) conditions.add("fa.timestamp < ?");
+        return String.join(" AND ", conditions);
+    }
+
+    /**
+     * " WHERE ... " for this filter plus any extra conditions, or " " if there are none
+     */
+    String whereClause(String... extra) {
+        return where(whereConditions(), extra);
+    }
+
+    /** True if the filter refers to the users table (alias u) */
+    boolean needsUsers() {
+        return username != null;
+    }
+
+    /**
+     * Bind this filter's parameters in the order whereConditions() lists them.
+     * Returns the next free parameter index.
+     */
+    int bind(PreparedStatement stmt, int index) throws SQLException {
+        if (userId != null) stmt.setInt(index++, userId);
+        if (username != null) stmt.setString(index++, username);
+        if (action != null) stmt.setString(index++, action);
+        if (pathPrefix != null) stmt.setString(index++, escapeLike(pathPrefix) + "%");
+        if (from != null) stmt.setTimestamp(index++, Timestamp.valueOf(from));
+        if (to != null) stmt.setTimestamp(index++, Timestamp.valueOf(to));
+        return index;
+    }
+
+    /**
+     * True if activity_daily_summary (alias s) can answer this filter.
+     * The summary has no paths, and time bounds are applied as whole days.
+     */
+    boolean canUseSummary() {
+        return pathPrefix == null;
+    }
+
+    /**
+     * Conditions on the summary table apart from the time range: whole days
+     * cannot honour a from or to inside a day, so the caller bounds the days
+     * and reads partial days from the raw table
+     */
+    String summaryWhereClause(String... extra) {
+        List<String> conditions = new ArrayList<>();
+        if (userId != null) conditions.add("s.user_id = ?");
+        if (username != null) conditions.add("u.username = ?");
+        if (action != null) conditions.add("s.action = ?");
+        return where(String.join(" AND ", conditions), extra);
+    }
+
+    int bindSummary(PreparedStatement stmt, int index) throws SQLException {
+        if (userId != null) stmt.setInt(index++, userId);
+        if (username != null) stmt.setString(index++, username);
+        if (action != null) stmt.setString(index++, action);
+        return index;
+    }
+
+    private static String where(String own, String... extra) {
+        List<String> parts = new ArrayList<>();
+        if (!own.isEmpty()) parts.add(own);
+        for (String e : extra) parts.add(e);
+        return parts.isEmpty() ? " " : " WHERE " + String.join(" AND ", parts) + " ";
+    }
+
+    private static String escapeLike(String s) {
+        return s.replace("!", "!!").replace("%", "!%").replace("_", "!_");
+    }
+
+    private static String blankToNull(String s) {
+        return s == null || s.isBlank() ? null : s.trim();
+    }
+}
@@ -0,0 +1,145 @@
+package database;
+
+import models.ActivityLog;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Background writer for activity logs.
+ * Events are queued in a bounded buffer and written by a single daemon thread
+ * in JDBC batches, flushed when the batch is full or the flush interval expires.
+ */
+public class ActivityLogWriter {
+    public static final int DEFAULT_CAPACITY = 10_000;
+    public static final int DEFAULT_BATCH_SIZE = 500;
+    public static final long DEFAULT_FLUSH_INTERVAL_MS = 250;
+    public static final long DEFAULT_OFFER_TIMEOUT_MS = 50;
+    private static final long SHUTDOWN_TIMEOUT_MS = 10_000;
+
+    private final ActivityLogDAO dao;
+    private final BlockingQueue<ActivityLog> queue;
+    private final int batchSize;
+    private final long flushIntervalMs;
+    private final long offerTimeoutMs;
+    private final Thread worker;
+    private volatile boolean running = true;
+
+    // Counters
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong blocked = new AtomicLong();
+
+    public ActivityLogWriter(ActivityLogDAO dao) {
+        this(dao, DEFAULT_CAPACITY, DEFAULT_BATCH_SIZE, DEFAULT_FLUSH_INTERVAL_MS, DEFAULT_OFFER_TIMEOUT_MS);
+    }
+
+    public ActivityLogWriter(ActivityLogDAO dao, int capacity, int batchSize,
+                             long flushIntervalMs, long offerTimeoutMs) {
+        this.dao = dao;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.batchSize = batchSize;
+        this.flushIntervalMs = flushIntervalMs;
+        this.offerTimeoutMs = offerTimeoutMs;
+        this.worker = new Thread(this::runLoop, "activity-log-writer");
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    /**
+     * Queue an event for writing.
+     * If the queue is full the caller waits up to the offer timeout (back-pressure),
+     * after which the event is dropped and counted.
+     * Returns true if the event was queued.
+     */
+    public boolean submit(ActivityLog log) {
+        if (!running) {
+            dropped.incrementAndGet();
+            return false;
+        }
+        if (queue.offer(log)) {
+            submitted.incrementAndGet();
+            return true;
+        }
+        blocked.incrementAndGet();
+        try {
+            if (queue.offer(log, offerTimeoutMs, TimeUnit.MILLISECONDS)) {
+                submitted.incrementAndGet();
+                return true;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        dropped.incrementAndGet();
+        return false;
+    }
+
+    /**
+     * Stop accepting events and write out everything still queued.
+     */
+    public void shutdown() {
+        if (!running) return;
+        running = false;
+        try {
+            worker.join(SHUTDOWN_TIMEOUT_MS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (worker.isAlive()) {
+            System.err.println("Activity log writer did not finish flushing, " + queue.size() + " events lost");
+        }
+    }
+
+    private void runLoop() {
+        List<ActivityLog> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                ActivityLog first = queue.poll(flushIntervalMs, TimeUnit.MILLISECONDS);
+                if (first == null) continue;
+                batch.add(first);
+
+                // Keep collecting until the batch is full or the flush interval expires
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+                while (batch.size() < batchSize) {
+                    queue.drainTo(batch, batchSize - batch.size());
+                    if (batch.size() >= batchSize || !running) break;
+                    long waitNanos = deadline - System.nanoTime();
+                    if (waitNanos <= 0) break;
+                    ActivityLog next = queue.poll(waitNanos, TimeUnit.NANOSECONDS);
+                    if (next == null) break;
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                // Treat as shutdown: flush what we have and drain the rest
+                running = false;
+            }
+            flush(batch);
+        }
+    }
+
+    private void flush(List<ActivityLog> batch) {
+        if (batch.isEmpty()) return;
+        int count = batch.size();
+        try {
+            dao.insertBatch(batch);
+            written.addAndGet(count);
+        } catch (Exception e) {
+            failed.addAndGet(count);
+            System.err.println("Failed to write " + count + " activity logs: " + e.getMessage());
+        } finally {
+            batch.clear();
+        }
+    }
+
+    public int getQueuedCount() { return queue.size(); }
+    public long getSubmittedCount() { return submitted.get(); }
+    public long getWrittenCount() { return written.get(); }
+    public long getDroppedCount() { return dropped.get(); }
+    public long getFailedCount() { return failed.get(); }
+    public long getBlockedCount() { return blocked.get(); }
+}
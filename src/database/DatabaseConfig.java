@@ -0,0 +1,124 @@
+package database;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Database and pool settings.
+ * Each key is looked up in this order, first match wins:
+ * <ol>
+ * <li>environment variable, e.g. FILEMANAGER_DB_URL for db.url</li>
+ * <li>system property with a "filemanager." prefix, e.g. -Dfilemanager.db.url</li>
+ * <li>the config file: -Dfilemanager.db.config, else ~/.javafx-filemanager/database.properties</li>
+ * <li>the built-in default</li>
+ * </ol>
+ * Keys starting with "datasource." are passed to the JDBC driver as-is,
+ * on top of the MySQL performance defaults below.
+ */
+public class DatabaseConfig {
+    public static final Path DEFAULT_FILE = Paths.get(System.getProperty("user.home"), ".javafx-filemanager", "database.properties");
+
+    private static final Map<String, String> DEFAULTS = new LinkedHashMap<>();
+    static {
+        DEFAULTS.put("db.url", "jdbc:mysql://localhost:3306/users");
+        DEFAULTS.put("db.user", "root");
+        DEFAULTS.put("db.password", "112233");
+        DEFAULTS.put("pool.maximumPoolSize", "10");
+        DEFAULTS.put("pool.minimumIdle", "2");
+        // Fail fast: a dead server should show up in seconds, not block a caller for 30
+        DEFAULTS.put("pool.connectionTimeoutMs", "3000");
+        DEFAULTS.put("pool.validationTimeoutMs", "2000");
+        DEFAULTS.put("pool.idleTimeoutMs", "600000");
+        DEFAULTS.put("pool.maxLifetimeMs", "1800000");
+    }
+
+    /** MySQL Connector/J settings for statement caching and batching */
+    private static final Map<String, String> DRIVER_DEFAULTS = new LinkedHashMap<>();
+    static {
+        DRIVER_DEFAULTS.put("cachePrepStmts", "true");
+        DRIVER_DEFAULTS.put("prepStmtCacheSize", "250");
+        DRIVER_DEFAULTS.put("prepStmtCacheSqlLimit", "2048");
+        DRIVER_DEFAULTS.put("useServerPrepStmts", "true");
+        DRIVER_DEFAULTS.put("rewriteBatchedStatements", "true");
+        DRIVER_DEFAULTS.put("cacheResultSetMetadata", "true");
+        DRIVER_DEFAULTS.put("cacheServerConfiguration", "true");
+        DRIVER_DEFAULTS.put("useLocalSessionState", "true");
+        DRIVER_DEFAULTS.put("elideSetAutoCommits", "true");
+        DRIVER_DEFAULTS.put("maintainTimeStats", "false");
+        // Lets statements with a fetch size (e.g. ActivityLogDAO.stream) read through a server-side cursor
+        DRIVER_DEFAULTS.put("useCursorFetch", "true");
+    }
+
+    private final Properties file = new Properties();
+    private final Path source;
+
+    public DatabaseConfig() {
+        String configured = System.getProperty("filemanager.db.config");
+        Path path = configured != null ? Paths.get(configured) : DEFAULT_FILE;
+        Path loaded = null;
+        if (Files.isRegularFile(path)) {
+            try (InputStream in = Files.newInputStream(path)) {
+                file.load(in);
+                loaded = path;
+            } catch (IOException e) {
+                System.err.println("Could not read database config " + path + ": " + e.getMessage());
+            }
+        } else if (configured != null) {
+            System.err.println("Database config not found: " + path);
+        }
+        source = loaded;
+    }
+
+    /** The config file that was read, or null if only defaults/overrides apply */
+    public Path getSource() {
+        return source;
+    }
+
+    public String get(String key) {
+        String env = System.getenv("FILEMANAGER_" + key.replace('.', '_').toUpperCase(Locale.ROOT));
+        if (env != null) return env;
+        String prop = System.getProperty("filemanager." + key);
+        if (prop != null) return prop;
+        String value = file.getProperty(key);
+        return value != null ? value.trim() : DEFAULTS.get(key);
+    }
+
+    public int getInt(String key) {
+        try {
+            return Integer.parseInt(get(key));
+        } catch (NumberFormatException e) {
+            System.err.println("Invalid value for " + key + ", using " + DEFAULTS.get(key));
+            return Integer.parseInt(DEFAULTS.get(key));
+        }
+    }
+
+    public long getLong(String key) {
+        try {
+            return Long.parseLong(get(key));
+        } catch (NumberFormatException e) {
+            System.err.println("Invalid value for " + key + ", using " + DEFAULTS.get(key));
+            return Long.parseLong(DEFAULTS.get(key));
+        }
+    }
+
+    /**
+     * Driver properties: the MySQL defaults (for MySQL URLs) plus any datasource.* keys
+     */
+    public Map<String, String> getDriverProperties() {
+        Map<String, String> props = new LinkedHashMap<>();
+        if (get("db.url").startsWith("jdbc:mysql:")) props.putAll(DRIVER_DEFAULTS);
+        for (String name : file.stringPropertyNames()) {
+            if (name.startsWith("datasource.")) {
+                props.put(name.substring("datasource.".length()), file.getProperty(name).trim());
+            }
+        }
+        return props;
+    }
+}
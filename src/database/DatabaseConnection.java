@@ -4,27 +4,60 @@ import com.zaxxer.hikari.HikariConfig;
 import com.zaxxer.hikari.HikariDataSource;
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
+/**
+ * Shared connection pool. The pool is built on first use rather than when the
+ * class loads, and never blocks on an unreachable server while starting: the
+ * first getConnection() waits at most pool.connectionTimeoutMs.
+ */
 public class DatabaseConnection {
-    private static final String DB_URL = "jdbc:mysql://localhost:3306/users";
-    private static final String DB_USER = "root"; 
-    private static final String DB_PASSWORD = "112233"; 
-    
-    private static HikariDataSource dataSource;
+    private static volatile HikariDataSource dataSource;
+    private static volatile boolean closed;
+    private static final PoolMetrics metrics = new PoolMetrics();
+    private static final List<Runnable> closeHooks = new CopyOnWriteArrayList<>();
 
-    static {
+    /**
+     * Build the pool if it does not exist yet. Cheap after the first call.
+     */
+    public static HikariDataSource getDataSource() {
+        HikariDataSource ds = dataSource;
+        if (ds != null) return ds;
+        synchronized (DatabaseConnection.class) {
+            if (dataSource == null) {
+                if (closed) throw new IllegalStateException("Database connection pool is closed");
+                dataSource = createDataSource();
+            }
+            return dataSource;
+        }
+    }
+
+    /** True once the pool has been built (it may still have no connections) */
+    public static boolean isInitialized() {
+        return dataSource != null;
+    }
+
+    private static HikariDataSource createDataSource() {
         try {
+            DatabaseConfig settings = new DatabaseConfig();
             HikariConfig config = new HikariConfig();
-            config.setJdbcUrl(DB_URL);
-            config.setUsername(DB_USER);
-            config.setPassword(DB_PASSWORD);
-            config.setMaximumPoolSize(10);
-            config.setMinimumIdle(2);
-            config.setConnectionTimeout(30000);
-            config.setIdleTimeout(600000);
-            config.setMaxLifetime(1800000);
-            
-            dataSource = new HikariDataSource(config);
+            config.setPoolName("filemanager");
+            config.setJdbcUrl(settings.get("db.url"));
+            config.setUsername(settings.get("db.user"));
+            config.setPassword(settings.get("db.password"));
+            config.setMaximumPoolSize(settings.getInt("pool.maximumPoolSize"));
+            config.setMinimumIdle(settings.getInt("pool.minimumIdle"));
+            config.setConnectionTimeout(settings.getLong("pool.connectionTimeoutMs"));
+            config.setValidationTimeout(settings.getLong("pool.validationTimeoutMs"));
+            config.setIdleTimeout(settings.getLong("pool.idleTimeoutMs"));
+            config.setMaxLifetime(settings.getLong("pool.maxLifetimeMs"));
+            // Don't connect in the constructor; idle connections are opened in the background
+            config.setInitializationFailTimeout(-1);
+            settings.getDriverProperties().forEach(config::addDataSourceProperty);
+            config.setMetricsTrackerFactory(metrics);
+
+            return new HikariDataSource(config);
         } catch (Exception e) {
             e.printStackTrace();
             throw new RuntimeException("Failed to initialize database connection pool", e);
@@ -32,18 +65,44 @@ public class DatabaseConnection {
     }
 
     public static Connection getConnection() throws SQLException {
-        return dataSource.getConnection();
+        return getDataSource().getConnection();
+    }
+
+    /**
+     * Register a task to run before the pool is closed (e.g. flushing queued writes)
+     */
+    public static void addCloseHook(Runnable hook) {
+        closeHooks.add(hook);
     }
 
     public static void closeDataSource() {
-        if (dataSource != null) {
-            dataSource.close();
+        for (Runnable hook : closeHooks) {
+            try {
+                hook.run();
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        }
+        closeHooks.clear();
+        // Never builds the pool just to close it
+        synchronized (DatabaseConnection.class) {
+            closed = true;
+            if (dataSource != null) {
+                dataSource.close();
+            }
         }
     }
 
+    /**
+     * Current pool occupancy and acquire latency
+     */
+    public static PoolMetrics.Snapshot getPoolMetrics() {
+        return metrics.snapshot();
+    }
+
     public static boolean testConnection() {
         try (Connection conn = getConnection()) {
-            return conn.isValid(5);
+            return conn.isValid(2);
         } catch (SQLException e) {
             return false;
         }
@@ -0,0 +1,92 @@
+package database;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import utils.Metrics;
+
+/**
+ * Writes users.last_login in the background.
+ * Logins only record the time in a map keyed by user id, so repeated logins of
+ * one user between flushes collapse into a single row update, and each flush is
+ * one JDBC batch on one connection.
+ */
+public final class LastLoginWriter {
+    public static final long DEFAULT_FLUSH_INTERVAL_MS = 2000;
+    private static final String UPDATE_SQL = "UPDATE users SET last_login = ? WHERE user_id = ?";
+    private static final Metrics.Timer FLUSH = Metrics.timer("db.users.lastLogin");
+
+    private final ConcurrentHashMap<Integer, LocalDateTime> pending = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "last-login-writer");
+        t.setDaemon(true);
+        return t;
+    });
+
+    public LastLoginWriter() {
+        this(DEFAULT_FLUSH_INTERVAL_MS);
+    }
+
+    public LastLoginWriter(long flushIntervalMs) {
+        scheduler.scheduleWithFixedDelay(this::flushSafely, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Record a login; only the latest time per user is kept until the next flush
+     */
+    public void record(int userId, LocalDateTime time) {
+        pending.merge(userId, time, (a, b) -> a.isAfter(b) ? a : b);
+    }
+
+    /**
+     * Stop the timer and write whatever is still pending
+     */
+    public void shutdown() {
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flushSafely();
+    }
+
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    private synchronized void flushSafely() {
+        if (pending.isEmpty()) return;
+        // Take a snapshot; logins recorded meanwhile stay queued for the next flush
+        Map<Integer, LocalDateTime> batch = new HashMap<>();
+        for (Integer userId : pending.keySet()) {
+            LocalDateTime time = pending.remove(userId);
+            if (time != null) batch.put(userId, time);
+        }
+        try {
+            FLUSH.time(() -> {
+                try (Connection conn = DatabaseConnection.getConnection();
+                     PreparedStatement stmt = conn.prepareStatement(UPDATE_SQL)) {
+                    for (Map.Entry<Integer, LocalDateTime> e : batch.entrySet()) {
+                        stmt.setTimestamp(1, Timestamp.valueOf(e.getValue()));
+                        stmt.setInt(2, e.getKey());
+                        stmt.addBatch();
+                    }
+                    return stmt.executeBatch();
+                }
+            });
+        } catch (SQLException e) {
+            // Put them back unless a newer login has been recorded since
+            batch.forEach(this::record);
+            System.err.println("Error updating last login: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package database;
+
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import com.zaxxer.hikari.metrics.MetricsTrackerFactory;
+import com.zaxxer.hikari.metrics.PoolStats;
+import java.util.concurrent.atomic.AtomicLong;
+import utils.Metrics;
+
+/**
+ * Connection pool metrics collected through Hikari's metrics tracker hook.
+ * Pool occupancy comes from Hikari's own PoolStats; acquire latency is kept as
+ * running totals plus an exponentially weighted recent average.
+ * Everything is also published to Metrics under "pool.*".
+ */
+public class PoolMetrics implements MetricsTrackerFactory {
+    private static final double EWMA_WEIGHT = 0.2;
+    private static final Metrics.Timer ACQUIRE = Metrics.timer("pool.acquire");
+    private static final Metrics.Timer USAGE = Metrics.timer("pool.usage");
+    private static final Metrics.Counter TIMEOUTS = Metrics.counter("pool.timeouts");
+
+    private volatile PoolStats poolStats;
+    private final AtomicLong acquired = new AtomicLong();
+    private final AtomicLong acquireNanosTotal = new AtomicLong();
+    private final AtomicLong acquireNanosMax = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+    private final AtomicLong usageMillisTotal = new AtomicLong();
+    private volatile double recentAcquireNanos;
+
+    /**
+     * Point-in-time copy of the metrics
+     */
+    public static class Snapshot {
+        private final int active;
+        private final int idle;
+        private final int total;
+        private final int pending;
+        private final int max;
+        private final long acquired;
+        private final double avgAcquireMillis;
+        private final double recentAcquireMillis;
+        private final double maxAcquireMillis;
+        private final long timeouts;
+        private final double avgUsageMillis;
+
+        Snapshot(int active, int idle, int total, int pending, int max, long acquired, double avgAcquireMillis,
+                 double recentAcquireMillis, double maxAcquireMillis, long timeouts, double avgUsageMillis) {
+            this.active = active;
+            this.idle = idle;
+            this.total = total;
+            this.pending = pending;
+            this.max = max;
+            this.acquired = acquired;
+            this.avgAcquireMillis = avgAcquireMillis;
+            this.recentAcquireMillis = recentAcquireMillis;
+            this.maxAcquireMillis = maxAcquireMillis;
+            this.timeouts = timeouts;
+            this.avgUsageMillis = avgUsageMillis;
+        }
+
+        public int getActive() { return active; }
+        public int getIdle() { return idle; }
+        public int getTotal() { return total; }
+        /** Threads waiting for a connection */
+        public int getPending() { return pending; }
+        public int getMax() { return max; }
+        public long getAcquired() { return acquired; }
+        public double getAvgAcquireMillis() { return avgAcquireMillis; }
+        public double getRecentAcquireMillis() { return recentAcquireMillis; }
+        public double getMaxAcquireMillis() { return maxAcquireMillis; }
+        public long getTimeouts() { return timeouts; }
+        public double getAvgUsageMillis() { return avgUsageMillis; }
+    }
+
+    @Override
+    public IMetricsTracker create(String poolName, PoolStats stats) {
+        this.poolStats = stats;
+        Metrics.gauge("pool.active", stats::getActiveConnections);
+        Metrics.gauge("pool.idle", stats::getIdleConnections);
+        Metrics.gauge("pool.pending", stats::getPendingThreads);
+        return new IMetricsTracker() {
+            @Override
+            public void recordConnectionAcquiredNanos(long nanos) {
+                ACQUIRE.record(nanos);
+                acquired.incrementAndGet();
+                acquireNanosTotal.addAndGet(nanos);
+                acquireNanosMax.accumulateAndGet(nanos, Math::max);
+                // Racy read-modify-write is fine for a display average
+                recentAcquireNanos = recentAcquireNanos == 0
+                        ? nanos
+                        : recentAcquireNanos + EWMA_WEIGHT * (nanos - recentAcquireNanos);
+            }
+
+            @Override
+            public void recordConnectionUsageMillis(long millis) {
+                USAGE.recordMillis(millis);
+                usageMillisTotal.addAndGet(millis);
+            }
+
+            @Override
+            public void recordConnectionTimeout() {
+                TIMEOUTS.increment();
+                timeouts.incrementAndGet();
+            }
+        };
+    }
+
+    public Snapshot snapshot() {
+        PoolStats stats = poolStats;
+        long n = acquired.get();
+        return new Snapshot(
+                stats != null ? stats.getActiveConnections() : 0,
+                stats != null ? stats.getIdleConnections() : 0,
+                stats != null ? stats.getTotalConnections() : 0,
+                stats != null ? stats.getPendingThreads() : 0,
+                stats != null ? stats.getMaxConnections() : 0,
+                n,
+                n == 0 ? 0 : acquireNanosTotal.get() / (double) n / 1_000_000,
+                recentAcquireNanos / 1_000_000,
+                acquireNanosMax.get() / 1_000_000.0,
+                timeouts.get(),
+                n == 0 ? 0 : usageMillisTotal.get() / (double) n);
+    }
+}
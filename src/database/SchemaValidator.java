@@ -0,0 +1,56 @@
+package database;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Checks that the tables and columns the DAOs read are present, so a wrong
+ * database is reported once at startup instead of as SQL errors later.
+ * Uses "WHERE 1=0" queries, which only touch table metadata.
+ */
+public class SchemaValidator {
+    private static final Map<String, List<String>> REQUIRED = new LinkedHashMap<>();
+
+    static {
+        REQUIRED.put("users", List.of("user_id", "username", "password_hash", "role", "email",
+                "created_at", "last_login"));
+        REQUIRED.put("file_activities", List.of("activity_id", "user_id", "file_name", "file_path",
+                "action", "details", "timestamp"));
+    }
+
+    /**
+     * Human-readable problems; empty if the schema is usable
+     */
+    public static List<String> validate() throws SQLException {
+        List<String> problems = new ArrayList<>();
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            for (Map.Entry<String, List<String>> table : REQUIRED.entrySet()) {
+                Set<String> columns = new HashSet<>();
+                try (PreparedStatement stmt = conn.prepareStatement("SELECT * FROM " + table.getKey() + " WHERE 1=0")) {
+                    ResultSetMetaData meta = stmt.executeQuery().getMetaData();
+                    for (int i = 1; i <= meta.getColumnCount(); i++) {
+                        columns.add(meta.getColumnLabel(i).toLowerCase(Locale.ROOT));
+                    }
+                } catch (SQLException e) {
+                    problems.add("Table " + table.getKey() + " is missing or unreadable: " + e.getMessage());
+                    continue;
+                }
+                for (String column : table.getValue()) {
+                    if (!columns.contains(column)) {
+                        problems.add("Column " + table.getKey() + "." + column + " is missing");
+                    }
+                }
+            }
+        }
+        return problems;
+    }
+}
@@ -0,0 +1,99 @@
+package database;
+
+import models.User;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory copy of the users table, indexed by id and by username.
+ * Entries expire after a TTL (-Dfilemanager.userCache.ttlSeconds, default 300) so
+ * changes made by another client are picked up; changes made through UserDAO
+ * are written through immediately. Logins bypass it and read the row, so a role
+ * change or delete takes effect at the next login. Callers always get copies,
+ * so a User held by the UI never changes underneath the cache or vice versa.
+ */
+public class UserCache {
+    public static final long DEFAULT_TTL_SECONDS = 300;
+
+    private static class Entry {
+        final User user;
+        final long loadedAt;
+
+        Entry(User user, long loadedAt) {
+            this.user = user;
+            this.loadedAt = loadedAt;
+        }
+    }
+
+    private final ConcurrentHashMap<Integer, Entry> byId = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Entry> byUsername = new ConcurrentHashMap<>();
+    private final long ttlNanos;
+    private volatile long fullyLoadedAt = -1;
+
+    public UserCache() {
+        this(Long.getLong("filemanager.userCache.ttlSeconds", DEFAULT_TTL_SECONDS));
+    }
+
+    public UserCache(long ttlSeconds) {
+        this.ttlNanos = Math.max(0, ttlSeconds) * 1_000_000_000L;
+    }
+
+    public User getById(int userId) {
+        return fresh(byId.get(userId));
+    }
+
+    public User getByUsername(String username) {
+        return fresh(byUsername.get(username));
+    }
+
+    public void put(User user) {
+        Entry entry = new Entry(new User(user), System.nanoTime());
+        Entry old = byId.put(user.getUserId(), entry);
+        if (old != null && !old.user.getUsername().equals(user.getUsername())) {
+            byUsername.remove(old.user.getUsername(), old);
+        }
+        byUsername.put(user.getUsername(), entry);
+    }
+
+    public void remove(int userId) {
+        Entry old = byId.remove(userId);
+        if (old != null) byUsername.remove(old.user.getUsername(), old);
+        fullyLoadedAt = -1;
+    }
+
+    /**
+     * Replace the contents with a full load of the table
+     */
+    public synchronized void putAll(List<User> users) {
+        byId.clear();
+        byUsername.clear();
+        for (User u : users) put(u);
+        fullyLoadedAt = System.nanoTime();
+    }
+
+    /**
+     * Every user sorted by username, or null if the table has not been loaded
+     * (or the load has expired)
+     */
+    public List<User> getAll() {
+        long loadedAt = fullyLoadedAt;
+        if (loadedAt < 0 || System.nanoTime() - loadedAt > ttlNanos) return null;
+        List<User> users = new ArrayList<>();
+        for (Entry e : byId.values()) users.add(new User(e.user));
+        users.sort(Comparator.comparing(User::getUsername));
+        return users;
+    }
+
+    public void clear() {
+        byId.clear();
+        byUsername.clear();
+        fullyLoadedAt = -1;
+    }
+
+    private User fresh(Entry e) {
+        if (e == null || System.nanoTime() - e.loadedAt > ttlNanos) return null;
+        return new User(e.user);
+    }
+}
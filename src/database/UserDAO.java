@@ -3,31 +3,120 @@ package database;
 import models.User;
 import models.UserRole;
 import utils.PasswordUtils;
+import utils.Metrics;
 import java.sql.*;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 
 public class UserDAO {
+    // Shared by every UserDAO instance (login dialog, main window)
+    private static final UserCache cache = new UserCache();
+    private static LastLoginWriter lastLoginWriter;
+    private static final Metrics.Timer LOAD = Metrics.timer("db.users.load");
+    private static final Metrics.Timer GET_ALL = Metrics.timer("db.users.getAll");
+    private static final Metrics.Timer UPDATE_ROLE = Metrics.timer("db.users.updateRole");
+    private static final Metrics.Timer CHANGE_PASSWORD = Metrics.timer("db.users.changePassword");
+    private static final Metrics.Timer UPGRADE_HASH = Metrics.timer("db.users.upgradeHash");
+    private static final Metrics.Timer CREATE = Metrics.timer("db.users.create");
+    private static final Metrics.Timer AUTHENTICATE = Metrics.timer("auth.login");
+    private static final Metrics.Counter LOGIN_FAILURES = Metrics.counter("auth.failures");
+    private static final Metrics.Counter HASH_UPGRADES = Metrics.counter("auth.hashUpgrades");
+    // Returned by the timed insert in createUser in place of a generated id
+    private static final int NOT_INSERTED = -1;
+    private static final int DUPLICATE = -2;
+
+    /**
+     * Shared last_login writer, started on first use and flushed when the pool closes
+     */
+    private static synchronized LastLoginWriter getLastLoginWriter() {
+        if (lastLoginWriter == null) {
+            lastLoginWriter = new LastLoginWriter();
+            DatabaseConnection.addCloseHook(lastLoginWriter::shutdown);
+        }
+        return lastLoginWriter;
+    }
+
+    /**
+     * Drop everything cached, e.g. after editing the users table by hand
+     */
+    public static void clearCache() {
+        cache.clear();
+    }
     
     /**
      * Check if a username already exists in the database
      */
     public boolean usernameExists(String username) {
-        String sql = "SELECT COUNT(*) FROM users WHERE username = ?";
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-            
-            stmt.setString(1, username);
-            ResultSet rs = stmt.executeQuery();
-            
-            if (rs.next()) {
-                return rs.getInt(1) > 0;
+        return findByUsername(username) != null;
+    }
+
+    /**
+     * Look up a user, from the cache when it is fresh
+     */
+    public User findByUsername(String username) {
+        User cached = cache.getByUsername(username);
+        if (cached != null) return cached;
+        try {
+            return loadUser("SELECT * FROM users WHERE username = ?", stmt -> stmt.setString(1, username));
+        } catch (SQLException e) {
+            System.err.println("Error loading user: " + e.getMessage());
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    public User findById(int userId) {
+        User cached = cache.getById(userId);
+        if (cached != null) return cached;
+        try {
+            return loadUser("SELECT * FROM users WHERE user_id = ?", stmt -> stmt.setInt(1, userId));
+        } catch (SQLException e) {
+            System.err.println("Error loading user: " + e.getMessage());
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    private interface Binder {
+        void bind(PreparedStatement stmt) throws SQLException;
+    }
+
+    /** Read one user row and put it in the cache; null if there is no such row */
+    private User loadUser(String sql, Binder binder) throws SQLException {
+        return LOAD.time(() -> {
+            try (Connection conn = DatabaseConnection.getConnection();
+                 PreparedStatement stmt = conn.prepareStatement(sql)) {
+                
+                binder.bind(stmt);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    if (!rs.next()) return null;
+                    User user = mapResultSetToUser(rs);
+                    cache.put(user);
+                    return user;
+                }
             }
+        });
+    }
+
+    /** Read a user from the database, replacing or dropping its cache entry */
+    private User loadFresh(String username) {
+        User cached = cache.getByUsername(username);
+        try {
+            User user = loadUser("SELECT * FROM users WHERE username = ?", stmt -> stmt.setString(1, username));
+            if (user == null && cached != null) cache.remove(cached.getUserId());
+            return user;
         } catch (SQLException e) {
-            System.err.println("Error checking username existence: " + e.getMessage());
+            System.err.println("Error loading user: " + e.getMessage());
             e.printStackTrace();
+            return null;
         }
-        return false;
+    }
+
+    /** Re-read a user after a write so the cache matches the database */
+    private void refresh(int userId) {
+        cache.remove(userId);
+        findById(userId);
     }
     
     /**
@@ -41,17 +130,29 @@ public class UserDAO {
         return createUser(username, password, role, email) == 0;
     }
     
+    /**
+     * Every user, loaded once and then served from the cache until it expires
+     */
     public List<User> getAllUsers() {
+        List<User> cached = cache.getAll();
+        if (cached != null) return cached;
+
         List<User> users = new ArrayList<>();
         String sql = "SELECT * FROM users ORDER BY username";
         
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql);
-             ResultSet rs = stmt.executeQuery()) {
-            
-            while (rs.next()) {
-                users.add(mapResultSetToUser(rs));
-            }
+        try {
+            GET_ALL.time(() -> {
+                try (Connection conn = DatabaseConnection.getConnection();
+                     PreparedStatement stmt = conn.prepareStatement(sql);
+                     ResultSet rs = stmt.executeQuery()) {
+                    
+                    while (rs.next()) {
+                        users.add(mapResultSetToUser(rs));
+                    }
+                    cache.putAll(users);
+                    return users;
+                }
+            });
         } catch (SQLException e) {
             System.err.println("Error getting all users: " + e.getMessage());
             e.printStackTrace();
@@ -61,13 +162,20 @@ public class UserDAO {
     
     public boolean updateUserRole(int userId, UserRole newRole) {
         String sql = "UPDATE users SET role = ? WHERE user_id = ?";
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-            
-            stmt.setString(1, newRole.name());
-            stmt.setInt(2, userId);
-            
-            return stmt.executeUpdate() > 0;
+        try {
+            boolean updated = UPDATE_ROLE.time(() -> {
+                try (Connection conn = DatabaseConnection.getConnection();
+                     PreparedStatement stmt = conn.prepareStatement(sql)) {
+                    
+                    stmt.setString(1, newRole.name());
+                    stmt.setInt(2, userId);
+                    
+                    return stmt.executeUpdate() > 0;
+                }
+            });
+            // Re-read once the write's connection is back in the pool
+            refresh(userId);
+            return updated;
         } catch (SQLException e) {
             System.err.println("Error updating user role: " + e.getMessage());
             e.printStackTrace();
@@ -81,13 +189,20 @@ public class UserDAO {
         }
         
         String sql = "UPDATE users SET password_hash = ? WHERE user_id = ?";
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-            
-            stmt.setString(1, PasswordUtils.hashPassword(newPassword));
-            stmt.setInt(2, userId);
-            
-            return stmt.executeUpdate() > 0;
+        try {
+            boolean updated = CHANGE_PASSWORD.time(() -> {
+                try (Connection conn = DatabaseConnection.getConnection();
+                     PreparedStatement stmt = conn.prepareStatement(sql)) {
+                    
+                    stmt.setString(1, PasswordUtils.hashPassword(newPassword));
+                    stmt.setInt(2, userId);
+                    
+                    return stmt.executeUpdate() > 0;
+                }
+            });
+            // Re-read once the write's connection is back in the pool
+            refresh(userId);
+            return updated;
         } catch (SQLException e) {
             System.err.println("Error changing password: " + e.getMessage());
             e.printStackTrace();
@@ -95,17 +210,15 @@ public class UserDAO {
         }
     }
     
-    private void updateLastLogin(int userId) {
-        String sql = "UPDATE users SET last_login = CURRENT_TIMESTAMP WHERE user_id = ?";
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-            
-            stmt.setInt(1, userId);
-            stmt.executeUpdate();
-        } catch (SQLException e) {
-            System.err.println("Error updating last login: " + e.getMessage());
-            e.printStackTrace();
-        }
+    /**
+     * Record a login. The cache is updated now; the row is written in the next
+     * coalesced batch.
+     */
+    private void updateLastLogin(User user) {
+        LocalDateTime now = LocalDateTime.now();
+        user.setLastLogin(now);
+        cache.put(user);
+        getLastLoginWriter().record(user.getUserId(), now);
     }
     
     private User mapResultSetToUser(ResultSet rs) throws SQLException {
@@ -129,84 +242,102 @@ public class UserDAO {
         return user;
     }
     
- // Add this debugging version to your UserDAO class
+    /**
+     * Check a username and password. On success a hash made with an old scheme or
+     * a lower cost is replaced with a fresh one, so users migrate as they log in.
+     * Hashing is slow by design; call this through PasswordUtils.runHashing.
+     */
     public User authenticateUser(String username, String password) {
-        String sql = "SELECT * FROM users WHERE username = ?";
-        
-        System.out.println("DEBUG - Attempting to authenticate user: '" + username + "'");
-        
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-            
-            stmt.setString(1, username);
-            ResultSet rs = stmt.executeQuery();
-            
-            if (rs.next()) {
-                System.out.println("DEBUG - User found in database");
-                String storedHash = rs.getString("password_hash");
-                System.out.println("DEBUG - Retrieved stored hash: '" + storedHash + "'");
-                
-                // Test the password verification
-                boolean passwordMatch = PasswordUtils.verifyPassword(password, storedHash);
-                System.out.println("DEBUG - Password verification result: " + passwordMatch);
-                
-                if (passwordMatch) {
-                    System.out.println("DEBUG - Authentication successful");
-                    User user = mapResultSetToUser(rs);
-                    updateLastLogin(user.getUserId());
-                    return user;
-                } else {
-                    System.out.println("DEBUG - Password verification failed");
+        return AUTHENTICATE.time(() -> {
+            User user = authenticate(username, password);
+            if (user == null) LOGIN_FAILURES.increment();
+            return user;
+        });
+    }
+
+    private User authenticate(String username, String password) {
+        // Always read the row: a cached entry could still carry the role (or the
+        // existence) of a user another client has since demoted or deleted
+        User user = loadFresh(username);
+        if (user == null || !PasswordUtils.verifyPassword(password, user.getPasswordHash())) {
+            return null;
+        }
+        if (PasswordUtils.needsRehash(user.getPasswordHash())) {
+            upgradePasswordHash(user, password, user.getPasswordHash());
+        }
+        updateLastLogin(user);
+        return user;
+    }
+
+    /**
+     * Store a current-strength hash. The old hash is part of the WHERE clause so a
+     * password changed concurrently is never overwritten.
+     */
+    private void upgradePasswordHash(User user, String password, String oldHash) {
+        String newHash = PasswordUtils.hashPassword(password);
+        String sql = "UPDATE users SET password_hash = ? WHERE user_id = ? AND password_hash = ?";
+        try {
+            boolean upgraded = UPGRADE_HASH.time(() -> {
+                try (Connection conn = DatabaseConnection.getConnection();
+                     PreparedStatement stmt = conn.prepareStatement(sql)) {
+                    
+                    stmt.setString(1, newHash);
+                    stmt.setInt(2, user.getUserId());
+                    stmt.setString(3, oldHash);
+                    return stmt.executeUpdate() > 0;
                 }
-            } else {
-                System.out.println("DEBUG - User not found in database");
+            });
+            if (upgraded) {
+                user.setPasswordHash(newHash);
+                cache.put(user);
+                HASH_UPGRADES.increment();
             }
         } catch (SQLException e) {
-            System.err.println("Error during authentication: " + e.getMessage());
-            e.printStackTrace();
+            // Login still succeeds; the upgrade is retried next time
+            System.err.println("Error upgrading password hash: " + e.getMessage());
         }
-        return null;
     }
 
-    // Also add debugging to your createUser method
+    /**
+     * Create a new user.
+     * Returns: 0 = success, 1 = username exists, 2 = invalid password, 3 = database error
+     * Duplicates are detected by the unique constraint on username, not a separate query.
+     */
     public int createUser(String username, String password, UserRole role, String email) {
         // Validate password first
         if (!PasswordUtils.isValidPassword(password)) {
-            System.out.println("Password validation failed for user: " + username);
             return 2; // Invalid password
         }
         
-        // Check if username already exists
-        if (usernameExists(username)) {
-            System.out.println("Username already exists: " + username);
+        // A known duplicate can be rejected without hashing or a round trip
+        if (cache.getByUsername(username) != null) {
             return 1; // Username exists
         }
         
         String hashedPassword = PasswordUtils.hashPassword(password);
-        System.out.println("DEBUG - Creating user: '" + username + "'");
-        System.out.println("DEBUG - Original password: '" + password + "'");
-        System.out.println("DEBUG - Hashed password: '" + hashedPassword + "'");
         
         String sql = "INSERT INTO users (username, password_hash, role, email) VALUES (?, ?, ?, ?)";
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-            
-            stmt.setString(1, username);
-            stmt.setString(2, hashedPassword);
-            stmt.setString(3, role.name());
-            stmt.setString(4, email);
-            
-            int rowsAffected = stmt.executeUpdate();
-            if (rowsAffected > 0) {
-                System.out.println("User created successfully: " + username);
-                return 0; // Success
-            } else {
-                System.out.println("No rows affected when creating user: " + username);
-                return 3; // Database error
-            }
-        } catch (SQLIntegrityConstraintViolationException e) {
-            System.err.println("Duplicate username constraint violation: " + e.getMessage());
-            return 1; // Username exists
+        int id;
+        try {
+            id = CREATE.time(() -> {
+                try (Connection conn = DatabaseConnection.getConnection();
+                     PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+                    
+                    stmt.setString(1, username);
+                    stmt.setString(2, hashedPassword);
+                    stmt.setString(3, role.name());
+                    stmt.setString(4, email);
+                    
+                    if (stmt.executeUpdate() == 0) return NOT_INSERTED;
+                    try (ResultSet keys = stmt.getGeneratedKeys()) {
+                        return keys.next() ? keys.getInt(1) : 0;
+                    }
+                } catch (SQLIntegrityConstraintViolationException e) {
+                    // Caught inside the timed call: a taken name is an answer, not a failure
+                    System.err.println("Duplicate username constraint violation: " + e.getMessage());
+                    return DUPLICATE;
+                }
+            });
         } catch (SQLException e) {
             System.err.println("SQL Error creating user '" + username + "': " + e.getMessage());
             System.err.println("SQL State: " + e.getSQLState());
@@ -214,5 +345,17 @@ public class UserDAO {
             e.printStackTrace();
             return 3; // Database error
         }
+
+        // The insert's connection is closed by now, so these reads don't hold two
+        if (id == NOT_INSERTED) {
+            return 3; // Database error
+        }
+        if (id == DUPLICATE) {
+            // Another client created it; the cache can learn about it now
+            findByUsername(username);
+            return 1; // Username exists
+        }
+        if (id > 0) refresh(id);
+        return 0; // Success
     }
 }
\ No newline at end of file
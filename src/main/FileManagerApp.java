@@ -1,16 +1,22 @@
 package main;
 
+import controllers.MainController;
+import database.DatabaseConnection;
 import javafx.application.Application;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Scene;
 import javafx.stage.Stage;
+import utils.StartupTimings;
 
 public class FileManagerApp extends Application {
+    private MainController controller;
 
     @Override
     public void start(Stage primaryStage) throws Exception {
+        StartupTimings.mark("fx-start");
         FXMLLoader loader = new FXMLLoader(getClass().getResource("/MainView.fxml"));
         Scene scene = new Scene(loader.load());
+        controller = loader.getController();
 
         // Load CSS
         scene.getStylesheets().add(getClass().getResource("/styles/styles.css").toExternalForm());
@@ -18,9 +24,23 @@ public class FileManagerApp extends Application {
         primaryStage.setScene(scene);
         primaryStage.setTitle("Developed by: Abdullah Albuqmi");
         primaryStage.setResizable(true);
+        // Mark the first frame once, after the first layout pulse
+        Runnable[] firstFrame = new Runnable[1];
+        firstFrame[0] = () -> {
+            StartupTimings.mark("first-frame");
+            scene.removePostLayoutPulseListener(firstFrame[0]);
+        };
+        scene.addPostLayoutPulseListener(firstFrame[0]);
         primaryStage.show();
     }
 
+    @Override
+    public void stop() {
+        if (controller != null) controller.shutdown();
+        // Flushes pending activity logs before the pool goes away
+        DatabaseConnection.closeDataSource();
+    }
+
     public static void main(String[] args) {
         launch(args);
     }
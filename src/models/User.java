@@ -22,6 +22,16 @@ public class User {
         this.email = email;
     }
 
+    public User(User other) {
+        this.userId = other.userId;
+        this.username = other.username;
+        this.passwordHash = other.passwordHash;
+        this.role = other.role;
+        this.email = other.email;
+        this.createdAt = other.createdAt;
+        this.lastLogin = other.lastLogin;
+    }
+
     // Getters and Setters
     public int getUserId() { return userId; }
     public void setUserId(int userId) { this.userId = userId; }
@@ -0,0 +1,606 @@
+package services;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Inverted index over the text files below one folder.
+ * Each term maps to a postings list of (document, term frequency, first line
+ * containing the term, byte offset of that line), so a query is answered from
+ * memory and a snippet costs one small positioned read per hit.
+ * Results are ranked with BM25; all query terms must match.
+ *
+ * Tokens are runs of ASCII letters, digits, '_' and non-ASCII bytes, read
+ * straight from the file bytes, so any ASCII-compatible encoding (UTF-8,
+ * Latin-1) works and line offsets are exact. UTF-16 and binary files are skipped.
+ *
+ * Thread-safe: updates take a write lock, searches a read lock. Tokenizing
+ * (the expensive part) happens outside the lock in tokenize().
+ */
+public class ContentIndex {
+    public static final Path INDEX_DIR = Paths.get(System.getProperty("user.home"), ".javafx-filemanager", "content-index");
+    private static final int MAGIC = 0x464D4349; // "FMCI"
+    private static final int VERSION = 2;
+    // Sanity limit for one stored string, so a corrupt file cannot ask for a huge array
+    private static final int MAX_STRING_BYTES = 16 * 1024 * 1024;
+    private static final int MIN_TOKEN = 2;
+    private static final int MAX_TOKEN = 64;
+    private static final int SNIFF_BYTES = 8 * 1024;
+    private static final int SNIPPET_BYTES = 400;
+    private static final int SNIPPET_CHARS = 160;
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    public static class Hit {
+        private final Path path;
+        private final double score;
+        private final int line;
+        private final String snippet;
+
+        Hit(Path path, double score, int line, String snippet) {
+            this.path = path;
+            this.score = score;
+            this.line = line;
+            this.snippet = snippet;
+        }
+
+        public Path getPath() { return path; }
+        public double getScore() { return score; }
+        public int getLine() { return line; }
+        public String getSnippet() { return snippet; }
+    }
+
+    /** Terms of one file, built by tokenize() without holding any lock */
+    public static class Document {
+        private final String key;
+        private final long size;
+        private final long modifiedMillis;
+        private final Map<String, TermStats> terms = new HashMap<>();
+        private int length;
+
+        Document(String key, long size, long modifiedMillis) {
+            this.key = key;
+            this.size = size;
+            this.modifiedMillis = modifiedMillis;
+        }
+    }
+
+    private static class TermStats {
+        int count;
+        int line;
+        long offset;
+    }
+
+    private static class Doc {
+        final String key;
+        final long size;
+        final long modifiedMillis;
+        final int length;
+        final String[] terms;
+
+        Doc(String key, long size, long modifiedMillis, int length, String[] terms) {
+            this.key = key;
+            this.size = size;
+            this.modifiedMillis = modifiedMillis;
+            this.length = length;
+            this.terms = terms;
+        }
+    }
+
+    private static class Scored {
+        final int doc;
+        final double score;
+        final int line;
+        final long offset;
+
+        Scored(int doc, double score, int line, long offset) {
+            this.doc = doc;
+            this.score = score;
+            this.line = line;
+            this.offset = offset;
+        }
+    }
+
+    /** Parallel arrays sorted by document id (ids only grow, so appends keep the order) */
+    private static class Postings {
+        int[] docs = new int[2];
+        int[] freqs = new int[2];
+        int[] lines = new int[2];
+        long[] offsets = new long[2];
+        int size;
+
+        void add(int doc, int freq, int line, long offset) {
+            if (size == docs.length) {
+                int n = size * 2;
+                docs = Arrays.copyOf(docs, n);
+                freqs = Arrays.copyOf(freqs, n);
+                lines = Arrays.copyOf(lines, n);
+                offsets = Arrays.copyOf(offsets, n);
+            }
+            docs[size] = doc;
+            freqs[size] = freq;
+            lines[size] = line;
+            offsets[size] = offset;
+            size++;
+        }
+
+        int indexOf(int doc) {
+            int i = Arrays.binarySearch(docs, 0, size, doc);
+            return i >= 0 ? i : -1;
+        }
+
+        void remove(int doc) {
+            int i = indexOf(doc);
+            if (i < 0) return;
+            int tail = size - i - 1;
+            System.arraycopy(docs, i + 1, docs, i, tail);
+            System.arraycopy(freqs, i + 1, freqs, i, tail);
+            System.arraycopy(lines, i + 1, lines, i, tail);
+            System.arraycopy(offsets, i + 1, offsets, i, tail);
+            size--;
+        }
+    }
+
+    private final Path root;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Integer, Doc> docs = new HashMap<>();
+    private final Map<String, Integer> docIds = new HashMap<>();
+    private final Map<String, Postings> terms = new HashMap<>();
+    private int nextDocId;
+    private long totalLength;
+    private volatile boolean dirty;
+
+    public ContentIndex(Path root) {
+        this.root = root.toAbsolutePath().normalize();
+    }
+
+    public Path getRoot() {
+        return root;
+    }
+
+    public int getDocumentCount() {
+        lock.readLock().lock();
+        try {
+            return docs.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int getTermCount() {
+        lock.readLock().lock();
+        try {
+            return terms.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** True if there are changes that have not been saved */
+    public boolean isDirty() {
+        return dirty;
+    }
+
+    /**
+     * True if this version of the file (same size and mtime) is already indexed
+     */
+    public boolean isCurrent(Path file, long size, long modifiedMillis) {
+        lock.readLock().lock();
+        try {
+            Integer id = docIds.get(key(file));
+            if (id == null) return false;
+            Doc d = docs.get(id);
+            return d.size == size && d.modifiedMillis == modifiedMillis;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** Indexed files, as absolute paths */
+    public List<Path> getPaths() {
+        lock.readLock().lock();
+        try {
+            List<Path> paths = new ArrayList<>(docIds.size());
+            for (String k : docIds.keySet()) paths.add(root.resolve(k));
+            return paths;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // ===== UPDATES =====
+
+    /**
+     * Read and tokenize a file. Files larger than maxBytes, binary files and
+     * UTF-16 files give a document without terms, so they are still recorded
+     * as seen and not read again until they change.
+     */
+    public Document tokenize(Path file, long maxBytes) throws IOException {
+        long size = Files.size(file);
+        long modified = Files.getLastModifiedTime(file).toMillis();
+        Document doc = new Document(key(file), size, modified);
+        if (size > maxBytes) return doc;
+        byte[] bytes = Files.readAllBytes(file);
+        int start = 0;
+        if (bytes.length >= 2 && ((bytes[0] & 0xFF) == 0xFE && (bytes[1] & 0xFF) == 0xFF
+                || (bytes[0] & 0xFF) == 0xFF && (bytes[1] & 0xFF) == 0xFE)) {
+            return doc;
+        }
+        if (bytes.length >= 3 && (bytes[0] & 0xFF) == 0xEF && (bytes[1] & 0xFF) == 0xBB && (bytes[2] & 0xFF) == 0xBF) {
+            start = 3;
+        }
+        if (FilePreviewService.looksBinary(ByteBuffer.wrap(bytes, start, Math.min(SNIFF_BYTES, bytes.length - start)))) {
+            return doc;
+        }
+
+        int line = 1;
+        long lineStart = start;
+        int tokenStart = -1;
+        for (int i = start; i <= bytes.length; i++) {
+            byte b = i < bytes.length ? bytes[i] : (byte) '\n';
+            if (isTokenByte(b)) {
+                if (tokenStart < 0) tokenStart = i;
+                continue;
+            }
+            if (tokenStart >= 0) {
+                addToken(doc, bytes, tokenStart, i - tokenStart, line, lineStart);
+                tokenStart = -1;
+            }
+            if (b == '\n') {
+                line++;
+                lineStart = i + 1;
+            }
+        }
+        return doc;
+    }
+
+    private static void addToken(Document doc, byte[] bytes, int start, int len, int line, long lineStart) {
+        // MAX_TOKEN characters take at most 4 bytes each
+        if (len < MIN_TOKEN || len > MAX_TOKEN * 4) return;
+        String token = new String(bytes, start, len, StandardCharsets.UTF_8).toLowerCase(Locale.ROOT);
+        if (token.length() < MIN_TOKEN || token.length() > MAX_TOKEN) return;
+        TermStats stats = doc.terms.get(token);
+        if (stats == null) {
+            stats = new TermStats();
+            stats.line = line;
+            stats.offset = lineStart;
+            doc.terms.put(token, stats);
+        }
+        stats.count++;
+        doc.length++;
+    }
+
+    /**
+     * Add or replace a tokenized file
+     */
+    public void put(Document d) {
+        lock.writeLock().lock();
+        try {
+            removeKey(d.key);
+            int id = nextDocId++;
+            String[] docTerms = d.terms.keySet().toArray(new String[0]);
+            docs.put(id, new Doc(d.key, d.size, d.modifiedMillis, d.length, docTerms));
+            docIds.put(d.key, id);
+            totalLength += d.length;
+            for (Map.Entry<String, TermStats> e : d.terms.entrySet()) {
+                TermStats s = e.getValue();
+                terms.computeIfAbsent(e.getKey(), k -> new Postings()).add(id, s.count, s.line, s.offset);
+            }
+            dirty = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Forget a file, or every file below a folder
+     */
+    public void remove(Path path) {
+        String k = key(path);
+        String prefix = k.isEmpty() ? "" : k + "/";
+        lock.writeLock().lock();
+        try {
+            removeKey(k);
+            List<String> below = new ArrayList<>();
+            for (String other : docIds.keySet()) {
+                if (other.startsWith(prefix)) below.add(other);
+            }
+            for (String other : below) removeKey(other);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void removeKey(String k) {
+        Integer id = docIds.remove(k);
+        if (id == null) return;
+        Doc d = docs.remove(id);
+        totalLength -= d.length;
+        for (String t : d.terms) {
+            Postings p = terms.get(t);
+            if (p == null) continue;
+            p.remove(id);
+            if (p.size == 0) terms.remove(t);
+        }
+        dirty = true;
+    }
+
+    // ===== SEARCH =====
+
+    /**
+     * Files containing every term of the query, best first, with the first
+     * matching line as a snippet
+     */
+    public List<Hit> search(String query, int limit) {
+        return search(query, limit, root);
+    }
+
+    /**
+     * Like search(query, limit) but only files below scope count; nothing
+     * matches if scope is outside the root
+     */
+    public List<Hit> search(String query, int limit, Path scope) {
+        List<String> queryTerms = queryTerms(query);
+        Path dir = scope.toAbsolutePath().normalize();
+        if (queryTerms.isEmpty() || !dir.startsWith(root)) return List.of();
+        String scopeKey = key(dir);
+        String prefix = scopeKey.isEmpty() ? "" : scopeKey + "/";
+
+        List<Scored> top = new ArrayList<>();
+        Map<Integer, String> keys = new HashMap<>();
+        lock.readLock().lock();
+        try {
+            List<Postings> lists = new ArrayList<>();
+            for (String t : queryTerms) {
+                Postings p = terms.get(t);
+                if (p == null) return List.of();
+                lists.add(p);
+            }
+            // Walk the rarest list and probe the others
+            lists.sort(Comparator.comparingInt(p -> p.size));
+            Postings rarest = lists.get(0);
+            int n = docs.size();
+            double avgLength = n == 0 ? 1 : Math.max(1, totalLength / (double) n);
+            double[] idf = new double[lists.size()];
+            for (int t = 0; t < lists.size(); t++) {
+                int df = lists.get(t).size;
+                idf[t] = Math.log(1 + (n - df + 0.5) / (df + 0.5));
+            }
+
+            PriorityQueue<Scored> heap = new PriorityQueue<>(Comparator.comparingDouble((Scored s) -> s.score));
+            candidates:
+            for (int i = 0; i < rarest.size; i++) {
+                int doc = rarest.docs[i];
+                if (!prefix.isEmpty() && !docs.get(doc).key.startsWith(prefix)) continue;
+                double lengthNorm = K1 * (1 - B + B * docs.get(doc).length / avgLength);
+                double score = 0;
+                int line = Integer.MAX_VALUE;
+                long offset = 0;
+                for (int t = 0; t < lists.size(); t++) {
+                    Postings p = lists.get(t);
+                    int j = t == 0 ? i : p.indexOf(doc);
+                    if (j < 0) continue candidates;
+                    int tf = p.freqs[j];
+                    score += idf[t] * tf * (K1 + 1) / (tf + lengthNorm);
+                    if (p.lines[j] < line) {
+                        line = p.lines[j];
+                        offset = p.offsets[j];
+                    }
+                }
+                heap.add(new Scored(doc, score, line, offset));
+                if (heap.size() > limit) heap.poll();
+            }
+            top.addAll(heap);
+            for (Scored s : top) keys.put(s.doc, docs.get(s.doc).key);
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        top.sort(Comparator.comparingDouble((Scored s) -> s.score).reversed());
+        List<Hit> hits = new ArrayList<>(top.size());
+        for (Scored s : top) {
+            Path path = root.resolve(keys.get(s.doc));
+            hits.add(new Hit(path, s.score, s.line, snippet(path, s.offset)));
+        }
+        return hits;
+    }
+
+    /** The line starting at offset, trimmed and shortened; empty if unreadable */
+    private static String snippet(Path path, long offset) {
+        try (FileChannel ch = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer buf = ByteBuffer.allocate(SNIPPET_BYTES);
+            ch.read(buf, offset);
+            buf.flip();
+            int end = 0;
+            while (end < buf.limit() && buf.get(end) != '\n' && buf.get(end) != '\r') end++;
+            buf.limit(end);
+            String line = StandardCharsets.UTF_8.newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPLACE)
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE)
+                    .decode(buf).toString().strip();
+            return line.length() > SNIPPET_CHARS ? line.substring(0, SNIPPET_CHARS) + "…" : line;
+        } catch (IOException e) {
+            return "";
+        }
+    }
+
+    /** The query split the same way as file contents, without duplicates */
+    static List<String> queryTerms(String query) {
+        Set<String> out = new LinkedHashSet<>();
+        StringBuilder token = new StringBuilder();
+        for (int i = 0; i <= query.length(); i++) {
+            char c = i < query.length() ? query.charAt(i) : ' ';
+            if (c >= 0x80 || c == '_' || (c < 0x80 && Character.isLetterOrDigit(c))) {
+                token.append(c);
+            } else if (token.length() > 0) {
+                String t = token.toString().toLowerCase(Locale.ROOT);
+                if (t.length() >= MIN_TOKEN && t.length() <= MAX_TOKEN) out.add(t);
+                token.setLength(0);
+            }
+        }
+        return new ArrayList<>(out);
+    }
+
+    private static boolean isTokenByte(byte b) {
+        return b < 0 // Part of a multi-byte character
+                || (b >= '0' && b <= '9') || (b >= 'a' && b <= 'z') || (b >= 'A' && b <= 'Z') || b == '_';
+    }
+
+    /** Path relative to the root with '/' separators */
+    private String key(Path file) {
+        Path rel = root.relativize(file.toAbsolutePath().normalize());
+        return rel.toString().replace(File.separatorChar, '/');
+    }
+
+    // ===== PERSISTENCE =====
+
+    /**
+     * Load the saved index for root, or an empty one if there is none
+     */
+    public static ContentIndex load(Path root) {
+        ContentIndex index = new ContentIndex(root);
+        Path file = fileFor(index.root);
+        if (!Files.isRegularFile(file)) return index;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 64 * 1024))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) return index;
+            if (!index.root.toString().equals(readString(in))) return index;
+            index.nextDocId = in.readInt();
+            int docCount = in.readInt();
+            Map<Integer, List<String>> docTerms = new HashMap<>(docCount * 2);
+            int[] ids = new int[docCount];
+            String[] keys = new String[docCount];
+            long[] sizes = new long[docCount];
+            long[] mtimes = new long[docCount];
+            int[] lengths = new int[docCount];
+            for (int i = 0; i < docCount; i++) {
+                ids[i] = in.readInt();
+                keys[i] = readString(in);
+                sizes[i] = in.readLong();
+                mtimes[i] = in.readLong();
+                lengths[i] = in.readInt();
+                docTerms.put(ids[i], new ArrayList<>());
+            }
+            int termCount = in.readInt();
+            for (int i = 0; i < termCount; i++) {
+                String term = readString(in);
+                int size = in.readInt();
+                Postings p = new Postings();
+                for (int j = 0; j < size; j++) {
+                    int doc = in.readInt();
+                    p.add(doc, in.readInt(), in.readInt(), in.readLong());
+                    List<String> forDoc = docTerms.get(doc);
+                    if (forDoc != null) forDoc.add(term);
+                }
+                index.terms.put(term, p);
+            }
+            for (int i = 0; i < docCount; i++) {
+                index.docs.put(ids[i], new Doc(keys[i], sizes[i], mtimes[i], lengths[i],
+                        docTerms.get(ids[i]).toArray(new String[0])));
+                index.docIds.put(keys[i], ids[i]);
+                index.totalLength += lengths[i];
+            }
+            return index;
+        } catch (IOException e) {
+            System.err.println("Ignoring unreadable content index " + file + ": " + e.getMessage());
+            return new ContentIndex(root);
+        }
+    }
+
+    /**
+     * Write the index to disk (temp file, then rename)
+     */
+    public void save() throws IOException {
+        Path file = fileFor(root);
+        Files.createDirectories(INDEX_DIR);
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        lock.readLock().lock();
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp), 64 * 1024))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            writeString(out, root.toString());
+            out.writeInt(nextDocId);
+            out.writeInt(docs.size());
+            for (Map.Entry<Integer, Doc> e : docs.entrySet()) {
+                Doc d = e.getValue();
+                out.writeInt(e.getKey());
+                writeString(out, d.key);
+                out.writeLong(d.size);
+                out.writeLong(d.modifiedMillis);
+                out.writeInt(d.length);
+            }
+            out.writeInt(terms.size());
+            for (Map.Entry<String, Postings> e : terms.entrySet()) {
+                Postings p = e.getValue();
+                writeString(out, e.getKey());
+                out.writeInt(p.size);
+                for (int i = 0; i < p.size; i++) {
+                    out.writeInt(p.docs[i]);
+                    out.writeInt(p.freqs[i]);
+                    out.writeInt(p.lines[i]);
+                    out.writeLong(p.offsets[i]);
+                }
+            }
+            dirty = false;
+        } finally {
+            lock.readLock().unlock();
+        }
+        try {
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Delete saved indexes (and leftover temp files) of every root except keep,
+     * so the folder holds at most one index
+     */
+    public static void deleteOtherIndexes(Path keep) {
+        if (!Files.isDirectory(INDEX_DIR)) return;
+        Path kept = fileFor(keep.toAbsolutePath().normalize());
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(INDEX_DIR, "*.{idx,tmp}")) {
+            for (Path file : stream) {
+                if (file.equals(kept)) continue;
+                try {
+                    Files.delete(file);
+                } catch (IOException e) {
+                    System.err.println("Could not delete old content index " + file + ": " + e.getMessage());
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Could not list " + INDEX_DIR + ": " + e.getMessage());
+        }
+    }
+
+    /** UTF-8 bytes behind an int length; writeUTF stops at 64 KB, long paths do not */
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0 || length > MAX_STRING_BYTES) throw new IOException("bad string length " + length);
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static Path fileFor(Path root) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(root.toString().getBytes(StandardCharsets.UTF_8));
+            return INDEX_DIR.resolve(HexFormat.of().formatHex(digest) + ".idx");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,338 @@
+package services;
+
+import javafx.application.Platform;
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import utils.Metrics;
+
+/**
+ * Keeps one ContentIndex, rooted at a fixed folder, up to date and answers
+ * content queries from it, scoped to the folder being browsed.
+ *
+ * The root (the app's working folder, see rootFor) does not follow
+ * navigation: open() loads its saved index once and reconciles it with the
+ * disk in the background, and folderOpened() re-checks just the folder
+ * the user moved to. Only files whose size or mtime changed are read again,
+ * tokenized in parallel. Watcher events are applied with filesChanged().
+ * Queries are debounced like NameSearchService and only the latest result is
+ * delivered.
+ *
+ * Limits (system properties): filemanager.contentIndex.maxFileBytes (default
+ * 4 MB, larger files are not indexed) and filemanager.contentIndex.maxFiles
+ * (default 50000 files per walk).
+ * Load and reconcile times and the number of files read or dropped are
+ * published as contentIndex.* metrics.
+ */
+public class ContentSearchService {
+    public static final long DEBOUNCE_MS = 120;
+    public static final long MAX_FILE_BYTES = Long.getLong("filemanager.contentIndex.maxFileBytes", 4L * 1024 * 1024);
+    public static final int MAX_FILES = Integer.getInteger("filemanager.contentIndex.maxFiles", 50_000);
+    private static final long SAVE_INTERVAL_SECONDS = 30;
+    private static final int PROGRESS_EVERY = 200;
+    private static final Metrics.Timer LOAD = Metrics.timer("contentIndex.load");
+    private static final Metrics.Timer RECONCILE = Metrics.timer("contentIndex.reconcile");
+    private static final Metrics.Counter FILES_READ = Metrics.counter("contentIndex.filesRead");
+    private static final Metrics.Counter FILES_REMOVED = Metrics.counter("contentIndex.filesRemoved");
+
+    /** Indexing progress, called on the FX thread */
+    public interface Listener {
+        void onStatus(String status, boolean indexing);
+    }
+
+    // Index updates run one at a time, behind the UI
+    private final ScheduledExecutorService indexer = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "content-indexer");
+        t.setDaemon(true);
+        t.setPriority(Thread.MIN_PRIORITY);
+        return t;
+    });
+    private final ScheduledExecutorService searcher = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "content-search");
+        t.setDaemon(true);
+        return t;
+    });
+    private final ForkJoinPool tokenizers = new ForkJoinPool(Math.max(1, Runtime.getRuntime().availableProcessors() - 1),
+            pool -> {
+                ForkJoinWorkerThread t = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+                t.setName("content-tokenizer-" + t.getPoolIndex());
+                t.setDaemon(true);
+                t.setPriority(Thread.MIN_PRIORITY);
+                return t;
+            }, null, false);
+
+    private final Listener listener;
+    private volatile ContentIndex index;
+    // Bumped by open(), so a reconcile for a root that is no longer open stops early
+    private final AtomicInteger openGeneration = new AtomicInteger();
+    // Last folder passed to folderOpened(); only touched on the indexer thread
+    private Path lastFolder;
+    private ScheduledFuture<?> pendingSearch;
+    private volatile long searchGeneration;
+    private volatile long lastSearchMillis;
+
+    public ContentSearchService(Listener listener) {
+        this.listener = listener;
+        indexer.scheduleWithFixedDelay(this::saveIfDirty, SAVE_INTERVAL_SECONDS, SAVE_INTERVAL_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /**
+     * The folder to index: appFolder, unless -Dfilemanager.contentIndex.root
+     * names another one
+     */
+    public static Path rootFor(Path appFolder) {
+        String configured = System.getProperty("filemanager.contentIndex.root");
+        Path root = configured == null || configured.isBlank() ? appFolder : Paths.get(configured);
+        return root.toAbsolutePath().normalize();
+    }
+
+    public ContentIndex getIndex() {
+        return index;
+    }
+
+    /** Time the last delivered query took, without the debounce delay */
+    public long getLastSearchMillis() {
+        return lastSearchMillis;
+    }
+
+    /**
+     * Index the tree below root. Does nothing if root is already open.
+     * Saved indexes of other roots are deleted once this one is loaded.
+     */
+    public void open(Path root) {
+        Path dir = root.toAbsolutePath().normalize();
+        ContentIndex current = index;
+        if (current != null && current.getRoot().equals(dir)) return;
+        int gen = openGeneration.incrementAndGet();
+        indexer.submit(() -> {
+            if (gen != openGeneration.get()) return;
+            saveIfDirty();
+            ContentIndex loaded = LOAD.time(() -> ContentIndex.load(dir));
+            index = loaded;
+            lastFolder = null;
+            ContentIndex.deleteOtherIndexes(dir);
+            reconcile(loaded, loaded.getRoot(), gen, true);
+        });
+    }
+
+    /**
+     * The user moved to dir: bring the files below it up to date, since
+     * changes made while another folder was watched were not seen. Does
+     * nothing for the folder checked last or a folder outside the root.
+     */
+    public void folderOpened(Path dir) {
+        Path folder = dir.toAbsolutePath().normalize();
+        int gen = openGeneration.get();
+        indexer.submit(() -> {
+            ContentIndex target = index;
+            if (gen != openGeneration.get() || target == null) return;
+            if (folder.equals(lastFolder) || !folder.startsWith(target.getRoot())) return;
+            lastFolder = folder;
+            reconcile(target, folder, gen, false);
+        });
+    }
+
+    /**
+     * Apply watcher events. Changed folders are walked; removed paths drop
+     * the file or everything below the folder.
+     */
+    public void filesChanged(List<Path> changed, List<Path> removed) {
+        ContentIndex target = index;
+        if (target == null) return;
+        int gen = openGeneration.get();
+        List<Path> changedCopy = List.copyOf(changed);
+        List<Path> removedCopy = List.copyOf(removed);
+        indexer.submit(() -> {
+            if (gen != openGeneration.get() || target != index) return;
+            for (Path p : removedCopy) target.remove(p);
+            Map<Path, BasicFileAttributes> files = new LinkedHashMap<>();
+            for (Path changedPath : changedCopy) {
+                Path p = changedPath.toAbsolutePath().normalize();
+                if (!p.startsWith(target.getRoot())) continue;
+                if (Files.isDirectory(p)) {
+                    files.putAll(walk(p, MAX_FILES));
+                } else {
+                    try {
+                        files.put(p, Files.readAttributes(p, BasicFileAttributes.class));
+                    } catch (IOException e) {
+                        target.remove(p);
+                    }
+                }
+            }
+            indexFiles(target, stale(target, files), gen, false);
+        });
+    }
+
+    /**
+     * Ranked hits below scope for the query, delivered on the FX thread unless
+     * a newer query (or cancel()) came first
+     */
+    public synchronized void search(String query, int limit, Path scope, Consumer<List<ContentIndex.Hit>> onResult) {
+        long gen = ++searchGeneration;
+        if (pendingSearch != null) pendingSearch.cancel(false);
+        pendingSearch = searcher.schedule(() -> {
+            ContentIndex target = index;
+            if (gen != searchGeneration) return;
+            long start = System.nanoTime();
+            List<ContentIndex.Hit> hits = target == null ? List.of() : target.search(query, limit, scope);
+            long millis = (System.nanoTime() - start) / 1_000_000;
+            Platform.runLater(() -> {
+                if (gen != searchGeneration) return;
+                lastSearchMillis = millis;
+                onResult.accept(hits);
+            });
+        }, DEBOUNCE_MS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Drop any pending query
+     */
+    public synchronized void cancel() {
+        searchGeneration++;
+        if (pendingSearch != null) pendingSearch.cancel(false);
+        pendingSearch = null;
+    }
+
+    /**
+     * Save the index and stop the background threads
+     */
+    public void shutdown() {
+        openGeneration.incrementAndGet();
+        indexer.shutdown();
+        searcher.shutdownNow();
+        tokenizers.shutdownNow();
+        try {
+            indexer.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        saveIfDirty();
+    }
+
+    // ===== INDEXING (indexer thread) =====
+
+    /**
+     * Walk dir (the root or a folder below it), drop indexed files that are
+     * gone and read the ones that changed
+     */
+    private void reconcile(ContentIndex target, Path dir, int gen, boolean report) {
+        long start = System.nanoTime();
+        try {
+            reconcileFolder(target, dir, gen, report);
+        } finally {
+            RECONCILE.record(System.nanoTime() - start);
+        }
+    }
+
+    private void reconcileFolder(ContentIndex target, Path dir, int gen, boolean report) {
+        if (report) status("Indexing contents: scanning " + dir.getFileName() + "...", true);
+        Map<Path, BasicFileAttributes> files = walk(dir, MAX_FILES);
+        // A walk cut short by the limit says nothing about the files it did not reach
+        boolean complete = files.size() < MAX_FILES;
+        if (gen != openGeneration.get()) return;
+
+        Set<Path> present = files.keySet();
+        for (Path p : target.getPaths()) {
+            if (complete && p.startsWith(dir) && !present.contains(p)) {
+                target.remove(p);
+                FILES_REMOVED.increment();
+            }
+        }
+        indexFiles(target, stale(target, files), gen, report);
+        if (gen != openGeneration.get()) return;
+        saveIfDirty();
+        if (!report) return;
+        String limited = complete ? "" : " (limited to " + MAX_FILES + " files)";
+        status("Contents indexed: " + target.getDocumentCount() + " files, "
+                + target.getTermCount() + " terms" + limited, false);
+    }
+
+    /** Files whose current size and mtime are not in the index yet */
+    private static List<Path> stale(ContentIndex target, Map<Path, BasicFileAttributes> files) {
+        List<Path> stale = new ArrayList<>();
+        for (Map.Entry<Path, BasicFileAttributes> e : files.entrySet()) {
+            BasicFileAttributes a = e.getValue();
+            if (!target.isCurrent(e.getKey(), a.size(), a.lastModifiedTime().toMillis())) stale.add(e.getKey());
+        }
+        return stale;
+    }
+
+    /**
+     * Tokenize files in parallel and add them to the index. Reading and
+     * tokenizing happen outside the index lock; only put() takes it.
+     */
+    private void indexFiles(ContentIndex target, List<Path> files, int gen, boolean report) {
+        if (files.isEmpty()) return;
+        AtomicInteger done = new AtomicInteger();
+        int total = files.size();
+        try {
+            tokenizers.submit(() -> files.parallelStream().forEach(file -> {
+                if (gen != openGeneration.get()) return;
+                try {
+                    target.put(target.tokenize(file, MAX_FILE_BYTES));
+                    FILES_READ.increment();
+                } catch (IOException e) {
+                    // Deleted or unreadable; a later event or reconcile picks it up
+                    target.remove(file);
+                }
+                int n = done.incrementAndGet();
+                if (report && n % PROGRESS_EVERY == 0) {
+                    status("Indexing contents... " + n + " / " + total, true);
+                }
+            })).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | RejectedExecutionException | CancellationException e) {
+            System.err.println("Content indexing failed: " + e.getMessage());
+        }
+    }
+
+    /** Regular files below dir, skipping hidden folders, at most limit of them */
+    private static Map<Path, BasicFileAttributes> walk(Path dir, int limit) {
+        Map<Path, BasicFileAttributes> files = new LinkedHashMap<>();
+        try {
+            Files.walkFileTree(dir, new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path d, BasicFileAttributes attrs) {
+                    Path name = d.getFileName();
+                    if (!d.equals(dir) && name != null && name.toString().startsWith(".")) {
+                        return FileVisitResult.SKIP_SUBTREE;
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                    if (attrs.isRegularFile()) files.put(file.toAbsolutePath().normalize(), attrs);
+                    return files.size() >= limit ? FileVisitResult.TERMINATE : FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException e) {
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException e) {
+            System.err.println("Could not scan " + dir + " for content indexing: " + e.getMessage());
+        }
+        return files;
+    }
+
+    private void saveIfDirty() {
+        ContentIndex target = index;
+        if (target == null || !target.isDirty()) return;
+        try {
+            target.save();
+        } catch (IOException e) {
+            System.err.println("Could not save content index for " + target.getRoot() + ": " + e.getMessage());
+        }
+    }
+
+    private void status(String text, boolean indexing) {
+        if (listener != null) Platform.runLater(() -> listener.onStatus(text, indexing));
+    }
+}
@@ -0,0 +1,222 @@
+package services;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Deletes files and whole directory trees.
+ * Permanent mode walks each tree once, deletes all files in parallel and then
+ * removes directories level by level, deepest first. Trash mode renames each
+ * item into a trash folder on the same file store (instant) and purges it on
+ * a background thread; items on another store are deleted permanently instead.
+ */
+public class DeleteEngine {
+    public enum Mode { PERMANENT, TRASH }
+
+    public static final Path TRASH_DIR = Paths.get(System.getProperty("user.home"), ".javafx-filemanager", "trash");
+    private static final int PARALLELISM = Math.max(4, Runtime.getRuntime().availableProcessors());
+
+    private static final ExecutorService purger = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "trash-purge");
+        t.setDaemon(true);
+        t.setPriority(Thread.MIN_PRIORITY);
+        return t;
+    });
+
+    public interface ProgressListener {
+        void onProgress(long deleted, long total);
+    }
+
+    public static class Result {
+        private final List<Path> completed = new ArrayList<>();
+        private final List<Path> deletedFiles = Collections.synchronizedList(new ArrayList<>());
+        private final List<Path> trashed = new ArrayList<>();
+        private final List<String> errors = Collections.synchronizedList(new ArrayList<>());
+
+        /** Top-level items that are gone without errors */
+        public List<Path> getCompleted() { return completed; }
+        /** Every file and folder removed permanently, for the audit log */
+        public List<Path> getDeletedFiles() { return deletedFiles; }
+        /** Top-level items moved to the trash (purged in the background) */
+        public List<Path> getTrashed() { return trashed; }
+        public List<String> getErrors() { return errors; }
+    }
+
+    private final List<Path> targets;
+    private final Mode mode;
+    private final Result result = new Result();
+
+    public DeleteEngine(List<Path> targets, Mode mode) {
+        this.targets = targets;
+        this.mode = mode;
+    }
+
+    /**
+     * What has been done so far; still valid if run() was cancelled part way
+     */
+    public Result getResult() {
+        return result;
+    }
+
+    public Result run(ProgressListener progress, BooleanSupplier cancelled) {
+        List<Path> permanent = new ArrayList<>();
+
+        if (mode == Mode.TRASH) {
+            for (Path p : targets) {
+                if (cancelled.getAsBoolean()) throw new CancellationException();
+                if (moveToTrash(p)) {
+                    result.trashed.add(p);
+                    result.completed.add(p);
+                } else {
+                    permanent.add(p);
+                }
+            }
+            if (!result.trashed.isEmpty()) purgeTrashAsync();
+        } else {
+            permanent.addAll(targets);
+        }
+
+        if (!permanent.isEmpty()) {
+            deletePermanently(permanent, result, progress, cancelled);
+        }
+        return result;
+    }
+
+    /**
+     * Remove everything left in the trash folder, e.g. after a crash mid-purge
+     */
+    public static void purgeTrashAsync() {
+        purger.submit(() -> {
+            if (!Files.isDirectory(TRASH_DIR)) return;
+            List<Path> leftovers = new ArrayList<>();
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(TRASH_DIR)) {
+                stream.forEach(leftovers::add);
+            } catch (IOException e) {
+                System.err.println("Could not read trash: " + e.getMessage());
+                return;
+            }
+            DeleteEngine engine = new DeleteEngine(leftovers, Mode.PERMANENT);
+            Result r = engine.run(null, () -> false);
+            if (!r.errors.isEmpty()) {
+                System.err.println("Trash purge left " + r.errors.size() + " item(s): " + r.errors.get(0));
+            }
+        });
+    }
+
+    private static boolean moveToTrash(Path p) {
+        try {
+            Files.createDirectories(TRASH_DIR);
+            if (!Files.getFileStore(p).equals(Files.getFileStore(TRASH_DIR))) return false;
+            Path target = TRASH_DIR.resolve(UUID.randomUUID() + "-" + p.getFileName());
+            Files.move(p, target, StandardCopyOption.ATOMIC_MOVE);
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private void deletePermanently(List<Path> roots, Result result, ProgressListener progress,
+                                   BooleanSupplier cancelled) {
+        // One walk per root collects files and directories (grouped by depth)
+        List<Path> files = new ArrayList<>();
+        TreeMap<Integer, List<Path>> dirsByDepth = new TreeMap<>(Comparator.reverseOrder());
+        Map<Path, Path> rootOf = new HashMap<>();
+        Set<Path> failedRoots = ConcurrentHashMap.newKeySet();
+        for (Path root : roots) {
+            try {
+                Files.walkFileTree(root, new SimpleFileVisitor<>() {
+                    @Override
+                    public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                        if (cancelled.getAsBoolean()) throw new CancellationException();
+                        dirsByDepth.computeIfAbsent(dir.getNameCount(), k -> new ArrayList<>()).add(dir);
+                        rootOf.put(dir, root);
+                        return FileVisitResult.CONTINUE;
+                    }
+
+                    @Override
+                    public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                        files.add(file);
+                        rootOf.put(file, root);
+                        return FileVisitResult.CONTINUE;
+                    }
+
+                    @Override
+                    public FileVisitResult visitFileFailed(Path file, IOException e) {
+                        if (e instanceof NoSuchFileException) return FileVisitResult.CONTINUE;
+                        result.errors.add(file.getFileName() + ": " + describe(e));
+                        failedRoots.add(root);
+                        return FileVisitResult.CONTINUE;
+                    }
+                });
+            } catch (IOException e) {
+                result.errors.add(root.getFileName() + ": " + describe(e));
+            }
+        }
+
+        long total = files.size();
+        for (List<Path> level : dirsByDepth.values()) total += level.size();
+        AtomicInteger done = new AtomicInteger();
+
+        ForkJoinPool pool = new ForkJoinPool(PARALLELISM);
+        try {
+            deleteAll(pool, files, rootOf, failedRoots, result, done, total, progress, cancelled);
+            // Siblings at one depth are independent, so each level is deleted in parallel too
+            for (List<Path> level : dirsByDepth.values()) {
+                deleteAll(pool, level, rootOf, failedRoots, result, done, total, progress, cancelled);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        for (Path root : roots) {
+            if (!failedRoots.contains(root) && !Files.exists(root, LinkOption.NOFOLLOW_LINKS)) {
+                result.completed.add(root);
+            }
+        }
+    }
+
+    private void deleteAll(ForkJoinPool pool, List<Path> paths, Map<Path, Path> rootOf, Set<Path> failedRoots,
+                           Result result, AtomicInteger done, long total, ProgressListener progress,
+                           BooleanSupplier cancelled) {
+        try {
+            pool.submit(() -> paths.parallelStream().forEach(p -> {
+                if (cancelled.getAsBoolean()) throw new CancellationException();
+                Path root = rootOf.get(p);
+                if (root != null && failedRoots.contains(root) && Files.isDirectory(p, LinkOption.NOFOLLOW_LINKS)) {
+                    // Something inside failed; the folder cannot be empty
+                    return;
+                }
+                try {
+                    Files.delete(p);
+                    result.deletedFiles.add(p);
+                } catch (NoSuchFileException e) {
+                    // Already gone
+                } catch (IOException e) {
+                    result.errors.add(p.getFileName() + ": " + describe(e));
+                    if (root != null) failedRoots.add(root);
+                }
+                int n = done.incrementAndGet();
+                if (progress != null && (n & 0xFF) == 0) progress.onProgress(n, total);
+            })).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof CancellationException c) throw c;
+            throw new IllegalStateException(e.getCause());
+        }
+        if (progress != null) progress.onProgress(done.get(), total);
+    }
+
+    private static String describe(IOException e) {
+        if (e instanceof DirectoryNotEmptyException) return "folder not empty";
+        if (e instanceof AccessDeniedException) return "access denied";
+        if (e instanceof NoSuchFileException) return "no longer exists";
+        return e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+    }
+}
@@ -0,0 +1,148 @@
+package services;
+
+import controllers.FileItem;
+import controllers.FileItemStore;
+import javafx.application.Platform;
+import javafx.concurrent.Task;
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Lists directories on a background thread and streams the entries
+ * back to the FX thread in chunks.
+ */
+public class DirectoryListingService {
+    public static final int CHUNK_SIZE = 500;
+    private static final long CHUNK_INTERVAL_MS = 100;
+
+    private final TaskRunner tasks = TaskRunner.root().child("directory-listing");
+
+    /**
+     * Start listing a directory.
+     * onChunk is called on the FX thread with each batch of entries; the first call
+     * has first=true so the caller can replace the previous contents.
+     * expectedCount is used for progress (pass 0 if unknown).
+     * The task value is the total number of entries listed.
+     */
+    public Task<Integer> list(Path dir, int expectedCount, ChunkConsumer onChunk) {
+        Task<Integer> task = new Task<>() {
+            @Override
+            protected Integer call() throws IOException {
+                updateMessage("Loading " + dir.getFileName() + "...");
+                updateProgress(-1, 1);
+
+                // One column store per chunk, so a published chunk is never written again
+                FileItemStore.Builder chunk = new FileItemStore.Builder(dir, CHUNK_SIZE);
+                int count = 0;
+                boolean first = true;
+                long lastPublish = System.currentTimeMillis();
+
+                try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+                    for (Path p : stream) {
+                        if (isCancelled()) return count;
+
+                        chunk.add(p.getFileName().toString(), readAttributes(p));
+                        count++;
+
+                        long now = System.currentTimeMillis();
+                        if (chunk.size() >= CHUNK_SIZE || now - lastPublish >= CHUNK_INTERVAL_MS) {
+                            publish(chunk.build(), first);
+                            chunk = new FileItemStore.Builder(dir, CHUNK_SIZE);
+                            first = false;
+                            lastPublish = now;
+                            reportProgress(count);
+                        }
+                    }
+                }
+                // Always publish the last chunk, even if empty, so an empty directory clears the table
+                if (!isCancelled()) publish(chunk.build(), first);
+                updateProgress(1, 1);
+                updateMessage(count + " items");
+                return count;
+            }
+
+            private void publish(List<FileItem> items, boolean first) {
+                Platform.runLater(() -> {
+                    // Cancellation happens on the FX thread, so this check is race-free
+                    if (!isCancelled()) onChunk.accept(items, first);
+                });
+            }
+
+            private void reportProgress(int count) {
+                if (expectedCount > 0) {
+                    updateProgress(Math.min(count, expectedCount), expectedCount);
+                }
+                updateMessage("Loading... " + count + " items");
+            }
+        };
+        return tasks.submit(task);
+    }
+
+    /**
+     * Read the directory in the background and work out what differs from
+     * the entries currently shown (e.g. ones loaded from the MetadataIndex)
+     */
+    public Task<MetadataIndex.Diff> reconcile(Path dir, List<FileItem> shown) {
+        Task<MetadataIndex.Diff> task = new Task<>() {
+            @Override
+            protected MetadataIndex.Diff call() throws IOException {
+                updateMessage("Checking " + dir.getFileName() + "...");
+                return MetadataIndex.diff(shown, listAll(dir));
+            }
+        };
+        return tasks.submit(task);
+    }
+
+    /**
+     * List a whole directory on the calling thread, e.g. to pre-warm the first view
+     */
+    public static List<FileItem> listAll(Path dir) throws IOException {
+        FileItemStore.Builder items = new FileItemStore.Builder(dir, 256);
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+            for (Path p : stream) {
+                items.add(p.getFileName().toString(), readAttributes(p));
+            }
+        }
+        return items.build();
+    }
+
+    /**
+     * Subfolders of dir sorted by name, on the calling thread
+     */
+    public static List<FileItem> listFolders(Path dir) throws IOException {
+        FileItemStore.Builder store = new FileItemStore.Builder(dir, 16);
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+            for (Path p : stream) {
+                try {
+                    BasicFileAttributes attrs = Files.readAttributes(p, BasicFileAttributes.class);
+                    if (attrs.isDirectory()) store.add(p.getFileName().toString(), attrs);
+                } catch (IOException e) {
+                    // Vanished or unreadable, leave it out of the tree
+                }
+            }
+        }
+        List<FileItem> folders = store.build();
+        folders.sort(Comparator.comparing(FileItem::getName, String.CASE_INSENSITIVE_ORDER));
+        return folders;
+    }
+
+    private static BasicFileAttributes readAttributes(Path p) {
+        try {
+            return Files.readAttributes(p, BasicFileAttributes.class);
+        } catch (IOException e) {
+            return null; // Vanished or unreadable, still show the name
+        }
+    }
+
+    public void shutdown() {
+        tasks.close();
+    }
+
+    @FunctionalInterface
+    public interface ChunkConsumer {
+        void accept(List<FileItem> items, boolean first);
+    }
+}
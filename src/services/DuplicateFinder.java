@@ -0,0 +1,468 @@
+package services;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Finds files with identical content under one or more folders.
+ * Work is staged so most files are never read in full:
+ * <ol>
+ * <li>group by size; a file with a unique size cannot have a duplicate</li>
+ * <li>hash the first and last PARTIAL_BYTES of each remaining file</li>
+ * <li>hash the whole content only where size and partial hash both match</li>
+ * </ol>
+ * Hashing is spread over a ForkJoinPool, and hashes are kept in a HashCache
+ * keyed by path, size and modification time, so a second scan of unchanged
+ * files reads nothing.
+ */
+public class DuplicateFinder {
+    public enum Action { DELETE, HARDLINK }
+
+    public static final int PARTIAL_BYTES = 64 * 1024;
+    private static final int BUFFER_SIZE = 1024 * 1024;
+    private static final int PARALLELISM = Math.max(2, Runtime.getRuntime().availableProcessors());
+    private static final HashCache cache = new HashCache();
+
+    public interface ProgressListener {
+        void onProgress(String stage, long done, long total);
+    }
+
+    public static class Group {
+        private final String hash;
+        private final long size;
+        private final List<Path> files;
+
+        Group(String hash, long size, List<Path> files) {
+            this.hash = hash;
+            this.size = size;
+            this.files = files;
+        }
+
+        public String getHash() { return hash; }
+        public long getSize() { return size; }
+        /** Oldest file first */
+        public List<Path> getFiles() { return files; }
+        /** Bytes that would be freed by keeping a single copy */
+        public long getWastedBytes() { return size * (files.size() - 1); }
+    }
+
+    public static class Result {
+        private final List<Group> groups = new ArrayList<>();
+        private final List<String> errors = Collections.synchronizedList(new ArrayList<>());
+        private final AtomicLong bytesRead = new AtomicLong();
+        private final AtomicInteger filesHashed = new AtomicInteger();
+        private int filesScanned;
+        private long millis;
+
+        /** Largest waste first */
+        public List<Group> getGroups() { return groups; }
+        public List<String> getErrors() { return errors; }
+        public int getFilesScanned() { return filesScanned; }
+        /** Files that had to be read (partially or fully); the rest came from the cache */
+        public int getFilesHashed() { return filesHashed.get(); }
+        public long getBytesRead() { return bytesRead.get(); }
+        public long getMillis() { return millis; }
+
+        public long getWastedBytes() {
+            long total = 0;
+            for (Group g : groups) total += g.getWastedBytes();
+            return total;
+        }
+    }
+
+    public static class ActionResult {
+        private final List<Path> completed = new ArrayList<>();
+        private final List<Path> trashed = new ArrayList<>();
+        private final List<String> errors = new ArrayList<>();
+        private long bytesFreed;
+
+        public List<Path> getCompleted() { return completed; }
+        /** Deleted duplicates that went to the trash rather than being removed permanently */
+        public List<Path> getTrashed() { return trashed; }
+        public List<String> getErrors() { return errors; }
+        public long getBytesFreed() { return bytesFreed; }
+    }
+
+    /** One regular file as seen by the walk */
+    private static class Candidate {
+        final Path path;
+        final long size;
+        final long modifiedMillis;
+        final Object fileKey;
+        String partialHash;
+        String fullHash;
+
+        Candidate(Path path, BasicFileAttributes attrs) {
+            this.path = path;
+            this.size = attrs.size();
+            this.modifiedMillis = attrs.lastModifiedTime().toMillis();
+            this.fileKey = attrs.fileKey();
+        }
+    }
+
+    private final List<Path> roots;
+    private final long minSize;
+
+    /**
+     * minSize: smaller files are ignored (at least 1; empty files are all "equal")
+     */
+    public DuplicateFinder(List<Path> roots, long minSize) {
+        this.roots = roots;
+        this.minSize = Math.max(1, minSize);
+    }
+
+    public Result run(ProgressListener progress, BooleanSupplier cancelled) {
+        Result result = new Result();
+        long start = System.nanoTime();
+
+        List<List<Candidate>> bySize = groupBySize(walk(result, progress, cancelled));
+        int candidates = 0;
+        for (List<Candidate> g : bySize) candidates += g.size();
+
+        ForkJoinPool pool = new ForkJoinPool(PARALLELISM);
+        try {
+            // Stage 2: first and last block
+            List<Candidate> flat = new ArrayList<>(candidates);
+            bySize.forEach(flat::addAll);
+            AtomicInteger done = new AtomicInteger();
+            int total = flat.size();
+            forEach(pool, flat, c -> {
+                c.partialHash = partialHash(c, result);
+                report(progress, "Comparing file ends", done.incrementAndGet(), total);
+            }, cancelled);
+
+            List<List<Candidate>> partialGroups = new ArrayList<>();
+            for (List<Candidate> g : bySize) {
+                partialGroups.addAll(regroup(g, c -> c.partialHash));
+            }
+
+            // Stage 3: full content, only where the ends matched
+            List<Candidate> full = new ArrayList<>();
+            long fullBytes = 0;
+            for (List<Candidate> g : partialGroups) {
+                full.addAll(g);
+                fullBytes += g.get(0).size * g.size();
+            }
+            AtomicLong bytesDone = new AtomicLong();
+            long bytesTotal = fullBytes;
+            forEach(pool, full, c -> {
+                c.fullHash = fullHash(c, result);
+                report(progress, "Comparing contents", bytesDone.addAndGet(c.size), bytesTotal);
+            }, cancelled);
+
+            for (List<Candidate> g : partialGroups) {
+                for (List<Candidate> same : regroup(g, c -> c.fullHash)) {
+                    same.sort(Comparator.comparingLong((Candidate c) -> c.modifiedMillis)
+                            .thenComparing(c -> c.path.toString()));
+                    List<Path> files = new ArrayList<>(same.size());
+                    for (Candidate c : same) files.add(c.path);
+                    result.groups.add(new Group(same.get(0).fullHash, same.get(0).size, files));
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        result.groups.sort(Comparator.comparingLong(Group::getWastedBytes).reversed());
+        result.millis = (System.nanoTime() - start) / 1_000_000;
+        return result;
+    }
+
+    // ===== STAGE 1: WALK =====
+
+    private List<Candidate> walk(Result result, ProgressListener progress, BooleanSupplier cancelled) {
+        List<Candidate> files = new ArrayList<>();
+        Set<Path> visitedRoots = new HashSet<>();
+        for (Path root : roots) {
+            // Overlapping roots would list the same file twice
+            Path normalized = root.toAbsolutePath().normalize();
+            if (visitedRoots.stream().anyMatch(normalized::startsWith)) continue;
+            visitedRoots.add(normalized);
+            try {
+                Files.walkFileTree(root, new SimpleFileVisitor<>() {
+                    @Override
+                    public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                        if (cancelled.getAsBoolean()) throw new CancellationException();
+                        return FileVisitResult.CONTINUE;
+                    }
+
+                    @Override
+                    public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                        if (attrs.isRegularFile() && attrs.size() >= minSize) {
+                            files.add(new Candidate(file, attrs));
+                            if ((files.size() & 0x3FF) == 0) report(progress, "Scanning", files.size(), -1);
+                        }
+                        return FileVisitResult.CONTINUE;
+                    }
+
+                    @Override
+                    public FileVisitResult visitFileFailed(Path file, IOException e) {
+                        result.errors.add(file + ": " + describe(e));
+                        return FileVisitResult.CONTINUE;
+                    }
+                });
+            } catch (IOException e) {
+                result.errors.add(root + ": " + describe(e));
+            }
+        }
+        result.filesScanned = files.size();
+        return files;
+    }
+
+    /**
+     * Size groups that could contain duplicates. Hard links to one file share a
+     * fileKey and are already a single copy, so they count once.
+     */
+    private static List<List<Candidate>> groupBySize(List<Candidate> files) {
+        Map<Long, List<Candidate>> bySize = new HashMap<>();
+        for (Candidate c : files) {
+            bySize.computeIfAbsent(c.size, k -> new ArrayList<>()).add(c);
+        }
+        List<List<Candidate>> groups = new ArrayList<>();
+        for (List<Candidate> g : bySize.values()) {
+            if (g.size() < 2) continue;
+            Set<Object> keys = new HashSet<>();
+            List<Candidate> distinct = new ArrayList<>(g.size());
+            for (Candidate c : g) {
+                if (c.fileKey == null || keys.add(c.fileKey)) distinct.add(c);
+            }
+            if (distinct.size() > 1) groups.add(distinct);
+        }
+        return groups;
+    }
+
+    /** Sub-groups of at least two files with the same (non-null) key */
+    private static List<List<Candidate>> regroup(List<Candidate> group, Function<Candidate, String> key) {
+        Map<String, List<Candidate>> byKey = new HashMap<>();
+        for (Candidate c : group) {
+            String k = key.apply(c);
+            if (k != null) byKey.computeIfAbsent(k, x -> new ArrayList<>()).add(c);
+        }
+        List<List<Candidate>> out = new ArrayList<>();
+        for (List<Candidate> g : byKey.values()) {
+            if (g.size() > 1) out.add(g);
+        }
+        return out;
+    }
+
+    // ===== HASHING =====
+
+    private String partialHash(Candidate c, Result result) {
+        HashCache.Entry entry = cache.lookup(c.path, c.size, c.modifiedMillis);
+        if (entry.getPartialHash() != null) return entry.getPartialHash();
+        try (FileChannel ch = FileChannel.open(c.path, StandardOpenOption.READ)) {
+            MessageDigest md = sha256();
+            ByteBuffer buf = ByteBuffer.allocate(PARTIAL_BYTES);
+            long read = readFully(ch, 0, buf, md);
+            if (c.size > PARTIAL_BYTES) {
+                buf.clear();
+                read += readFully(ch, Math.max(PARTIAL_BYTES, c.size - PARTIAL_BYTES), buf, md);
+            }
+            result.bytesRead.addAndGet(read);
+            result.filesHashed.incrementAndGet();
+            String hash = hex(md.digest());
+            entry.setPartialHash(hash);
+            // The two blocks covered the whole file, so this is also the full hash
+            if (c.size <= 2L * PARTIAL_BYTES) entry.setFullHash(hash);
+            return hash;
+        } catch (IOException e) {
+            result.errors.add(c.path + ": " + describe(e));
+            return null;
+        }
+    }
+
+    private String fullHash(Candidate c, Result result) {
+        HashCache.Entry entry = cache.lookup(c.path, c.size, c.modifiedMillis);
+        if (entry.getFullHash() != null) return entry.getFullHash();
+        try {
+            String hash = hashFile(c.path, result.bytesRead);
+            entry.setFullHash(hash);
+            return hash;
+        } catch (IOException e) {
+            result.errors.add(c.path + ": " + describe(e));
+            return null;
+        }
+    }
+
+    /**
+     * Full-content hash in the same form as stage 3 (files up to two blocks long
+     * hash the same way as in stage 2)
+     */
+    private static String hashFile(Path path, AtomicLong bytesRead) throws IOException {
+        long size = Files.size(path);
+        MessageDigest md = sha256();
+        if (size <= 2L * PARTIAL_BYTES) {
+            try (FileChannel ch = FileChannel.open(path, StandardOpenOption.READ)) {
+                ByteBuffer buf = ByteBuffer.allocate(PARTIAL_BYTES);
+                long read = readFully(ch, 0, buf, md);
+                if (size > PARTIAL_BYTES) {
+                    buf.clear();
+                    read += readFully(ch, Math.max(PARTIAL_BYTES, size - PARTIAL_BYTES), buf, md);
+                }
+                bytesRead.addAndGet(read);
+            }
+            return hex(md.digest());
+        }
+        byte[] buf = new byte[BUFFER_SIZE];
+        try (InputStream in = Files.newInputStream(path)) {
+            int n;
+            while ((n = in.read(buf)) > 0) {
+                md.update(buf, 0, n);
+                bytesRead.addAndGet(n);
+            }
+        }
+        return hex(md.digest());
+    }
+
+    private static long readFully(FileChannel ch, long position, ByteBuffer buf, MessageDigest md) throws IOException {
+        long read = 0;
+        while (buf.hasRemaining()) {
+            int n = ch.read(buf, position + read);
+            if (n < 0) break;
+            read += n;
+        }
+        buf.flip();
+        md.update(buf);
+        return read;
+    }
+
+    private static void forEach(ForkJoinPool pool, List<Candidate> items, Consumer<Candidate> work,
+                                BooleanSupplier cancelled) {
+        if (items.isEmpty()) return;
+        try {
+            pool.submit(() -> items.parallelStream().forEach(c -> {
+                if (cancelled.getAsBoolean()) throw new CancellationException();
+                work.accept(c);
+            })).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof CancellationException c) throw c;
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    // ===== RESOLVING =====
+
+    /**
+     * Delete the given duplicates (through DeleteEngine, so deleteMode decides
+     * between the trash and a permanent delete), or replace each with a hard link
+     * to keeper. Every file is re-checked against the group hash first (cheap when
+     * unchanged, thanks to the cache), so a file edited since the scan is never touched.
+     */
+    public static ActionResult resolve(Group group, Path keeper, List<Path> duplicates, Action action,
+                                       DeleteEngine.Mode deleteMode) {
+        ActionResult result = new ActionResult();
+        String keeperProblem = verify(keeper, group);
+        if (keeperProblem != null) {
+            result.errors.add(keeper.getFileName() + ": " + keeperProblem);
+            return result;
+        }
+        List<Path> toDelete = new ArrayList<>();
+        for (Path dup : duplicates) {
+            if (dup.equals(keeper)) continue;
+            String problem = verify(dup, group);
+            if (problem != null) {
+                result.errors.add(dup.getFileName() + ": " + problem);
+                continue;
+            }
+            if (action == Action.DELETE) {
+                toDelete.add(dup);
+                continue;
+            }
+            try {
+                replaceWithLink(dup, keeper);
+                cache.invalidate(dup);
+                result.completed.add(dup);
+                result.bytesFreed += group.getSize();
+            } catch (IOException e) {
+                result.errors.add(dup.getFileName() + ": " + describe(e));
+            } catch (UnsupportedOperationException e) {
+                result.errors.add(dup.getFileName() + ": hard links are not supported here");
+            }
+        }
+        if (!toDelete.isEmpty()) {
+            DeleteEngine.Result deleted = new DeleteEngine(toDelete, deleteMode).run(null, () -> false);
+            for (Path dup : deleted.getCompleted()) {
+                cache.invalidate(dup);
+                result.completed.add(dup);
+                result.bytesFreed += group.getSize();
+            }
+            result.trashed.addAll(deleted.getTrashed());
+            result.errors.addAll(deleted.getErrors());
+        }
+        return result;
+    }
+
+    /** Null if the file still has the group's content, otherwise why not */
+    private static String verify(Path path, Group group) {
+        try {
+            BasicFileAttributes attrs = Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+            if (!attrs.isRegularFile() || attrs.size() != group.getSize()) return "changed since scan";
+            HashCache.Entry entry = cache.lookup(path, attrs.size(), attrs.lastModifiedTime().toMillis());
+            String hash = entry.getFullHash();
+            if (hash == null) {
+                hash = hashFile(path, new AtomicLong());
+                entry.setFullHash(hash);
+            }
+            return hash.equals(group.getHash()) ? null : "changed since scan";
+        } catch (IOException e) {
+            return describe(e);
+        }
+    }
+
+    /**
+     * Link next to the duplicate first, then rename over it, so the name never
+     * disappears if linking fails
+     */
+    private static void replaceWithLink(Path dup, Path keeper) throws IOException {
+        if (Files.isSameFile(dup, keeper)) return;
+        Path tmp = dup.resolveSibling("." + dup.getFileName() + "." + UUID.randomUUID() + ".link");
+        Files.createLink(tmp, keeper);
+        try {
+            Files.move(tmp, dup, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            Files.deleteIfExists(tmp);
+            throw e;
+        }
+    }
+
+    // ===== HELPERS =====
+
+    private static void report(ProgressListener progress, String stage, long done, long total) {
+        if (progress != null) progress.onProgress(stage, done, total);
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String hex(byte[] bytes) {
+        return HexFormat.of().formatHex(bytes);
+    }
+
+    private static String describe(IOException e) {
+        if (e instanceof AccessDeniedException) return "access denied";
+        if (e instanceof NoSuchFileException) return "no longer exists";
+        if (e instanceof FileSystemException fse && fse.getReason() != null) return fse.getReason();
+        return e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+    }
+}
@@ -0,0 +1,186 @@
+package services;
+
+import javafx.concurrent.Task;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.*;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import utils.Metrics;
+
+/**
+ * Reads file previews one page at a time on a background thread.
+ * Only PAGE_SIZE bytes are read per request; the first page also detects the
+ * charset and whether the file is binary. Later pages continue from the byte
+ * offset where the previous page stopped decoding, so multi-byte characters
+ * are never split.
+ */
+public class FilePreviewService {
+    public static final int PAGE_SIZE = 64 * 1024;
+    public static final long MAX_PREVIEW_BYTES = 8L * 1024 * 1024;
+    private static final int BINARY_SNIFF_BYTES = 8 * 1024;
+    private static final int HEX_DUMP_BYTES = 256;
+    private static final Metrics.Timer READ = Metrics.timer("preview.read");
+    private static final Metrics.Counter BYTES_READ = Metrics.counter("preview.bytes");
+
+    private final TaskRunner tasks = TaskRunner.root().child("file-preview");
+
+    /**
+     * One decoded slice of a file
+     */
+    public static class Page {
+        private final String text;
+        private final long offset;
+        private final long nextOffset;
+        private final long fileSize;
+        private final Charset charset;
+        private final boolean binary;
+
+        Page(String text, long offset, long nextOffset, long fileSize, Charset charset, boolean binary) {
+            this.text = text;
+            this.offset = offset;
+            this.nextOffset = nextOffset;
+            this.fileSize = fileSize;
+            this.charset = charset;
+            this.binary = binary;
+        }
+
+        public String getText() { return text; }
+        public long getOffset() { return offset; }
+        public long getNextOffset() { return nextOffset; }
+        public long getFileSize() { return fileSize; }
+        public Charset getCharset() { return charset; }
+        public boolean isBinary() { return binary; }
+        public boolean isLast() { return binary || nextOffset >= fileSize; }
+        /** Bytes of the file covered by this page, used for cache accounting */
+        public long getByteLength() { return nextOffset - offset; }
+    }
+
+    /**
+     * Load a page in the background. Pass charset=null for the first page to detect it.
+     */
+    public Task<Page> load(Path path, long offset, Charset charset) {
+        Task<Page> task = new Task<>() {
+            @Override
+            protected Page call() throws IOException {
+                try (Metrics.Sample sample = READ.start()) {
+                    try {
+                        Page page = readPage(path, offset, charset);
+                        BYTES_READ.add(page.getByteLength());
+                        return page;
+                    } catch (IOException e) {
+                        sample.failed();
+                        throw e;
+                    }
+                }
+            }
+        };
+        return tasks.submit(task);
+    }
+
+    public void shutdown() {
+        tasks.close();
+    }
+
+    public static Page readPage(Path path, long offset, Charset charset) throws IOException {
+        try (FileChannel ch = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = ch.size();
+            if (offset >= size) {
+                return new Page("", offset, offset, size, charset, false);
+            }
+            int len = (int) Math.min(PAGE_SIZE, size - offset);
+            ByteBuffer buf = ByteBuffer.allocate(len);
+            while (buf.hasRemaining()) {
+                if (ch.read(buf, offset + buf.position()) < 0) break;
+            }
+            buf.flip();
+            boolean last = offset + buf.limit() >= size;
+
+            if (charset == null) {
+                Charset bom = detectBom(buf);
+                if (bom != null) {
+                    charset = bom;
+                } else if (looksBinary(buf)) {
+                    return new Page(hexDump(buf, size), offset, size, size, null, true);
+                } else {
+                    charset = isValidUtf8(buf, last) ? StandardCharsets.UTF_8 : StandardCharsets.ISO_8859_1;
+                }
+            }
+
+            CharsetDecoder decoder = charset.newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPLACE)
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE);
+            CharBuffer out = CharBuffer.allocate((int) (buf.remaining() * decoder.maxCharsPerByte()) + 1);
+            decoder.decode(buf, out, last);
+            if (last) decoder.flush(out);
+            out.flip();
+
+            // An incomplete trailing character is left for the next page
+            long consumed = buf.position();
+            if (consumed == 0 && !last) consumed = buf.limit();
+            return new Page(out.toString(), offset, offset + consumed, size, charset, false);
+        }
+    }
+
+    private static Charset detectBom(ByteBuffer buf) {
+        int n = buf.remaining();
+        int p = buf.position();
+        if (n >= 3 && (buf.get(p) & 0xFF) == 0xEF && (buf.get(p + 1) & 0xFF) == 0xBB && (buf.get(p + 2) & 0xFF) == 0xBF) {
+            buf.position(p + 3);
+            return StandardCharsets.UTF_8;
+        }
+        if (n >= 2 && (buf.get(p) & 0xFF) == 0xFE && (buf.get(p + 1) & 0xFF) == 0xFF) {
+            buf.position(p + 2);
+            return StandardCharsets.UTF_16BE;
+        }
+        if (n >= 2 && (buf.get(p) & 0xFF) == 0xFF && (buf.get(p + 1) & 0xFF) == 0xFE) {
+            buf.position(p + 2);
+            return StandardCharsets.UTF_16LE;
+        }
+        return null;
+    }
+
+    static boolean looksBinary(ByteBuffer buf) {
+        int n = Math.min(buf.remaining(), BINARY_SNIFF_BYTES);
+        int control = 0;
+        for (int i = 0; i < n; i++) {
+            int b = buf.get(buf.position() + i) & 0xFF;
+            if (b == 0) return true;
+            if (b < 0x20 && b != '\n' && b != '\r' && b != '\t' && b != '\f' && b != 0x1B) control++;
+        }
+        return n > 0 && control * 10 > n;
+    }
+
+    private static boolean isValidUtf8(ByteBuffer buf, boolean last) {
+        CharsetDecoder strict = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPORT)
+                .onUnmappableCharacter(CodingErrorAction.REPORT);
+        ByteBuffer copy = buf.duplicate();
+        CharBuffer out = CharBuffer.allocate(copy.remaining() + 1);
+        return !strict.decode(copy, out, last).isError();
+    }
+
+    private static String hexDump(ByteBuffer buf, long size) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("[Binary file, ").append(size).append(" bytes]\n\n");
+        int n = Math.min(buf.remaining(), HEX_DUMP_BYTES);
+        for (int row = 0; row < n; row += 16) {
+            sb.append(String.format("%08x  ", row));
+            StringBuilder ascii = new StringBuilder();
+            for (int i = row; i < row + 16; i++) {
+                if (i < n) {
+                    int b = buf.get(buf.position() + i) & 0xFF;
+                    sb.append(String.format("%02x ", b));
+                    ascii.append(b >= 0x20 && b < 0x7F ? (char) b : '.');
+                } else {
+                    sb.append("   ");
+                }
+            }
+            sb.append(' ').append(ascii).append('\n');
+        }
+        if (size > n) sb.append("...\n");
+        return sb.toString();
+    }
+}
@@ -0,0 +1,270 @@
+package services;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Copies or moves files and directory trees.
+ * Moves within one file store are done as atomic renames; everything else is
+ * copied (large files with FileChannel.transferTo) on a small worker pool and,
+ * for moves, the source is removed once its copy succeeded.
+ * Failures are collected per item instead of stopping the batch.
+ */
+public class FileTransferEngine {
+    public enum Mode { COPY, MOVE }
+
+    /** Files at least this large are copied with transferTo in cancellable slices */
+    public static final long TRANSFER_THRESHOLD = 1024 * 1024;
+    private static final long TRANSFER_SLICE = 64L * 1024 * 1024;
+    private static final int WORKERS = Math.min(4, Runtime.getRuntime().availableProcessors());
+
+    public interface ProgressListener {
+        void onProgress(long bytesDone, long bytesTotal, long bytesPerSecond);
+    }
+
+    public static class Result {
+        private final List<Path> completed = Collections.synchronizedList(new ArrayList<>());
+        private final List<String> errors = Collections.synchronizedList(new ArrayList<>());
+        private long bytes;
+        private long millis;
+
+        /** Top-level sources that were transferred without any error */
+        public List<Path> getCompleted() { return completed; }
+        public List<String> getErrors() { return errors; }
+        public long getBytes() { return bytes; }
+        public long getMillis() { return millis; }
+    }
+
+    private final List<Path> sources;
+    private final Path targetDir;
+    private final Mode mode;
+    private final AtomicLong bytesDone = new AtomicLong();
+    private long bytesTotal;
+    private long startNanos;
+
+    public FileTransferEngine(List<Path> sources, Path targetDir, Mode mode) {
+        this.sources = sources;
+        this.targetDir = targetDir;
+        this.mode = mode;
+    }
+
+    public Result run(ProgressListener progress, BooleanSupplier cancelled) throws IOException {
+        Result result = new Result();
+        startNanos = System.nanoTime();
+        Files.createDirectories(targetDir);
+
+        // Renames first: they are instant and need no byte accounting
+        List<Path> toCopy = new ArrayList<>();
+        for (Path src : sources) {
+            if (cancelled.getAsBoolean()) throw new CancellationException();
+            Path dst = targetDir.resolve(src.getFileName().toString());
+            if (targetDir.toAbsolutePath().normalize().startsWith(src.toAbsolutePath().normalize())) {
+                result.errors.add(src.getFileName() + ": cannot copy a folder into itself");
+                continue;
+            }
+            if (mode == Mode.MOVE && sameFileStore(src, targetDir)) {
+                try {
+                    // ATOMIC_MOVE replaces an existing target without complaint, so check first
+                    if (Files.exists(dst, LinkOption.NOFOLLOW_LINKS)) throw new FileAlreadyExistsException(dst.toString());
+                    Files.move(src, dst, StandardCopyOption.ATOMIC_MOVE);
+                    result.completed.add(src);
+                    continue;
+                } catch (FileAlreadyExistsException e) {
+                    result.errors.add(src.getFileName() + ": already exists in destination");
+                    continue;
+                } catch (AtomicMoveNotSupportedException e) {
+                    // Fall back to copy + delete
+                } catch (IOException e) {
+                    result.errors.add(src.getFileName() + ": " + describe(e));
+                    continue;
+                }
+            }
+            toCopy.add(src);
+        }
+
+        bytesTotal = 0;
+        for (Path src : toCopy) bytesTotal += treeSize(src);
+
+        ExecutorService workers = Executors.newFixedThreadPool(WORKERS, r -> {
+            Thread t = new Thread(r, "file-transfer");
+            t.setDaemon(true);
+            return t;
+        });
+        try {
+            for (Path src : toCopy) {
+                if (cancelled.getAsBoolean()) throw new CancellationException();
+                if (copyTree(src, targetDir.resolve(src.getFileName().toString()), workers, result, progress, cancelled)) {
+                    result.completed.add(src);
+                }
+            }
+        } finally {
+            workers.shutdownNow();
+        }
+        result.bytes = bytesDone.get();
+        result.millis = (System.nanoTime() - startNanos) / 1_000_000;
+        return result;
+    }
+
+    /**
+     * Copy one top-level source. Returns true if every file in it was transferred.
+     */
+    private boolean copyTree(Path src, Path dst, ExecutorService workers, Result result,
+                             ProgressListener progress, BooleanSupplier cancelled) throws IOException {
+        List<Future<?>> pending = new ArrayList<>();
+        List<String> errors = Collections.synchronizedList(new ArrayList<>());
+        List<Path> directories = new ArrayList<>();
+
+        try {
+            Files.walkFileTree(src, new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                    if (cancelled.getAsBoolean()) throw new CancellationException();
+                    Path target = dst.resolve(src.relativize(dir).toString());
+                    if (dir.equals(src) && Files.exists(target)) {
+                        errors.add(src.getFileName() + ": already exists in destination");
+                        return FileVisitResult.TERMINATE;
+                    }
+                    Files.createDirectories(target);
+                    directories.add(dir);
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                    Path target = dst.resolve(src.relativize(file).toString());
+                    pending.add(workers.submit(() -> {
+                        if (cancelled.getAsBoolean()) return;
+                        try {
+                            copyFile(file, target, attrs.size(), progress, cancelled);
+                            if (mode == Mode.MOVE) Files.delete(file);
+                        } catch (CancellationException e) {
+                            throw e;
+                        } catch (IOException e) {
+                            String name = file.equals(src)
+                                    ? src.getFileName().toString()
+                                    : src.getFileName() + "/" + src.relativize(file);
+                            errors.add(name + ": " + describe(e));
+                        }
+                    }));
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException e) {
+                    errors.add(file.getFileName() + ": " + describe(e));
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException e) {
+            errors.add(src.getFileName() + ": " + describe(e));
+        }
+
+        for (Future<?> f : pending) {
+            try {
+                f.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CancellationException();
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof CancellationException) throw new CancellationException();
+                errors.add(src.getFileName() + ": " + describe(e.getCause()));
+            }
+        }
+        if (cancelled.getAsBoolean()) throw new CancellationException();
+
+        if (mode == Mode.MOVE && errors.isEmpty()) {
+            // Deepest first; only directories emptied by the move are removed
+            for (int i = directories.size() - 1; i >= 0; i--) {
+                try {
+                    Files.delete(directories.get(i));
+                } catch (IOException e) {
+                    errors.add(directories.get(i).getFileName() + ": could not remove source folder");
+                }
+            }
+        }
+        result.errors.addAll(errors);
+        return errors.isEmpty();
+    }
+
+    private void copyFile(Path src, Path dst, long size, ProgressListener progress,
+                          BooleanSupplier cancelled) throws IOException {
+        if (size < TRANSFER_THRESHOLD) {
+            Files.copy(src, dst, StandardCopyOption.COPY_ATTRIBUTES);
+            report(size, progress);
+            return;
+        }
+        boolean created = false;
+        boolean done = false;
+        try (FileChannel in = FileChannel.open(src, StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(dst, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            // From here on dst is ours; before, it may be the user's existing file
+            created = true;
+            long pos = 0;
+            long total = in.size();
+            while (pos < total) {
+                if (cancelled.getAsBoolean()) throw new CancellationException();
+                long n = in.transferTo(pos, Math.min(TRANSFER_SLICE, total - pos), out);
+                if (n <= 0) throw new IOException("source ended after " + pos + " of " + total + " bytes");
+                pos += n;
+                report(n, progress);
+            }
+            done = true;
+        } finally {
+            if (created && !done) {
+                try {
+                    Files.deleteIfExists(dst);
+                } catch (IOException ignored) {}
+            }
+        }
+        Files.setLastModifiedTime(dst, Files.getLastModifiedTime(src));
+    }
+
+    private void report(long bytes, ProgressListener progress) {
+        long done = bytesDone.addAndGet(bytes);
+        if (progress == null) return;
+        long elapsedNanos = Math.max(1, System.nanoTime() - startNanos);
+        progress.onProgress(done, bytesTotal, done * 1_000_000_000L / elapsedNanos);
+    }
+
+    private static boolean sameFileStore(Path a, Path b) {
+        try {
+            return Files.getFileStore(a).equals(Files.getFileStore(b));
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static long treeSize(Path root) {
+        AtomicLong size = new AtomicLong();
+        try {
+            Files.walkFileTree(root, new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                    size.addAndGet(attrs.size());
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException e) {
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException ignored) {}
+        return size.get();
+    }
+
+    private static String describe(Throwable e) {
+        if (e instanceof FileAlreadyExistsException) return "already exists in destination";
+        if (e instanceof NoSuchFileException) return "no longer exists";
+        if (e instanceof AccessDeniedException) return "access denied";
+        return e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+    }
+}
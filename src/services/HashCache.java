@@ -0,0 +1,79 @@
+package services;
+
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Content hashes keyed by path, valid while the file's size and modification
+ * time are unchanged. Least recently used entries are dropped past maxEntries.
+ */
+public class HashCache {
+    public static final int DEFAULT_MAX_ENTRIES = 200_000;
+
+    public static class Entry {
+        private final long size;
+        private final long modifiedMillis;
+        private volatile String partialHash;
+        private volatile String fullHash;
+
+        Entry(long size, long modifiedMillis) {
+            this.size = size;
+            this.modifiedMillis = modifiedMillis;
+        }
+
+        public long getSize() { return size; }
+        public long getModifiedMillis() { return modifiedMillis; }
+        /** Hash of the first and last blocks, or null if not computed yet */
+        public String getPartialHash() { return partialHash; }
+        /** Hash of the whole content, or null if not computed yet */
+        public String getFullHash() { return fullHash; }
+
+        void setPartialHash(String hash) { this.partialHash = hash; }
+        void setFullHash(String hash) { this.fullHash = hash; }
+    }
+
+    private final Map<Path, Entry> entries;
+    private long hits;
+    private long misses;
+
+    public HashCache() {
+        this(DEFAULT_MAX_ENTRIES);
+    }
+
+    public HashCache(int maxEntries) {
+        this.entries = new LinkedHashMap<>(1024, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Path, Entry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * The entry for this version of the file. A stale entry (different size or
+     * modification time) is replaced by an empty one.
+     */
+    public synchronized Entry lookup(Path path, long size, long modifiedMillis) {
+        Entry e = entries.get(path);
+        if (e != null && e.size == size && e.modifiedMillis == modifiedMillis) {
+            hits++;
+            return e;
+        }
+        misses++;
+        e = new Entry(size, modifiedMillis);
+        entries.put(path, e);
+        return e;
+    }
+
+    public synchronized void invalidate(Path path) {
+        entries.remove(path);
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long getHits() { return hits; }
+    public synchronized long getMisses() { return misses; }
+}
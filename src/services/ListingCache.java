@@ -0,0 +1,66 @@
+package services;
+
+import controllers.FileItem;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Last listing of recently visited directories, so going back or forward shows
+ * a folder at once (the caller still reconciles it with the disk). Bounded by
+ * both the number of directories and the total number of entries; least
+ * recently used directories go first.
+ * Must only be used from the FX thread.
+ */
+public class ListingCache {
+    public static final int DEFAULT_MAX_DIRECTORIES = 32;
+    public static final int DEFAULT_MAX_ENTRIES = 200_000;
+
+    private final int maxDirectories;
+    private final int maxEntries;
+    private final LinkedHashMap<Path, List<FileItem>> listings = new LinkedHashMap<>(64, 0.75f, true);
+    private int entries;
+
+    public ListingCache() {
+        this(DEFAULT_MAX_DIRECTORIES, DEFAULT_MAX_ENTRIES);
+    }
+
+    public ListingCache(int maxDirectories, int maxEntries) {
+        this.maxDirectories = maxDirectories;
+        this.maxEntries = maxEntries;
+    }
+
+    /** The cached listing, or null */
+    public List<FileItem> get(Path dir) {
+        return listings.get(dir);
+    }
+
+    public void put(Path dir, List<FileItem> items) {
+        if (items.size() > maxEntries) {
+            remove(dir);
+            return;
+        }
+        List<FileItem> old = listings.put(dir, List.copyOf(items));
+        if (old != null) entries -= old.size();
+        entries += items.size();
+        Iterator<Map.Entry<Path, List<FileItem>>> it = listings.entrySet().iterator();
+        while ((listings.size() > maxDirectories || entries > maxEntries) && it.hasNext()) {
+            Map.Entry<Path, List<FileItem>> eldest = it.next();
+            if (eldest.getKey().equals(dir)) continue;
+            entries -= eldest.getValue().size();
+            it.remove();
+        }
+    }
+
+    public void remove(Path dir) {
+        List<FileItem> old = listings.remove(dir);
+        if (old != null) entries -= old.size();
+    }
+
+    public void clear() {
+        listings.clear();
+        entries = 0;
+    }
+}
@@ -0,0 +1,184 @@
+package services;
+
+import controllers.FileItem;
+import controllers.FileItemStore;
+import java.io.*;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * On-disk snapshot of one directory's listing (name, size, mtime, type), so the
+ * table can be filled before the directory itself has been read. The snapshot
+ * is only a starting point: callers reconcile it against a fresh listing with
+ * diff() and apply the difference.
+ *
+ * Stored in ~/.javafx-filemanager/index, one file per directory, as a compact
+ * binary file read in a single call (not memory-mapped: on Windows a live
+ * mapping would stop the next save from replacing the file):
+ * <pre>
+ * int magic, int version, UTF-8 directory path, int count,
+ * count x (UTF-8 name, long size, long mtime, byte flags)
+ * </pre>
+ * Strings are an unsigned short length followed by the bytes.
+ */
+public class MetadataIndex {
+    public static final Path INDEX_DIR = Paths.get(System.getProperty("user.home"), ".javafx-filemanager", "index");
+    private static final int MAGIC = 0x464D4958; // "FMIX"
+    private static final int VERSION = 1;
+    private static final byte FLAG_DIRECTORY = 1;
+
+    private static final ExecutorService writer = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "metadata-index");
+        t.setDaemon(true);
+        t.setPriority(Thread.MIN_PRIORITY);
+        return t;
+    });
+
+    /** What changed between a snapshot and the real directory */
+    public static class Diff {
+        private final List<FileItem> upserts;
+        private final List<Path> removed;
+
+        Diff(List<FileItem> upserts, List<Path> removed) {
+            this.upserts = upserts;
+            this.removed = removed;
+        }
+
+        public List<FileItem> getUpserts() { return upserts; }
+        public List<Path> getRemoved() { return removed; }
+        public boolean isEmpty() { return upserts.isEmpty() && removed.isEmpty(); }
+    }
+
+    private final Path directory;
+    private final Path file;
+
+    public MetadataIndex(Path directory) {
+        this.directory = directory.toAbsolutePath().normalize();
+        this.file = INDEX_DIR.resolve(fileName(this.directory));
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    /**
+     * The stored listing, or null if there is none or it cannot be used
+     */
+    public List<FileItem> load() {
+        if (!Files.isRegularFile(file)) return null;
+        try {
+            ByteBuffer buf = ByteBuffer.wrap(Files.readAllBytes(file));
+            if (buf.getInt() != MAGIC || buf.getInt() != VERSION) return null;
+            if (!directory.toString().equals(readString(buf))) return null;
+            int count = buf.getInt();
+            // Each entry takes at least 19 bytes; a damaged count must not size the arrays
+            FileItemStore.Builder items = new FileItemStore.Builder(directory, Math.min(count, buf.remaining() / 19));
+            String separator = directory.getFileSystem().getSeparator();
+            for (int i = 0; i < count; i++) {
+                String name = readString(buf);
+                // Paths are only built when needed, so check the names now
+                if (name.isEmpty() || name.contains(separator) || name.indexOf('\0') >= 0) {
+                    throw new InvalidPathException(name, "not a file name");
+                }
+                long size = buf.getLong();
+                long modified = buf.getLong();
+                boolean dir = (buf.get() & FLAG_DIRECTORY) != 0;
+                items.add(name, size, modified, dir);
+            }
+            return items.build();
+        } catch (IOException | BufferUnderflowException | InvalidPathException e) {
+            System.err.println("Ignoring unreadable metadata index " + file + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Replace the snapshot. Written to a temp file and renamed, so a crash never
+     * leaves a half-written index behind.
+     */
+    public void save(Collection<FileItem> items) throws IOException {
+        Files.createDirectories(INDEX_DIR);
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp), 64 * 1024))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            writeString(out, directory.toString());
+            out.writeInt(items.size());
+            for (FileItem item : items) {
+                writeString(out, item.getName());
+                out.writeLong(item.getSize());
+                out.writeLong(item.getModifiedMillis());
+                out.writeByte(item.isDirectory() ? FLAG_DIRECTORY : 0);
+            }
+        }
+        try {
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Save a copy of the items on a background thread; failures are only logged
+     */
+    public void saveAsync(Collection<FileItem> items) {
+        List<FileItem> snapshot = List.copyOf(items);
+        writer.submit(() -> {
+            try {
+                save(snapshot);
+            } catch (IOException e) {
+                System.err.println("Could not save metadata index " + file + ": " + e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Entries to add or replace and paths to drop so that shown matches fresh.
+     * Entries whose size, mtime and type are unchanged are left alone.
+     */
+    public static Diff diff(Collection<FileItem> shown, Collection<FileItem> fresh) {
+        Map<Path, FileItem> old = new HashMap<>(shown.size() * 2);
+        for (FileItem item : shown) old.put(item.getPath(), item);
+        List<FileItem> upserts = new ArrayList<>();
+        for (FileItem item : fresh) {
+            FileItem before = old.remove(item.getPath());
+            if (before == null
+                    || before.getSize() != item.getSize()
+                    || before.getModifiedMillis() != item.getModifiedMillis()
+                    || before.isDirectory() != item.isDirectory()) {
+                upserts.add(item);
+            }
+        }
+        return new Diff(upserts, new ArrayList<>(old.keySet()));
+    }
+
+    private static String readString(ByteBuffer buf) {
+        byte[] bytes = new byte[Short.toUnsignedInt(buf.getShort())];
+        buf.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > 0xFFFF) throw new IOException("Name too long for index: " + s);
+        out.writeShort(bytes.length);
+        out.write(bytes);
+    }
+
+    /** One index file per directory, named after a hash of its path */
+    private static String fileName(Path dir) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(dir.toString().getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest) + ".idx";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
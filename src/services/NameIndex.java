@@ -0,0 +1,136 @@
+package services;
+
+import controllers.FileItem;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * Immutable trigram index over the lowercase names of a snapshot of FileItems.
+ * Queries of three or more characters intersect the trigram posting lists and
+ * only verify the surviving candidates; shorter queries scan the prebuilt
+ * lowercase names.
+ */
+public class NameIndex {
+    private final FileItem[] items;
+    private final String[] lowerNames;
+    private final Map<FileItem, Integer> ordinals;
+    private final Map<Long, int[]> trigrams;
+
+    public NameIndex(List<FileItem> snapshot) {
+        int n = snapshot.size();
+        items = snapshot.toArray(new FileItem[0]);
+        lowerNames = new String[n];
+        ordinals = new IdentityHashMap<>(n);
+
+        Map<Long, IntList> building = new HashMap<>();
+        for (int i = 0; i < n; i++) {
+            String lower = items[i].getName().toLowerCase(Locale.ROOT);
+            lowerNames[i] = lower;
+            ordinals.put(items[i], i);
+            for (int j = 0; j + 3 <= lower.length(); j++) {
+                IntList postings = building.computeIfAbsent(trigram(lower, j), k -> new IntList());
+                // Names are visited in order, so a repeated trigram only needs a check of the tail
+                if (postings.size == 0 || postings.last() != i) postings.add(i);
+            }
+        }
+        trigrams = new HashMap<>(building.size() * 2);
+        building.forEach((k, v) -> trigrams.put(k, v.toArray()));
+    }
+
+    public int size() {
+        return items.length;
+    }
+
+    /**
+     * Ordinals of the snapshot entries whose name contains the query (case-insensitive)
+     */
+    public BitSet search(String query) {
+        String q = query.toLowerCase(Locale.ROOT);
+        BitSet result = new BitSet(items.length);
+        if (q.isEmpty()) {
+            result.set(0, items.length);
+            return result;
+        }
+        if (q.length() < 3) {
+            for (int i = 0; i < lowerNames.length; i++) {
+                if (lowerNames[i].contains(q)) result.set(i);
+            }
+            return result;
+        }
+
+        // Intersect posting lists, smallest first
+        List<int[]> lists = new ArrayList<>();
+        for (int j = 0; j + 3 <= q.length(); j++) {
+            int[] postings = trigrams.get(trigram(q, j));
+            if (postings == null) return result;
+            lists.add(postings);
+        }
+        lists.sort((a, b) -> Integer.compare(a.length, b.length));
+        BitSet candidates = new BitSet(items.length);
+        for (int ord : lists.get(0)) candidates.set(ord);
+        for (int k = 1; k < lists.size() && !candidates.isEmpty(); k++) {
+            int[] postings = lists.get(k);
+            int remaining = candidates.cardinality();
+            if ((long) remaining * 32 < postings.length) {
+                // Few candidates left: probe the long list
+                for (int ord = candidates.nextSetBit(0); ord >= 0; ord = candidates.nextSetBit(ord + 1)) {
+                    if (Arrays.binarySearch(postings, ord) < 0) candidates.clear(ord);
+                }
+            } else {
+                BitSet other = new BitSet(items.length);
+                for (int ord : postings) other.set(ord);
+                candidates.and(other);
+            }
+        }
+        if (q.length() == 3) return candidates;
+
+        // Trigrams can match out of order, so confirm the substring
+        for (int ord = candidates.nextSetBit(0); ord >= 0; ord = candidates.nextSetBit(ord + 1)) {
+            if (lowerNames[ord].contains(q)) result.set(ord);
+        }
+        return result;
+    }
+
+    /**
+     * Predicate for a FilteredList. Items that are not part of this snapshot
+     * (added or replaced since it was taken) are matched directly.
+     */
+    public Predicate<FileItem> matcher(String query) {
+        BitSet matches = search(query);
+        String q = query.toLowerCase(Locale.ROOT);
+        return item -> {
+            Integer ord = ordinals.get(item);
+            if (ord != null) return matches.get(ord);
+            return item.getName().toLowerCase(Locale.ROOT).contains(q);
+        };
+    }
+
+    private static long trigram(String s, int start) {
+        return ((long) s.charAt(start) << 32) | ((long) s.charAt(start + 1) << 16) | s.charAt(start + 2);
+    }
+
+    private static final class IntList {
+        int[] data = new int[4];
+        int size;
+
+        void add(int v) {
+            if (size == data.length) data = Arrays.copyOf(data, size * 2);
+            data[size++] = v;
+        }
+
+        int last() {
+            return data[size - 1];
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(data, size);
+        }
+    }
+}
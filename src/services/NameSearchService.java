@@ -0,0 +1,72 @@
+package services;
+
+import controllers.FileItem;
+import javafx.application.Platform;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Debounces search keystrokes and evaluates them against a NameIndex
+ * on a background thread. Only the result of the latest query is delivered.
+ */
+public class NameSearchService {
+    public static final long DEBOUNCE_MS = 120;
+
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "name-search");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private ScheduledFuture<?> pending;
+    private volatile long generation;
+    private List<FileItem> pendingSnapshot;
+    private NameIndex index; // Only touched on the executor thread
+
+    /**
+     * Schedule a search. If snapshot is non-null the index is rebuilt from it first.
+     * onResult receives the predicate on the FX thread, unless a newer query arrived.
+     */
+    public synchronized void search(String query, List<FileItem> snapshot, Consumer<Predicate<FileItem>> onResult) {
+        long gen = ++generation;
+        // A snapshot survives superseded queries until some search picks it up
+        if (snapshot != null) pendingSnapshot = snapshot;
+        if (pending != null) pending.cancel(false);
+        pending = executor.schedule(() -> {
+            if (gen != generation) return;
+            List<FileItem> snap = takeSnapshot();
+            if (snap != null || index == null) {
+                index = new NameIndex(snap != null ? snap : List.of());
+            }
+            if (gen != generation) return;
+            Predicate<FileItem> predicate = index.matcher(query);
+            Platform.runLater(() -> {
+                if (gen == generation) onResult.accept(predicate);
+            });
+        }, DEBOUNCE_MS, TimeUnit.MILLISECONDS);
+    }
+
+    private synchronized List<FileItem> takeSnapshot() {
+        List<FileItem> snap = pendingSnapshot;
+        pendingSnapshot = null;
+        return snap;
+    }
+
+    /**
+     * Drop any pending query, e.g. when the search box is cleared
+     */
+    public synchronized void cancel() {
+        generation++;
+        if (pending != null) pending.cancel(false);
+        pending = null;
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
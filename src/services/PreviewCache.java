@@ -0,0 +1,92 @@
+package services;
+
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Size-bounded LRU cache of first preview pages.
+ * An entry is only a hit if the file's size and modification time still match,
+ * so a changed file is never served from the cache.
+ */
+public class PreviewCache {
+    public static final long DEFAULT_BUDGET_BYTES = 32L * 1024 * 1024;
+
+    private final long budgetBytes;
+    private final LinkedHashMap<Path, Entry> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private long usedBytes;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    private static class Entry {
+        final long modifiedMillis;
+        final long size;
+        final FilePreviewService.Page page;
+        final long cost;
+
+        Entry(long modifiedMillis, long size, FilePreviewService.Page page) {
+            this.modifiedMillis = modifiedMillis;
+            this.size = size;
+            this.page = page;
+            // Rough heap cost: two bytes per char plus object overhead
+            this.cost = page.getText().length() * 2L + 128;
+        }
+    }
+
+    public PreviewCache() {
+        this(Long.getLong("filemanager.preview.cacheBytes", DEFAULT_BUDGET_BYTES));
+    }
+
+    public PreviewCache(long budgetBytes) {
+        this.budgetBytes = budgetBytes;
+    }
+
+    public synchronized FilePreviewService.Page get(Path path, long modifiedMillis, long size) {
+        Entry e = entries.get(path);
+        if (e != null && e.modifiedMillis == modifiedMillis && e.size == size) {
+            hits++;
+            return e.page;
+        }
+        if (e != null) remove(path);
+        misses++;
+        return null;
+    }
+
+    public synchronized void put(Path path, long modifiedMillis, long size, FilePreviewService.Page page) {
+        Entry e = new Entry(modifiedMillis, size, page);
+        if (e.cost > budgetBytes) return;
+        remove(path);
+        entries.put(path, e);
+        usedBytes += e.cost;
+
+        Iterator<Map.Entry<Path, Entry>> it = entries.entrySet().iterator();
+        while (usedBytes > budgetBytes && it.hasNext()) {
+            Entry eldest = it.next().getValue();
+            it.remove();
+            usedBytes -= eldest.cost;
+            evictions++;
+        }
+    }
+
+    public synchronized void invalidate(Path path) {
+        remove(path);
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        usedBytes = 0;
+    }
+
+    private void remove(Path path) {
+        Entry old = entries.remove(path);
+        if (old != null) usedBytes -= old.cost;
+    }
+
+    public synchronized long getHits() { return hits; }
+    public synchronized long getMisses() { return misses; }
+    public synchronized long getEvictions() { return evictions; }
+    public synchronized long getUsedBytes() { return usedBytes; }
+    public long getBudgetBytes() { return budgetBytes; }
+}
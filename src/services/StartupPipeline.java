@@ -0,0 +1,126 @@
+package services;
+
+import controllers.FileItem;
+import database.ActivityLogDAO;
+import database.DatabaseConnection;
+import database.SchemaValidator;
+import database.UserDAO;
+import utils.PasswordUtils;
+import utils.StartupTimings;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Startup work that must not hold up the first frame. Runs in parallel on
+ * background threads:
+ * <ul>
+ * <li>database: build the pool, check the connection and schema, start activity
+ *     log maintenance and load the user cache</li>
+ * <li>listing: load the working directory's MetadataIndex snapshot (or read the
+ *     directory if there is none) so the first view after sign-in is instant</li>
+ * <li>password hashing calibration</li>
+ * </ul>
+ * Each part is exposed as a future; callers hop to the FX thread themselves.
+ * Phase timings go to StartupTimings and are reported once everything is done.
+ */
+public class StartupPipeline {
+    public enum DatabaseState { READY, SCHEMA_PROBLEMS, UNAVAILABLE }
+
+    public static class DatabaseStatus {
+        private final DatabaseState state;
+        private final List<String> problems;
+
+        DatabaseStatus(DatabaseState state, List<String> problems) {
+            this.state = state;
+            this.problems = problems;
+        }
+
+        public DatabaseState getState() { return state; }
+        /** Schema problems, or the connection error when unavailable */
+        public List<String> getProblems() { return problems; }
+    }
+
+    private final Path directory;
+    private final UserDAO userDAO;
+    private final TaskRunner executor = TaskRunner.root().child("startup");
+    private CompletableFuture<DatabaseStatus> database;
+    private CompletableFuture<List<FileItem>> listing;
+    private CompletableFuture<Void> ready;
+
+    public StartupPipeline(Path directory, UserDAO userDAO) {
+        this.directory = directory;
+        this.userDAO = userDAO;
+    }
+
+    public synchronized void start() {
+        if (ready != null) return;
+        database = CompletableFuture.supplyAsync(this::initDatabase, executor);
+        listing = CompletableFuture.supplyAsync(this::prewarmListing, executor);
+        CompletableFuture<Integer> calibration = PasswordUtils.calibrateAsync()
+                .whenComplete((iterations, e) -> StartupTimings.mark("password-calibration"));
+        ready = CompletableFuture.allOf(database, listing, calibration)
+                .handle((v, e) -> {
+                    StartupTimings.mark("ready");
+                    StartupTimings.report();
+                    return null;
+                });
+    }
+
+    public CompletableFuture<DatabaseStatus> getDatabase() { return database; }
+
+    /**
+     * Entries of the working directory, possibly from the index and so not yet
+     * reconciled; null if neither could be read
+     */
+    public CompletableFuture<List<FileItem>> getListing() { return listing; }
+
+    /** Completes (never exceptionally) when every startup phase has finished */
+    public CompletableFuture<Void> getReady() { return ready; }
+
+    private DatabaseStatus initDatabase() {
+        try {
+            DatabaseConnection.getDataSource();
+            StartupTimings.mark("db-pool");
+            if (!DatabaseConnection.testConnection()) {
+                StartupTimings.mark("db-unavailable");
+                return new DatabaseStatus(DatabaseState.UNAVAILABLE, List.of("Cannot connect to database"));
+            }
+            StartupTimings.mark("db-connected");
+
+            List<String> problems = SchemaValidator.validate();
+            StartupTimings.mark("db-schema");
+            if (!problems.isEmpty()) {
+                return new DatabaseStatus(DatabaseState.SCHEMA_PROBLEMS, problems);
+            }
+
+            // Partitions, daily rollups and retention for the activity log
+            ActivityLogDAO.startMaintenance();
+            userDAO.getAllUsers();
+            StartupTimings.mark("user-cache");
+            return new DatabaseStatus(DatabaseState.READY, List.of());
+        } catch (Exception e) {
+            e.printStackTrace();
+            return new DatabaseStatus(DatabaseState.UNAVAILABLE, List.of(String.valueOf(e.getMessage())));
+        }
+    }
+
+    private List<FileItem> prewarmListing() {
+        try {
+            Files.createDirectories(directory);
+            List<FileItem> items = new MetadataIndex(directory).load();
+            if (items != null) {
+                StartupTimings.mark("index-load");
+                return items;
+            }
+            items = DirectoryListingService.listAll(directory);
+            StartupTimings.mark("listing-prewarm");
+            return items;
+        } catch (IOException e) {
+            System.err.println("Could not pre-warm " + directory + ": " + e.getMessage());
+            return null;
+        }
+    }
+}
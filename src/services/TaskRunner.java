@@ -0,0 +1,213 @@
+package services;
+
+import javafx.concurrent.Task;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import utils.Metrics;
+
+/**
+ * Runs blocking work (file system, JDBC) on virtual threads, so waiting on a
+ * disk or the database never ties up a platform thread and the FX thread never
+ * waits at all. CPU-bound work keeps its own bounded pools (hashing,
+ * compression, tokenizing).
+ *
+ * Work is grouped in scopes that form a tree under root(): closing a scope
+ * cancels (and interrupts) every task submitted to it or to its children and
+ * rejects new ones. A window closes its scope when it is hidden, the main
+ * view closes the session scope on sign-out, and shutdown() closes everything
+ * on exit. A failed task is always logged, even if nobody handles it.
+ */
+public final class TaskRunner implements Executor {
+    private static final ExecutorService virtualThreads =
+            Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("task-", 0).factory());
+    private static final AtomicInteger running = new AtomicInteger();
+    private static final Metrics.Counter FAILED = Metrics.counter("tasks.failed");
+    private static final TaskRunner root = new TaskRunner("app", null, null);
+
+    static {
+        Metrics.gauge("tasks.running", running::get);
+    }
+
+    private final String name;
+    private final TaskRunner parent;
+    /** Own single-thread executor of a serial scope, null when tasks share the virtual thread executor */
+    private final ExecutorService serial;
+    private final Set<Future<?>> tasks = ConcurrentHashMap.newKeySet();
+    private final Set<TaskRunner> children = ConcurrentHashMap.newKeySet();
+    private volatile boolean closed;
+
+    private TaskRunner(String name, TaskRunner parent, ExecutorService serial) {
+        this.name = name;
+        this.parent = parent;
+        this.serial = serial;
+    }
+
+    /** The application scope; every other scope is a descendant */
+    public static TaskRunner root() {
+        return root;
+    }
+
+    /**
+     * A scope whose tasks run concurrently, each on its own virtual thread
+     */
+    public TaskRunner child(String name) {
+        return register(new TaskRunner(this.name + "/" + name, this, null));
+    }
+
+    /**
+     * A scope whose tasks run one at a time in submission order, on one virtual thread
+     */
+    public TaskRunner serialChild(String name) {
+        String full = this.name + "/" + name;
+        return register(new TaskRunner(full, this,
+                Executors.newSingleThreadExecutor(Thread.ofVirtual().name(full).factory())));
+    }
+
+    private TaskRunner register(TaskRunner child) {
+        children.add(child);
+        // A scope created while this one closes must not outlive it
+        if (closed) child.close();
+        return child;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /** Tasks submitted to this scope that have not finished yet */
+    public int getActiveCount() {
+        return tasks.size();
+    }
+
+    /**
+     * Run a task in this scope; it is returned for chaining
+     * @throws RejectedExecutionException if the scope is closed
+     */
+    public <T> Task<T> submit(Task<T> task) {
+        track(task);
+        return task;
+    }
+
+    /**
+     * Wrap blocking work in a Task whose message is the description
+     */
+    public <T> Task<T> submit(String description, Callable<T> work) {
+        return submit(new Task<>() {
+            @Override
+            protected T call() throws Exception {
+                updateMessage(description);
+                return work.call();
+            }
+        });
+    }
+
+    /** Runs the command in this scope, so it is cancelled with it (e.g. for CompletableFuture) */
+    @Override
+    public void execute(Runnable command) {
+        track(new FutureTask<>(command, null));
+    }
+
+    private void track(FutureTask<?> task) {
+        if (closed) throw new RejectedExecutionException(name + " is closed");
+        tasks.add(task);
+        try {
+            (serial != null ? serial : virtualThreads).execute(new Tracked(task));
+        } catch (RejectedExecutionException e) {
+            tasks.remove(task);
+            throw e;
+        }
+        // Closed between the check and the add: cancel like the other tasks of the scope
+        if (closed) task.cancel(true);
+    }
+
+    /** Runs one task of this scope and forgets it once finished */
+    private final class Tracked implements Runnable {
+        private final FutureTask<?> task;
+
+        Tracked(FutureTask<?> task) {
+            this.task = task;
+        }
+
+        @Override
+        public void run() {
+            // Thread dumps and JFR show which scope the work belongs to
+            if (serial == null) Thread.currentThread().setName(name);
+            running.incrementAndGet();
+            try {
+                task.run();
+                report(task);
+            } finally {
+                running.decrementAndGet();
+                tasks.remove(task);
+            }
+        }
+    }
+
+    private void report(FutureTask<?> task) {
+        try {
+            task.get();
+        } catch (CancellationException e) {
+            // Cancelled on purpose
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            FAILED.increment();
+            System.err.println("Background task in " + name + " failed: " + e.getCause());
+            e.getCause().printStackTrace();
+        }
+    }
+
+    /**
+     * Cancel the tasks of this scope and its children; the scopes stay usable
+     */
+    public void cancelAll() {
+        for (Future<?> task : tasks) task.cancel(true);
+        for (TaskRunner child : children) child.cancelAll();
+    }
+
+    /**
+     * Cancel everything in this scope and its children and reject further work
+     */
+    public void close() {
+        if (closed) return;
+        closed = true;
+        for (TaskRunner child : children) child.close();
+        for (Future<?> task : tasks) task.cancel(true);
+        if (serial != null) {
+            // Queued tasks never start, so they are forgotten here
+            for (Runnable queued : serial.shutdownNow()) tasks.remove(((Tracked) queued).task);
+        }
+        if (parent != null) parent.children.remove(this);
+    }
+
+    /**
+     * Close every scope and give running tasks up to the timeout to react to
+     * the interrupt; called once on exit
+     */
+    public static void shutdown(long timeout, TimeUnit unit) {
+        root.close();
+        virtualThreads.shutdown();
+        try {
+            if (!virtualThreads.awaitTermination(timeout, unit)) {
+                System.err.println("Background tasks still running at exit: " + running.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
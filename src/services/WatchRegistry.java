@@ -0,0 +1,569 @@
+package services;
+
+import controllers.FileItem;
+import controllers.FileItemStore;
+import javafx.application.Platform;
+import utils.Metrics;
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.file.StandardWatchEventKinds.*;
+
+/**
+ * Watches whole directory trees with one WatchService and one poller thread.
+ * Every directory below a watched root gets its own key, new subdirectories
+ * are registered as they appear, and the coalesced changes of each directory
+ * are routed to the watches that cover it. As in a single-directory watcher,
+ * events are collected over a short debounce window and each changed name is
+ * stat'ed once; OVERFLOW asks the listener to re-list that directory.
+ *
+ * Keys are capped (filemanager.watch.maxKeys, default 4096; inotify limits are
+ * per user). When the cap is reached the least recently active directory that
+ * is not a watch root is dropped, so changes deep in a large tree can be
+ * missed, never in the folder on screen. Hidden subdirectories are not watched.
+ *
+ * Trees on network and FUSE file systems, where inotify misses remote changes,
+ * are scanned every few seconds instead (filemanager.watch.mode=auto|native|poll,
+ * filemanager.watch.pollSeconds, filemanager.watch.maxPolledDirs). The same
+ * fallback is used when the native service is unavailable or out of watches.
+ */
+public class WatchRegistry {
+    public static final long DEBOUNCE_MS = 150;
+    /** A directory that never goes quiet is still reported this often */
+    private static final long MAX_DEBOUNCE_MS = 10 * DEBOUNCE_MS;
+    private static final int MAX_KEYS = Integer.getInteger("filemanager.watch.maxKeys", 4096);
+    private static final int MAX_POLLED = Integer.getInteger("filemanager.watch.maxPolledDirs", 256);
+    private static final long POLL_NANOS = TimeUnit.SECONDS.toNanos(Long.getLong("filemanager.watch.pollSeconds", 3));
+    private static final String MODE = System.getProperty("filemanager.watch.mode", "auto");
+    // File systems whose changes made by other machines never reach inotify
+    private static final Set<String> REMOTE_TYPES = Set.of("nfs", "nfs4", "cifs", "smb", "smb3", "smbfs",
+            "9p", "vboxsf", "fuse.sshfs", "sshfs", "davfs", "afpfs", "webdav");
+    private static final Metrics.Counter EVICTIONS = Metrics.counter("watch.evictions");
+
+    public interface Listener {
+        /** Called on the FX thread with the coalesced changes of one directory in one debounce window */
+        void onChanges(Path directory, List<FileItem> upserts, List<Path> removed);
+        /** Called on the FX thread when events of the directory were lost and it must be re-listed */
+        void onOverflow(Path directory);
+    }
+
+    /**
+     * A root and the listener for it; close() stops watching the directories
+     * that no other watch covers
+     */
+    public static final class Watch {
+        private final WatchRegistry registry;
+        private final Path root;
+        private final boolean recursive;
+        private final Listener listener;
+        private volatile boolean closed;
+
+        private Watch(WatchRegistry registry, Path root, boolean recursive, Listener listener) {
+            this.registry = registry;
+            this.root = root;
+            this.recursive = recursive;
+            this.listener = listener;
+        }
+
+        public Path getRoot() {
+            return root;
+        }
+
+        boolean covers(Path dir) {
+            return dir.equals(root) || (recursive && dir.startsWith(root));
+        }
+
+        public void close() {
+            if (closed) return;
+            closed = true;
+            registry.unwatch(this);
+        }
+    }
+
+    /** One registered directory: a native key, or the last scan when polled */
+    private static final class Registration {
+        private final Path dir;
+        private final WatchKey key;
+        private Map<String, Entry> snapshot;
+
+        Registration(Path dir, WatchKey key, Map<String, Entry> snapshot) {
+            this.dir = dir;
+            this.key = key;
+            this.snapshot = snapshot;
+        }
+
+        boolean isPolled() {
+            return key == null;
+        }
+    }
+
+    /** What a polling scan remembers of one entry */
+    private static final class Entry {
+        private final long size;
+        private final long modified;
+        private final boolean directory;
+
+        Entry(BasicFileAttributes attrs) {
+            this.size = attrs.size();
+            this.modified = attrs.lastModifiedTime().toMillis();
+            this.directory = attrs.isDirectory();
+        }
+
+        boolean sameAs(Entry other) {
+            if (other == null || directory != other.directory) return false;
+            // A folder's mtime changes with its contents; like native watching, that is not a change of the folder
+            return directory || (size == other.size && modified == other.modified);
+        }
+    }
+
+    private final WatchService watchService;
+    private final TaskRunner tasks = TaskRunner.root().child("watch-registry");
+    private final List<Watch> watches = new ArrayList<>();
+    // Access order, so the eldest entry is the directory that saw events least recently
+    private final LinkedHashMap<Path, Registration> dirs = new LinkedHashMap<>(64, 0.75f, true);
+    private final Map<WatchKey, Registration> byKey = new HashMap<>();
+    private int polledCount;
+    private final Thread poller;
+    private volatile boolean closed;
+
+    public WatchRegistry() {
+        WatchService service = null;
+        if (!"poll".equals(MODE)) {
+            try {
+                service = FileSystems.getDefault().newWatchService();
+            } catch (IOException | UnsupportedOperationException e) {
+                System.err.println("No native file watching, scanning folders instead: " + e.getMessage());
+            }
+        }
+        watchService = service;
+        Metrics.gauge("watch.keys", () -> registeredCount(false));
+        Metrics.gauge("watch.polled", () -> registeredCount(true));
+        poller = new Thread(this::runLoop, "watch-registry");
+        poller.setDaemon(true);
+        poller.start();
+    }
+
+    /**
+     * Watch a directory and every directory below it. Registration walks the
+     * tree in the background, breadth first, so the top levels are covered first.
+     */
+    public Watch watchTree(Path root, Listener listener) {
+        return watch(root, true, listener);
+    }
+
+    /** Watch a single directory */
+    public Watch watchDirectory(Path dir, Listener listener) {
+        return watch(dir, false, listener);
+    }
+
+    private Watch watch(Path root, boolean recursive, Listener listener) {
+        Watch w = new Watch(this, root.toAbsolutePath().normalize(), recursive, listener);
+        synchronized (this) {
+            if (closed) throw new IllegalStateException("Watch registry is closed");
+            watches.add(w);
+        }
+        // Looking up the file store is I/O as well, so the mode is chosen in the background too
+        tasks.execute(() -> registerTree(w, w.root, usePolling(w.root)));
+        return w;
+    }
+
+    /** Stop every watch and the poller; called once on exit */
+    public void close() {
+        synchronized (this) {
+            if (closed) return;
+            closed = true;
+            for (Watch w : watches) w.closed = true;
+            watches.clear();
+            for (Registration r : dirs.values()) {
+                if (r.key != null) r.key.cancel();
+            }
+            dirs.clear();
+            byKey.clear();
+            polledCount = 0;
+        }
+        tasks.close();
+        poller.interrupt();
+        if (watchService != null) {
+            try {
+                watchService.close();
+            } catch (IOException e) {
+                // Already closed
+            }
+        }
+    }
+
+    private boolean usePolling(Path root) {
+        if (watchService == null || "poll".equals(MODE)) return true;
+        if ("native".equals(MODE)) return false;
+        try {
+            return REMOTE_TYPES.contains(Files.getFileStore(root).type().toLowerCase(Locale.ROOT));
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    // ===== REGISTRATION =====
+
+    /**
+     * Register a directory and the subdirectories below it, until the walk
+     * leaves every open watch or the caps are reached. Only the first directory
+     * (a new root, or a folder that was just created) may evict another one;
+     * the rest of the walk stops at the cap, so it never drops the shallower
+     * directories it registered itself.
+     */
+    private void registerTree(Watch w, Path start, boolean polled) {
+        Deque<Path> queue = new ArrayDeque<>();
+        queue.add(start);
+        while (!queue.isEmpty() && !w.closed && !Thread.currentThread().isInterrupted()) {
+            Path dir = queue.poll();
+            boolean mayEvict = dir == start;
+            Map<String, Entry> snapshot;
+            if (polled) {
+                // The scan doubles as the baseline for the next poll
+                try {
+                    snapshot = scan(dir);
+                } catch (IOException e) {
+                    continue;
+                }
+                if (!register(dir, snapshot, mayEvict)) return;
+            } else {
+                // Register before listing, so a subdirectory created meanwhile still shows up as an event
+                if (!register(dir, null, mayEvict)) return;
+                try {
+                    snapshot = scan(dir);
+                } catch (IOException e) {
+                    continue;
+                }
+            }
+            if (!w.recursive) return;
+            for (Map.Entry<String, Entry> e : snapshot.entrySet()) {
+                if (e.getValue().directory && !e.getKey().startsWith(".")) queue.add(dir.resolve(e.getKey()));
+            }
+        }
+    }
+
+    /**
+     * Add one directory; false when it is no longer covered or there is no
+     * room. Native registrations that fail for lack of watches fall back to
+     * polling; that scan runs outside the lock, like every other scan.
+     */
+    private boolean register(Path dir, Map<String, Entry> snapshot, boolean mayEvict) {
+        synchronized (this) {
+            if (closed || !covered(dir)) return false;
+            if (dirs.containsKey(dir)) return true;
+            boolean polled = snapshot != null;
+            if (!makeRoom(polled, mayEvict)) return false;
+            if (polled) {
+                add(new Registration(dir, null, snapshot));
+                return true;
+            }
+            try {
+                add(new Registration(dir, dir.register(watchService, ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY), null));
+                return true;
+            } catch (NoSuchFileException | AccessDeniedException | NotDirectoryException e) {
+                return true;
+            } catch (IOException e) {
+                // Typically the per-user inotify limit; scan this directory instead
+                System.err.println("Cannot watch " + dir + ", polling it: " + e.getMessage());
+            }
+        }
+        Map<String, Entry> scanned;
+        try {
+            scanned = scan(dir);
+        } catch (IOException e) {
+            return true;
+        }
+        // Coverage, duplicates and room are checked again, since the lock was released
+        return register(dir, scanned, mayEvict);
+    }
+
+    private void add(Registration r) {
+        dirs.put(r.dir, r);
+        if (r.key != null) {
+            byKey.put(r.key, r);
+        } else {
+            polledCount++;
+        }
+    }
+
+    /** Evict the least recently active directory of the same kind if its cap is reached */
+    private boolean makeRoom(boolean polled, boolean mayEvict) {
+        int count = polled ? polledCount : byKey.size();
+        if (count < (polled ? MAX_POLLED : MAX_KEYS)) return true;
+        if (!mayEvict) return false;
+        for (Iterator<Registration> it = dirs.values().iterator(); it.hasNext(); ) {
+            Registration r = it.next();
+            if (r.isPolled() != polled || isRoot(r.dir)) continue;
+            it.remove();
+            forget(r);
+            EVICTIONS.increment();
+            return true;
+        }
+        return false;
+    }
+
+    private void forget(Registration r) {
+        if (r.key != null) {
+            r.key.cancel();
+            byKey.remove(r.key);
+        } else {
+            polledCount--;
+        }
+    }
+
+    /** Drop a directory and everything registered below it (deleted, or no longer watched) */
+    private synchronized void unregisterTree(Path dir) {
+        for (Iterator<Registration> it = dirs.values().iterator(); it.hasNext(); ) {
+            Registration r = it.next();
+            if (r.dir.startsWith(dir)) {
+                it.remove();
+                forget(r);
+            }
+        }
+    }
+
+    private synchronized void unwatch(Watch w) {
+        watches.remove(w);
+        for (Iterator<Registration> it = dirs.values().iterator(); it.hasNext(); ) {
+            Registration r = it.next();
+            if (!covered(r.dir)) {
+                it.remove();
+                forget(r);
+            }
+        }
+    }
+
+    private synchronized boolean isRegistered(Path dir) {
+        // containsKey does not count as access, unlike get
+        return dirs.containsKey(dir);
+    }
+
+    private boolean covered(Path dir) {
+        for (Watch w : watches) {
+            if (w.covers(dir)) return true;
+        }
+        return false;
+    }
+
+    private boolean isRoot(Path dir) {
+        for (Watch w : watches) {
+            if (w.root.equals(dir)) return true;
+        }
+        return false;
+    }
+
+    private synchronized boolean coveredRecursively(Path dir) {
+        for (Watch w : watches) {
+            if (w.recursive && dir.startsWith(w.root) && !dir.equals(w.root)) return true;
+        }
+        return false;
+    }
+
+    private synchronized double registeredCount(boolean polled) {
+        return polled ? polledCount : byKey.size();
+    }
+
+    // ===== POLLER =====
+
+    private void runLoop() {
+        // Changed entries per directory, in arrival order
+        Map<Path, Set<Path>> changed = new LinkedHashMap<>();
+        Set<Path> overflow = new LinkedHashSet<>();
+        Set<Path> created = new HashSet<>();
+        long nextScan = System.nanoTime() + POLL_NANOS;
+        try {
+            while (!closed) {
+                long untilScan = Math.max(0, nextScan - System.nanoTime());
+                WatchKey key;
+                if (watchService != null) {
+                    key = watchService.poll(untilScan, TimeUnit.NANOSECONDS);
+                } else {
+                    TimeUnit.NANOSECONDS.sleep(untilScan);
+                    key = null;
+                }
+                if (key != null) {
+                    collect(key, changed, overflow, created);
+                    // Keep collecting until the tree has been quiet for one debounce window
+                    long now = System.nanoTime();
+                    long limit = now + TimeUnit.MILLISECONDS.toNanos(MAX_DEBOUNCE_MS);
+                    long deadline = now + TimeUnit.MILLISECONDS.toNanos(DEBOUNCE_MS);
+                    long wait;
+                    while ((wait = Math.min(deadline, limit) - System.nanoTime()) > 0) {
+                        WatchKey next = watchService.poll(wait, TimeUnit.NANOSECONDS);
+                        if (next == null) break;
+                        collect(next, changed, overflow, created);
+                        deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(DEBOUNCE_MS);
+                    }
+                }
+                if (System.nanoTime() >= nextScan) {
+                    scanPolled(changed, overflow, created);
+                    nextScan = System.nanoTime() + POLL_NANOS;
+                }
+                if (!changed.isEmpty() || !overflow.isEmpty()) {
+                    dispatch(changed, overflow, created);
+                    changed.clear();
+                    overflow.clear();
+                    created.clear();
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // Stopped
+        } catch (Exception e) {
+            System.err.println("Watch registry stopped: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    private void collect(WatchKey key, Map<Path, Set<Path>> changed, Set<Path> overflow, Set<Path> created) {
+        Registration r;
+        synchronized (this) {
+            r = byKey.get(key);
+            // Touch it: a directory with recent events is the last to be evicted
+            if (r != null) dirs.get(r.dir);
+        }
+        List<WatchEvent<?>> events = key.pollEvents();
+        if (r == null) return;
+        for (WatchEvent<?> event : events) {
+            if (event.kind() == OVERFLOW) {
+                overflow.add(r.dir);
+            } else if (event.context() instanceof Path name) {
+                Path p = r.dir.resolve(name);
+                changed.computeIfAbsent(r.dir, d -> new LinkedHashSet<>()).add(p);
+                if (event.kind() == ENTRY_CREATE) created.add(p);
+            }
+        }
+        if (!key.reset()) {
+            // The directory itself is gone; its parent reports the deletion.
+            // A watched root has no watched parent, so its listener re-lists (and reports the error).
+            unregisterTree(r.dir);
+            synchronized (this) {
+                if (isRoot(r.dir)) overflow.add(r.dir);
+            }
+        }
+    }
+
+    /** Compare every polled directory with its last scan and report the differences as events */
+    private void scanPolled(Map<Path, Set<Path>> changed, Set<Path> overflow, Set<Path> created) {
+        List<Registration> polled = new ArrayList<>();
+        synchronized (this) {
+            for (Registration r : dirs.values()) {
+                if (r.isPolled()) polled.add(r);
+            }
+        }
+        for (Registration r : polled) {
+            if (closed) return;
+            Map<String, Entry> now;
+            try {
+                now = scan(r.dir);
+            } catch (IOException e) {
+                unregisterTree(r.dir);
+                synchronized (this) {
+                    if (isRoot(r.dir)) overflow.add(r.dir);
+                }
+                continue;
+            }
+            Map<String, Entry> before = r.snapshot;
+            for (Map.Entry<String, Entry> e : now.entrySet()) {
+                Entry old = before.get(e.getKey());
+                if (e.getValue().sameAs(old)) continue;
+                Path p = r.dir.resolve(e.getKey());
+                changed.computeIfAbsent(r.dir, d -> new LinkedHashSet<>()).add(p);
+                if (old == null) created.add(p);
+            }
+            for (String name : before.keySet()) {
+                if (!now.containsKey(name)) {
+                    changed.computeIfAbsent(r.dir, d -> new LinkedHashSet<>()).add(r.dir.resolve(name));
+                }
+            }
+            r.snapshot = now;
+        }
+    }
+
+    private void dispatch(Map<Path, Set<Path>> changed, Set<Path> overflow, Set<Path> created) {
+        for (Map.Entry<Path, Set<Path>> e : changed.entrySet()) {
+            Path dir = e.getKey();
+            // Lost events mean the whole directory is re-listed anyway
+            if (overflow.contains(dir)) continue;
+            FileItemStore.Builder store = new FileItemStore.Builder(dir, e.getValue().size());
+            List<Path> removed = new ArrayList<>();
+            for (Path p : e.getValue()) {
+                try {
+                    BasicFileAttributes attrs = Files.readAttributes(p, BasicFileAttributes.class);
+                    store.add(p.getFileName().toString(), attrs);
+                    if (attrs.isDirectory() && created.contains(p) && coveredRecursively(p)
+                            && !p.getFileName().toString().startsWith(".")) {
+                        registerNew(p);
+                    }
+                } catch (NoSuchFileException ex) {
+                    removed.add(p);
+                    if (isRegistered(p)) unregisterTree(p);
+                } catch (IOException ex) {
+                    // Exists but unreadable: keep it listed without attributes
+                    store.add(p.getFileName().toString(), null);
+                }
+            }
+            List<FileItem> upserts = store.build();
+            for (Watch w : watchesCovering(dir)) {
+                Platform.runLater(() -> {
+                    if (!w.closed) w.listener.onChanges(dir, upserts, removed);
+                });
+            }
+        }
+        for (Path dir : overflow) {
+            for (Watch w : watchesCovering(dir)) {
+                Platform.runLater(() -> {
+                    if (!w.closed) w.listener.onOverflow(dir);
+                });
+            }
+        }
+    }
+
+    /** A directory created (or moved) into a watched tree, with whatever is already inside it */
+    private void registerNew(Path dir) {
+        Watch owner;
+        boolean polled;
+        synchronized (this) {
+            owner = null;
+            for (Watch w : watches) {
+                if (w.recursive && w.covers(dir)) owner = w;
+            }
+            if (owner == null) return;
+            Registration parent = dirs.get(dir.getParent());
+            polled = parent == null || parent.isPolled();
+        }
+        Watch w = owner;
+        boolean p = polled;
+        try {
+            tasks.execute(() -> registerTree(w, dir, p));
+        } catch (RuntimeException e) {
+            // Closing
+        }
+    }
+
+    private synchronized List<Watch> watchesCovering(Path dir) {
+        List<Watch> out = new ArrayList<>(1);
+        for (Watch w : watches) {
+            if (w.covers(dir)) out.add(w);
+        }
+        return out;
+    }
+
+    /** Name and attributes of every entry; links are not followed */
+    private static Map<String, Entry> scan(Path dir) throws IOException {
+        Map<String, Entry> entries = new HashMap<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+            for (Path p : stream) {
+                try {
+                    BasicFileAttributes attrs = Files.readAttributes(p, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+                    entries.put(p.getFileName().toString(), new Entry(attrs));
+                } catch (IOException e) {
+                    // Vanished or unreadable; the next scan will tell
+                }
+            }
+        }
+        return entries;
+    }
+}
@@ -0,0 +1,499 @@
+package services;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.BooleanSupplier;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Writes a ZIP archive of files and directory trees.
+ * File contents are split into chunks that are deflated in parallel on a
+ * ForkJoinPool (each chunk primed with the previous 32 KB as dictionary) and
+ * stitched into one deflate stream per entry, in order, by the calling thread.
+ * Output goes through a large buffer on a FileChannel; local headers are
+ * patched in place once an entry's CRC and sizes are known, so no data
+ * descriptors are needed. ZIP64 records are written when limits are exceeded.
+ */
+public class ZipCompressor {
+    public static final int CHUNK_SIZE = 1024 * 1024;
+    private static final int DICTIONARY_SIZE = 32 * 1024;
+    private static final int WRITE_BUFFER_SIZE = 4 * 1024 * 1024;
+    private static final long ZIP64_LIMIT = 0xFFFFFFFFL;
+    // Files this large get a ZIP64 local header up front; deflate can grow data slightly
+    private static final long ZIP64_LOCAL_THRESHOLD = 0xF0000000L;
+
+    /** Extensions whose content is already compressed and is stored as-is */
+    public static final Set<String> COMPRESSED_EXTENSIONS = Set.of(
+            "zip", "gz", "tgz", "bz2", "xz", "7z", "rar", "zst", "lz4", "jar", "war", "apk",
+            "jpg", "jpeg", "png", "gif", "webp", "heic", "avif",
+            "mp3", "mp4", "m4a", "aac", "ogg", "flac", "mkv", "avi", "mov", "webm",
+            "docx", "xlsx", "pptx", "odt", "ods", "odp", "pdf");
+
+    private static ForkJoinPool pool;
+
+    public interface ProgressListener {
+        void onProgress(long bytesDone, long bytesTotal);
+    }
+
+    private final List<Path> sources;
+    private final Path target;
+    private final boolean storeOnly;
+    private final int level;
+
+    public ZipCompressor(List<Path> sources, Path target, boolean storeOnly) {
+        this(sources, target, storeOnly, Deflater.DEFAULT_COMPRESSION);
+    }
+
+    public ZipCompressor(List<Path> sources, Path target, boolean storeOnly, int level) {
+        this.sources = sources;
+        this.target = target;
+        this.storeOnly = storeOnly;
+        this.level = level;
+    }
+
+    private static synchronized ForkJoinPool pool() {
+        if (pool == null) pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+        return pool;
+    }
+
+    public static boolean isCompressedType(String fileName) {
+        int dot = fileName.lastIndexOf('.');
+        return dot >= 0 && COMPRESSED_EXTENSIONS.contains(fileName.substring(dot + 1).toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * Build the archive. Returns the archive size in bytes.
+     * If cancelled, the partial archive is deleted and CancellationException is thrown.
+     */
+    public long compress(ProgressListener progress, BooleanSupplier cancelled) throws IOException {
+        List<Entry> entries = collectEntries(cancelled);
+        long totalBytes = 0;
+        for (Entry e : entries) totalBytes += e.usize;
+
+        boolean success = false;
+        try (FileChannel ch = FileChannel.open(target, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            Output out = new Output(ch);
+            Pipeline pipeline = new Pipeline(out, progress, totalBytes);
+            try {
+                for (Entry e : entries) {
+                    if (cancelled.getAsBoolean()) throw new CancellationException();
+                    readEntry(e, pipeline, cancelled);
+                }
+                pipeline.drain();
+            } finally {
+                pipeline.cancelPending();
+            }
+            writeCentralDirectory(out, entries);
+            out.flush();
+            success = true;
+            return ch.size();
+        } finally {
+            if (!success) Files.deleteIfExists(target);
+        }
+    }
+
+    // ===== Entry collection =====
+    private static class Entry {
+        final Path path;
+        final String name;
+        final boolean directory;
+        final long modified;
+        long usize;
+        final boolean stored;
+        long crc;
+        long csize;
+        long offset;
+        boolean zip64Local;
+
+        Entry(Path path, String name, boolean directory, long usize, long modified, boolean stored) {
+            this.path = path;
+            this.name = name;
+            this.directory = directory;
+            this.usize = usize;
+            this.modified = modified;
+            this.stored = stored;
+        }
+    }
+
+    private List<Entry> collectEntries(BooleanSupplier cancelled) throws IOException {
+        List<Entry> entries = new ArrayList<>();
+        Set<String> names = new HashSet<>();
+        Path targetAbs = target.toAbsolutePath().normalize();
+        for (Path source : sources) {
+            Path base = source.toAbsolutePath().normalize().getParent();
+            Files.walkFileTree(source, new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                    if (cancelled.getAsBoolean()) throw new CancellationException();
+                    String name = entryName(base, dir) + "/";
+                    if (names.add(name)) {
+                        entries.add(new Entry(dir, name, true, 0, attrs.lastModifiedTime().toMillis(), true));
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                    if (file.toAbsolutePath().normalize().equals(targetAbs)) return FileVisitResult.CONTINUE;
+                    if (!attrs.isRegularFile()) return FileVisitResult.CONTINUE;
+                    String name = entryName(base, file);
+                    if (names.add(name)) {
+                        boolean stored = storeOnly || isCompressedType(file.getFileName().toString());
+                        entries.add(new Entry(file, name, false, attrs.size(), attrs.lastModifiedTime().toMillis(), stored));
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        }
+        return entries;
+    }
+
+    private static String entryName(Path base, Path p) {
+        Path abs = p.toAbsolutePath().normalize();
+        Path rel = base != null ? base.relativize(abs) : abs.getFileName();
+        return rel.toString().replace('\\', '/');
+    }
+
+    // ===== Reading and chunking =====
+    private void readEntry(Entry e, Pipeline pipeline, BooleanSupplier cancelled) throws IOException {
+        pipeline.header(e);
+        if (e.directory) {
+            pipeline.end(e, 0, 0);
+            return;
+        }
+        CRC32 crc = new CRC32();
+        long size = 0;
+        byte[] dictionary = null;
+        try (InputStream in = Files.newInputStream(e.path)) {
+            byte[] chunk = in.readNBytes(CHUNK_SIZE);
+            while (true) {
+                if (cancelled.getAsBoolean()) throw new CancellationException();
+                crc.update(chunk);
+                size += chunk.length;
+                // Read ahead one chunk so the last one can be marked as final
+                byte[] next = chunk.length == CHUNK_SIZE ? in.readNBytes(CHUNK_SIZE) : new byte[0];
+                boolean last = next.length == 0;
+                pipeline.chunk(e, chunk, dictionary, last);
+                if (last) break;
+                dictionary = chunk.length >= DICTIONARY_SIZE
+                        ? Arrays.copyOfRange(chunk, chunk.length - DICTIONARY_SIZE, chunk.length)
+                        : chunk;
+                chunk = next;
+            }
+        }
+        pipeline.end(e, crc.getValue(), size);
+    }
+
+    private byte[] deflate(byte[] data, byte[] dictionary, boolean last) {
+        Deflater d = new Deflater(level, true);
+        try {
+            if (dictionary != null) d.setDictionary(dictionary);
+            d.setInput(data);
+            ByteArrayOutputStream bos = new ByteArrayOutputStream(data.length / 2 + 64);
+            byte[] buf = new byte[Math.min(64 * 1024, data.length + 1024)];
+            if (last) {
+                d.finish();
+                while (!d.finished()) {
+                    int n = d.deflate(buf);
+                    bos.write(buf, 0, n);
+                }
+            } else {
+                // Sync flush ends the chunk on a byte boundary without closing the stream
+                int n;
+                do {
+                    n = d.deflate(buf, 0, buf.length, Deflater.SYNC_FLUSH);
+                    bos.write(buf, 0, n);
+                } while (n == buf.length);
+            }
+            return bos.toByteArray();
+        } finally {
+            d.end();
+        }
+    }
+
+    /**
+     * One step of the output stream: an entry header, a (possibly still compressing) chunk, or an entry end
+     */
+    private static class Step {
+        final Entry entry;
+        final CompletableFuture<byte[]> data; // null for header and end steps
+        final int rawLength;
+        final boolean end;
+        final long crc;
+        final long size;
+
+        Step(Entry entry, CompletableFuture<byte[]> data, int rawLength, boolean end, long crc, long size) {
+            this.entry = entry;
+            this.data = data;
+            this.rawLength = rawLength;
+            this.end = end;
+            this.crc = crc;
+            this.size = size;
+        }
+    }
+
+    /**
+     * Keeps a bounded window of chunks in flight and writes results in submission order
+     */
+    private class Pipeline {
+        private final Output out;
+        private final ProgressListener progress;
+        private final long totalBytes;
+        private final int maxInFlight = Math.max(2, pool().getParallelism() * 2);
+        private final ArrayDeque<Step> pending = new ArrayDeque<>();
+        private int chunksInFlight;
+        private long bytesDone;
+
+        Pipeline(Output out, ProgressListener progress, long totalBytes) {
+            this.out = out;
+            this.progress = progress;
+            this.totalBytes = totalBytes;
+        }
+
+        void header(Entry e) {
+            pending.add(new Step(e, null, 0, false, 0, 0));
+        }
+
+        void chunk(Entry e, byte[] data, byte[] dictionary, boolean last) throws IOException {
+            CompletableFuture<byte[]> f = e.stored
+                    ? CompletableFuture.completedFuture(data)
+                    : CompletableFuture.supplyAsync(() -> deflate(data, dictionary, last), pool());
+            pending.add(new Step(e, f, data.length, false, 0, 0));
+            chunksInFlight++;
+            while (chunksInFlight > maxInFlight) writeNext();
+        }
+
+        void end(Entry e, long crc, long size) {
+            pending.add(new Step(e, null, 0, true, crc, size));
+        }
+
+        void drain() throws IOException {
+            while (!pending.isEmpty()) writeNext();
+        }
+
+        void cancelPending() {
+            for (Step step : pending) {
+                if (step.data != null) step.data.cancel(true);
+            }
+            pending.clear();
+        }
+
+        private void writeNext() throws IOException {
+            Step step = pending.poll();
+            Entry e = step.entry;
+            if (step.data != null) {
+                byte[] data;
+                try {
+                    data = step.data.join();
+                } catch (CompletionException ex) {
+                    throw new IOException("Compression failed for " + e.name, ex.getCause());
+                }
+                chunksInFlight--;
+                out.write(data, 0, data.length);
+                e.csize += data.length;
+                bytesDone += step.rawLength;
+                if (progress != null) progress.onProgress(bytesDone, totalBytes);
+            } else if (step.end) {
+                e.crc = step.crc;
+                e.usize = step.size;
+                patchLocalHeader(out, e);
+            } else {
+                writeLocalHeader(out, e);
+            }
+        }
+    }
+
+    // ===== ZIP records =====
+    private void writeLocalHeader(Output out, Entry e) throws IOException {
+        byte[] name = e.name.getBytes(StandardCharsets.UTF_8);
+        e.offset = out.position();
+        e.zip64Local = e.usize >= ZIP64_LOCAL_THRESHOLD;
+        ByteBuffer b = le(30 + name.length + (e.zip64Local ? 20 : 0));
+        b.putInt(0x04034b50);
+        b.putShort((short) (e.zip64Local ? 45 : 20));
+        b.putShort((short) 0x0800);                    // UTF-8 names
+        b.putShort((short) (e.stored ? 0 : 8));
+        b.putInt(dosTime(e.modified));
+        b.putInt(0);                                   // CRC, patched later
+        b.putInt(e.zip64Local ? -1 : 0);               // Compressed size, patched later
+        b.putInt(e.zip64Local ? -1 : 0);               // Uncompressed size, patched later
+        b.putShort((short) name.length);
+        b.putShort((short) (e.zip64Local ? 20 : 0));
+        b.put(name);
+        if (e.zip64Local) {
+            b.putShort((short) 0x0001);
+            b.putShort((short) 16);
+            b.putLong(0);
+            b.putLong(0);
+        }
+        out.write(b.array(), 0, b.position());
+    }
+
+    private void patchLocalHeader(Output out, Entry e) throws IOException {
+        if (!e.zip64Local && (e.csize >= ZIP64_LIMIT || e.usize >= ZIP64_LIMIT)) {
+            throw new IOException("Entry grew past the ZIP64 threshold: " + e.name);
+        }
+        ByteBuffer b = le(12);
+        b.putInt((int) e.crc);
+        if (e.zip64Local) {
+            b.putInt(-1);
+            b.putInt(-1);
+        } else {
+            b.putInt((int) e.csize);
+            b.putInt((int) e.usize);
+        }
+        out.patch(e.offset + 14, b.array());
+        if (e.zip64Local) {
+            int nameLen = e.name.getBytes(StandardCharsets.UTF_8).length;
+            ByteBuffer x = le(16);
+            x.putLong(e.usize);
+            x.putLong(e.csize);
+            out.patch(e.offset + 30 + nameLen + 4, x.array());
+        }
+    }
+
+    private void writeCentralDirectory(Output out, List<Entry> entries) throws IOException {
+        long cdStart = out.position();
+        for (Entry e : entries) {
+            byte[] name = e.name.getBytes(StandardCharsets.UTF_8);
+            boolean bigU = e.usize >= ZIP64_LIMIT;
+            boolean bigC = e.csize >= ZIP64_LIMIT;
+            boolean bigO = e.offset >= ZIP64_LIMIT;
+            int extraLen = (bigU || bigC || bigO) ? 4 + (bigU ? 8 : 0) + (bigC ? 8 : 0) + (bigO ? 8 : 0) : 0;
+            boolean zip64 = extraLen > 0 || e.zip64Local;
+
+            ByteBuffer b = le(46 + name.length + extraLen);
+            b.putInt(0x02014b50);
+            b.putShort((short) (zip64 ? 45 : 20));
+            b.putShort((short) (zip64 ? 45 : 20));
+            b.putShort((short) 0x0800);
+            b.putShort((short) (e.stored ? 0 : 8));
+            b.putInt(dosTime(e.modified));
+            b.putInt((int) e.crc);
+            b.putInt(bigC ? -1 : (int) e.csize);
+            b.putInt(bigU ? -1 : (int) e.usize);
+            b.putShort((short) name.length);
+            b.putShort((short) extraLen);
+            b.putShort((short) 0);                     // Comment
+            b.putShort((short) 0);                     // Disk number
+            b.putShort((short) 0);                     // Internal attributes
+            b.putInt(e.directory ? 0x10 : 0);          // External attributes
+            b.putInt(bigO ? -1 : (int) e.offset);
+            b.put(name);
+            if (extraLen > 0) {
+                b.putShort((short) 0x0001);
+                b.putShort((short) (extraLen - 4));
+                if (bigU) b.putLong(e.usize);
+                if (bigC) b.putLong(e.csize);
+                if (bigO) b.putLong(e.offset);
+            }
+            out.write(b.array(), 0, b.position());
+        }
+        long cdEnd = out.position();
+        long cdSize = cdEnd - cdStart;
+        int count = entries.size();
+
+        if (count >= 0xFFFF || cdSize >= ZIP64_LIMIT || cdStart >= ZIP64_LIMIT) {
+            ByteBuffer z = le(56 + 20);
+            z.putInt(0x06064b50);
+            z.putLong(44);
+            z.putShort((short) 45);
+            z.putShort((short) 45);
+            z.putInt(0);
+            z.putInt(0);
+            z.putLong(count);
+            z.putLong(count);
+            z.putLong(cdSize);
+            z.putLong(cdStart);
+            // Locator
+            z.putInt(0x07064b50);
+            z.putInt(0);
+            z.putLong(cdEnd);
+            z.putInt(1);
+            out.write(z.array(), 0, z.position());
+        }
+
+        ByteBuffer b = le(22);
+        b.putInt(0x06054b50);
+        b.putShort((short) 0);
+        b.putShort((short) 0);
+        b.putShort((short) Math.min(count, 0xFFFF));
+        b.putShort((short) Math.min(count, 0xFFFF));
+        b.putInt(cdSize >= ZIP64_LIMIT ? -1 : (int) cdSize);
+        b.putInt(cdStart >= ZIP64_LIMIT ? -1 : (int) cdStart);
+        b.putShort((short) 0);
+        out.write(b.array(), 0, b.position());
+    }
+
+    private static ByteBuffer le(int size) {
+        return ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private static int dosTime(long millis) {
+        LocalDateTime t = LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneId.systemDefault());
+        if (t.getYear() < 1980) t = LocalDateTime.of(1980, 1, 1, 0, 0);
+        return (t.getYear() - 1980) << 25 | t.getMonthValue() << 21 | t.getDayOfMonth() << 16
+                | t.getHour() << 11 | t.getMinute() << 5 | t.getSecond() >> 1;
+    }
+
+    /**
+     * Large write buffer over a FileChannel that can also patch bytes already written
+     */
+    private static class Output {
+        private final FileChannel ch;
+        private final ByteBuffer buf = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE);
+        private long flushed;
+
+        Output(FileChannel ch) {
+            this.ch = ch;
+        }
+
+        long position() {
+            return flushed + buf.position();
+        }
+
+        void write(byte[] data, int off, int len) throws IOException {
+            while (len > 0) {
+                if (!buf.hasRemaining()) flush();
+                int n = Math.min(len, buf.remaining());
+                buf.put(data, off, n);
+                off += n;
+                len -= n;
+            }
+        }
+
+        void patch(long pos, byte[] data) throws IOException {
+            if (pos >= flushed && pos + data.length <= position()) {
+                buf.put((int) (pos - flushed), data);
+                return;
+            }
+            flush();
+            ByteBuffer src = ByteBuffer.wrap(data);
+            long p = pos;
+            while (src.hasRemaining()) p += ch.write(src, p);
+        }
+
+        void flush() throws IOException {
+            buf.flip();
+            while (buf.hasRemaining()) flushed += ch.write(buf);
+            buf.clear();
+        }
+    }
+}
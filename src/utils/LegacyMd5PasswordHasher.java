@@ -0,0 +1,41 @@
+package utils;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Base64;
+
+/**
+ * The original unsalted MD5 scheme (Base64 of the digest).
+ * Only used to verify existing accounts so they can be upgraded on login.
+ */
+public class LegacyMd5PasswordHasher implements PasswordHasher {
+    private static final String ALGORITHM = "MD5";
+
+    @Override
+    public String hash(String password) {
+        try {
+            MessageDigest md = MessageDigest.getInstance(ALGORITHM);
+            return Base64.getEncoder().encodeToString(md.digest(password.getBytes(StandardCharsets.UTF_8)));
+        } catch (Exception e) {
+            throw new RuntimeException("Error hashing password", e);
+        }
+    }
+
+    @Override
+    public boolean verify(String password, String storedHash) {
+        byte[] expected = storedHash.getBytes(StandardCharsets.US_ASCII);
+        byte[] actual = hash(password).getBytes(StandardCharsets.US_ASCII);
+        return MessageDigest.isEqual(expected, actual);
+    }
+
+    @Override
+    public boolean supports(String storedHash) {
+        // Base64 of a 16-byte digest is always 24 characters ending in "=="
+        return storedHash != null && storedHash.length() == 24 && storedHash.endsWith("==");
+    }
+
+    @Override
+    public boolean needsRehash(String storedHash) {
+        return true;
+    }
+}
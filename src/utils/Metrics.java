@@ -0,0 +1,321 @@
+package utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleSupplier;
+
+/**
+ * Process-wide registry of counters, latency timers and gauges, cheap enough
+ * to leave on in production: recording is a few atomic adds, no locks and no
+ * allocation (apart from the JFR event of a Sample, which the JIT removes
+ * when no recording is running).
+ *
+ * Timers keep a log-linear histogram (8 buckets per power of two, so
+ * percentiles are within about 12%) for the whole run and for the last
+ * one to two minutes. Metrics are looked up by name and created on first use;
+ * callers normally keep the returned object in a static field.
+ *
+ * Every Sample is also a JFR event (MetricsEvents.Operation) and the
+ * registry is published once a second as MetricsEvents.Snapshot, so a flight
+ * recording shows the same numbers as the Diagnostics view.
+ */
+public final class Metrics {
+    private static final long WINDOW_NANOS = 60_000_000_000L;
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = (64 - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+    private static final Map<String, Object> registry = new ConcurrentSkipListMap<>();
+
+    static {
+        MetricsEvents.register();
+    }
+
+    private Metrics() {
+    }
+
+    public static Counter counter(String name) {
+        return (Counter) registry.computeIfAbsent(name, Counter::new);
+    }
+
+    public static Timer timer(String name) {
+        return (Timer) registry.computeIfAbsent(name, Timer::new);
+    }
+
+    /**
+     * Register (or replace) a value read on demand, e.g. a pool size
+     */
+    public static void gauge(String name, DoubleSupplier value) {
+        registry.put(name, new Gauge(name, value));
+    }
+
+    /**
+     * Current values of every metric, sorted by name
+     */
+    public static List<Snapshot> snapshot() {
+        List<Snapshot> out = new ArrayList<>(registry.size());
+        for (Object m : registry.values()) {
+            if (m instanceof Counter c) {
+                out.add(new Snapshot(c.name, Type.COUNTER, c.get(), 0, 0, 0, 0, 0, 0, c.get()));
+            } else if (m instanceof Timer t) {
+                out.add(t.snapshot());
+            } else if (m instanceof Gauge g) {
+                double v;
+                try {
+                    v = g.value.getAsDouble();
+                } catch (RuntimeException e) {
+                    v = Double.NaN;
+                }
+                out.add(new Snapshot(g.name, Type.GAUGE, 0, 0, 0, 0, 0, 0, 0, v));
+            }
+        }
+        return out;
+    }
+
+    public enum Type { COUNTER, TIMER, GAUGE }
+
+    /** Point-in-time copy of one metric; latencies in milliseconds */
+    public static class Snapshot {
+        private final String name;
+        private final Type type;
+        private final long count;
+        private final long errors;
+        private final double meanMillis;
+        private final double p50Millis;
+        private final double p99Millis;
+        private final double maxMillis;
+        private final long recentCount;
+        private final double value;
+
+        Snapshot(String name, Type type, long count, long errors, double meanMillis, double p50Millis,
+                 double p99Millis, double maxMillis, long recentCount, double value) {
+            this.name = name;
+            this.type = type;
+            this.count = count;
+            this.errors = errors;
+            this.meanMillis = meanMillis;
+            this.p50Millis = p50Millis;
+            this.p99Millis = p99Millis;
+            this.maxMillis = maxMillis;
+            this.recentCount = recentCount;
+            this.value = value;
+        }
+
+        public String getName() { return name; }
+        public Type getType() { return type; }
+        /** Events since start (counter value for counters) */
+        public long getCount() { return count; }
+        public long getErrors() { return errors; }
+        public double getMeanMillis() { return meanMillis; }
+        /** Median of the last one to two minutes */
+        public double getP50Millis() { return p50Millis; }
+        /** 99th percentile of the last one to two minutes */
+        public double getP99Millis() { return p99Millis; }
+        public double getMaxMillis() { return maxMillis; }
+        /** Events in the window the percentiles are taken from */
+        public long getRecentCount() { return recentCount; }
+        /** Counter or gauge value */
+        public double getValue() { return value; }
+    }
+
+    // ===== METRIC TYPES =====
+
+    public static class Counter {
+        private final String name;
+        private final LongAdder count = new LongAdder();
+
+        Counter(String name) {
+            this.name = name;
+        }
+
+        public void increment() {
+            count.increment();
+        }
+
+        public void add(long n) {
+            count.add(n);
+        }
+
+        public long get() {
+            return count.sum();
+        }
+    }
+
+    public static class Timer {
+        private final String name;
+        private final LongAdder count = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final AtomicLongArray[] windows = {new AtomicLongArray(BUCKETS), new AtomicLongArray(BUCKETS)};
+        private volatile int current;
+        private volatile long windowStart = System.nanoTime();
+        private volatile long maxNanos;
+
+        Timer(String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Start timing; the Sample records when closed, so it fits try-with-resources
+         */
+        public Sample start() {
+            return new Sample(this);
+        }
+
+        /**
+         * Time a call; an exception thrown out of it marks the sample failed and
+         * is rethrown unchanged
+         */
+        public <T, E extends Exception> T time(TimedCall<T, E> call) throws E {
+            try (Sample sample = start()) {
+                try {
+                    return call.call();
+                } catch (Exception | Error e) {
+                    sample.failed();
+                    throw e;
+                }
+            }
+        }
+
+        public void record(long nanos) {
+            if (nanos < 0) nanos = 0;
+            rotate(System.nanoTime());
+            windows[current].incrementAndGet(bucket(nanos));
+            count.increment();
+            totalNanos.add(nanos);
+            // Racy max is fine for display
+            if (nanos > maxNanos) maxNanos = nanos;
+        }
+
+        public void recordMillis(long millis) {
+            record(millis * 1_000_000L);
+        }
+
+        /** Count a failed call; its time is recorded separately if at all */
+        public void error() {
+            errors.increment();
+        }
+
+        public long getCount() {
+            return count.sum();
+        }
+
+        /** Start a new window once the current one is full; the older one is dropped */
+        private void rotate(long now) {
+            if (now - windowStart < WINDOW_NANOS) return;
+            synchronized (this) {
+                if (now - windowStart < WINDOW_NANOS) return;
+                int next = current ^ 1;
+                AtomicLongArray w = windows[next];
+                for (int i = 0; i < BUCKETS; i++) w.set(i, 0);
+                current = next;
+                windowStart = now;
+            }
+        }
+
+        Snapshot snapshot() {
+            rotate(System.nanoTime());
+            long[] merged = new long[BUCKETS];
+            long recent = 0;
+            for (AtomicLongArray w : windows) {
+                for (int i = 0; i < BUCKETS; i++) {
+                    long c = w.get(i);
+                    merged[i] += c;
+                    recent += c;
+                }
+            }
+            long n = count.sum();
+            double mean = n == 0 ? 0 : totalNanos.sum() / (double) n / 1e6;
+            return new Snapshot(name, Type.TIMER, n, errors.sum(), mean,
+                    percentile(merged, recent, 0.50) / 1e6, percentile(merged, recent, 0.99) / 1e6,
+                    maxNanos / 1e6, recent, n);
+        }
+    }
+
+    /** Work timed by Timer.time, throwing at most one checked exception type */
+    @FunctionalInterface
+    public interface TimedCall<T, E extends Exception> {
+        T call() throws E;
+    }
+
+    /** Times one call of a Timer */
+    public static class Sample implements AutoCloseable {
+        private final Timer timer;
+        private final long start = System.nanoTime();
+        private final MetricsEvents.Operation event = new MetricsEvents.Operation();
+        private boolean failed;
+
+        Sample(Timer timer) {
+            this.timer = timer;
+            event.begin();
+        }
+
+        /** Mark the call as failed; it is still timed */
+        public void failed() {
+            failed = true;
+        }
+
+        @Override
+        public void close() {
+            timer.record(System.nanoTime() - start);
+            if (failed) timer.error();
+            event.end();
+            if (event.shouldCommit()) {
+                event.metric = timer.name;
+                event.failed = failed;
+                event.commit();
+            }
+        }
+    }
+
+    private static class Gauge {
+        private final String name;
+        private final DoubleSupplier value;
+
+        Gauge(String name, DoubleSupplier value) {
+            this.name = name;
+            this.value = value;
+        }
+    }
+
+    // ===== HISTOGRAM =====
+
+    /** Values below 8 have their own bucket; above, 8 buckets per power of two */
+    static int bucket(long v) {
+        if (v < SUB_BUCKETS) return (int) v;
+        int exp = 63 - Long.numberOfLeadingZeros(v);
+        int sub = (int) (v >>> (exp - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exp - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + sub;
+    }
+
+    static long lowerBound(int bucket) {
+        if (bucket < SUB_BUCKETS) return bucket;
+        int exp = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        int sub = bucket % SUB_BUCKETS;
+        return (long) (SUB_BUCKETS + sub) << (exp - SUB_BUCKET_BITS);
+    }
+
+    /** Midpoint of the bucket holding the q-quantile, in nanos */
+    private static double percentile(long[] buckets, long total, double q) {
+        if (total == 0) return 0;
+        long rank = (long) Math.ceil(q * total);
+        long seen = 0;
+        for (int i = 0; i < buckets.length; i++) {
+            seen += buckets[i];
+            if (seen >= rank) {
+                long lo = lowerBound(i);
+                long hi = i + 1 < BUCKETS ? lowerBound(i + 1) : lo;
+                return (lo + hi) / 2.0;
+            }
+        }
+        return 0;
+    }
+}
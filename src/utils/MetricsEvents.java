@@ -0,0 +1,101 @@
+package utils;
+
+import java.time.Duration;
+import jdk.jfr.*;
+
+/**
+ * JFR events for Metrics. They are enabled by default, so any recording
+ * (-XX:StartFlightRecording, JMC, or Record in the Diagnostics view) picks
+ * them up under the "File Manager" category.
+ */
+public final class MetricsEvents {
+    public static final String OPERATION = "filemanager.Operation";
+    public static final String SNAPSHOT = "filemanager.MetricsSnapshot";
+
+    private static boolean registered;
+
+    private MetricsEvents() {
+    }
+
+    /** One timed call (a Metrics.Sample) */
+    @Name(OPERATION)
+    @Label("Operation")
+    @Category("File Manager")
+    @Description("A timed file manager operation")
+    @StackTrace(false)
+    static class Operation extends Event {
+        @Label("Metric")
+        String metric;
+
+        @Label("Failed")
+        boolean failed;
+    }
+
+    /** One metric's values, emitted for every metric once per period */
+    @Name(SNAPSHOT)
+    @Label("Metrics Snapshot")
+    @Category("File Manager")
+    @Description("Counters, gauges and recent latency percentiles")
+    @Period("1 s")
+    @StackTrace(false)
+    static class Snapshot extends Event {
+        @Label("Metric")
+        String metric;
+
+        @Label("Count")
+        long count;
+
+        @Label("Errors")
+        long errors;
+
+        @Label("Value")
+        double value;
+
+        @Label("p50")
+        @Timespan(Timespan.MICROSECONDS)
+        long p50;
+
+        @Label("p99")
+        @Timespan(Timespan.MICROSECONDS)
+        long p99;
+
+        @Label("Max")
+        @Timespan(Timespan.MICROSECONDS)
+        long max;
+    }
+
+    static synchronized void register() {
+        if (registered) return;
+        registered = true;
+        try {
+            FlightRecorder.addPeriodicEvent(Snapshot.class, () -> {
+                for (Metrics.Snapshot s : Metrics.snapshot()) {
+                    Snapshot e = new Snapshot();
+                    e.metric = s.getName();
+                    e.count = s.getCount();
+                    e.errors = s.getErrors();
+                    e.value = s.getValue();
+                    e.p50 = (long) (s.getP50Millis() * 1000);
+                    e.p99 = (long) (s.getP99Millis() * 1000);
+                    e.max = (long) (s.getMaxMillis() * 1000);
+                    e.commit();
+                }
+            });
+        } catch (RuntimeException | LinkageError e) {
+            // JFR missing from this runtime; metrics still work without it
+            System.err.println("JFR not available, metrics events disabled: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Start a recording of just these events
+     */
+    public static Recording startRecording() {
+        Recording recording = new Recording();
+        recording.setName("File Manager metrics");
+        recording.enable(OPERATION);
+        recording.enable(SNAPSHOT).withPeriod(Duration.ofSeconds(1));
+        recording.start();
+        return recording;
+    }
+}
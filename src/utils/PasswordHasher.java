@@ -0,0 +1,20 @@
+package utils;
+
+/**
+ * A password hashing scheme. Implementations recognise their own stored format,
+ * so several schemes can coexist while old hashes are upgraded on login.
+ */
+public interface PasswordHasher {
+
+    /** Hash a password with a fresh salt, in this scheme's stored format */
+    String hash(String password);
+
+    /** Check a password against a hash produced by this scheme */
+    boolean verify(String password, String storedHash);
+
+    /** True if the stored hash was produced by this scheme */
+    boolean supports(String storedHash);
+
+    /** True if the stored hash is weaker than what this scheme produces today */
+    boolean needsRehash(String storedHash);
+}
@@ -1,52 +1,108 @@
 package utils;
 
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
-import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 
+/**
+ * Password hashing entry point.
+ * New hashes use PBKDF2 with a cost calibrated for this machine; older MD5 hashes
+ * still verify and are reported by needsRehash so they get upgraded on login.
+ * Slow hashing work should go through runHashing so it stays off the FX thread
+ * and a burst of logins queues instead of piling up threads.
+ */
 public class PasswordUtils {
-    private static final String ALGORITHM = "MD5";
-    
+    /** Target time for one verify; override with -Dfilemanager.password.targetMillis */
+    public static final long TARGET_MILLIS = Long.getLong("filemanager.password.targetMillis", 250);
+    private static final int HASH_THREADS = Math.max(1, Math.min(2, Runtime.getRuntime().availableProcessors() / 2));
+    private static final int HASH_QUEUE = 32;
+
+    private static final Pbkdf2PasswordHasher current = new Pbkdf2PasswordHasher();
+    private static final List<PasswordHasher> hashers = List.of(current, new LegacyMd5PasswordHasher());
+    private static volatile CompletableFuture<Integer> calibration;
+
+    private static final ThreadPoolExecutor hashExecutor = new ThreadPoolExecutor(
+            HASH_THREADS, HASH_THREADS, 30, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(HASH_QUEUE),
+            r -> {
+                Thread t = new Thread(r, "password-hash");
+                t.setDaemon(true);
+                return t;
+            },
+            new ThreadPoolExecutor.AbortPolicy());
+
+    static {
+        hashExecutor.allowCoreThreadTimeOut(true);
+        // Shows the calibrated cost in the Diagnostics view
+        Metrics.gauge("auth.hashIterations", PasswordUtils::getIterations);
+    }
+
     /**
-     * Hash a password using MD5
+     * Measure PBKDF2 on this machine in the background and adopt the iteration
+     * count that meets TARGET_MILLIS. Until it finishes the default cost is used.
      */
-    public static String hashPassword(String password) {
-        try {
-            MessageDigest md = MessageDigest.getInstance(ALGORITHM);
-            byte[] hashedPassword = md.digest(password.getBytes("UTF-8")); // Added UTF-8 encoding
-            
-            return Base64.getEncoder().encodeToString(hashedPassword);
-        } catch (Exception e) { // Catch both NoSuchAlgorithmException and UnsupportedEncodingException
-            throw new RuntimeException("Error hashing password", e);
+    public static synchronized CompletableFuture<Integer> calibrateAsync() {
+        if (calibration == null) {
+            calibration = CompletableFuture.supplyAsync(() -> {
+                return current.calibrate(TARGET_MILLIS);
+            }, hashExecutor);
         }
+        return calibration;
+    }
+
+    /**
+     * Run hashing work (e.g. authenticateUser or createUser) on the bounded hash pool.
+     * The future fails with RejectedExecutionException when too many requests are waiting.
+     */
+    public static <T> CompletableFuture<T> runHashing(Supplier<T> work) {
+        return CompletableFuture.supplyAsync(work, hashExecutor);
+    }
+
+    /**
+     * Hash a password with the current scheme and cost
+     */
+    public static String hashPassword(String password) {
+        return current.hash(password);
     }
     
     /**
-     * Verify a password against a stored hash
+     * Verify a password against a stored hash of any supported scheme
      */
     public static boolean verifyPassword(String password, String storedHash) {
         try {
             if (password == null || storedHash == null) {
                 return false;
             }
-            
-            // Hash the provided password
-            String providedHashString = hashPassword(password);
-            
-            // Debug output
-            System.out.println("DEBUG - Provided password: '" + password + "'");
-            System.out.println("DEBUG - Generated hash: '" + providedHashString + "'");
-            System.out.println("DEBUG - Stored hash: '" + storedHash + "'");
-            System.out.println("DEBUG - Hashes match: " + storedHash.equals(providedHashString));
-            
-            // Compare hashes
-            return storedHash.equals(providedHashString);
+            PasswordHasher hasher = hasherFor(storedHash);
+            return hasher != null && hasher.verify(password, storedHash);
         } catch (Exception e) {
             System.err.println("Error verifying password: " + e.getMessage());
             e.printStackTrace();
             return false;
         }
     }
+
+    /**
+     * True if the stored hash should be replaced by a fresh hashPassword result
+     */
+    public static boolean needsRehash(String storedHash) {
+        PasswordHasher hasher = hasherFor(storedHash);
+        return hasher != current || current.needsRehash(storedHash);
+    }
+
+    public static int getIterations() {
+        return current.getIterations();
+    }
+
+    private static PasswordHasher hasherFor(String storedHash) {
+        for (PasswordHasher hasher : hashers) {
+            if (hasher.supports(storedHash)) return hasher;
+        }
+        return null;
+    }
     
     /**
      * Check if password meets minimum requirements
@@ -57,17 +113,4 @@ public class PasswordUtils {
         }
         return true;
     }
-    
-    // Test method to verify hashing works correctly
-    public static void testHashing() {
-        String testPassword = "password123";
-        String hash1 = hashPassword(testPassword);
-        String hash2 = hashPassword(testPassword);
-        
-        System.out.println("Test password: " + testPassword);
-        System.out.println("Hash 1: " + hash1);
-        System.out.println("Hash 2: " + hash2);
-        System.out.println("Hashes are identical: " + hash1.equals(hash2));
-        System.out.println("Verification works: " + verifyPassword(testPassword, hash1));
-    }
-}
\ No newline at end of file
+}
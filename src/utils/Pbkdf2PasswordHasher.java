@@ -0,0 +1,121 @@
+package utils;
+
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.security.spec.KeySpec;
+import java.util.Base64;
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+
+/**
+ * PBKDF2-HMAC-SHA256 from the JDK.
+ * Stored format: pbkdf2-sha256$iterations$salt$hash (unpadded Base64), which fits
+ * the 100-character password_hash column.
+ */
+public final class Pbkdf2PasswordHasher implements PasswordHasher {
+    public static final String PREFIX = "pbkdf2-sha256$";
+    public static final int DEFAULT_ITERATIONS = 310_000;
+    public static final int MIN_ITERATIONS = 100_000;
+    public static final int MAX_ITERATIONS = 10_000_000;
+    private static final String ALGORITHM = "PBKDF2WithHmacSHA256";
+    private static final int SALT_BYTES = 16;
+    private static final int KEY_BITS = 256;
+    // Hashes within this fraction of the current cost are not worth re-hashing
+    private static final double REHASH_TOLERANCE = 0.8;
+
+    private static final SecureRandom random = new SecureRandom();
+    private volatile int iterations;
+
+    public Pbkdf2PasswordHasher() {
+        this(DEFAULT_ITERATIONS);
+    }
+
+    public Pbkdf2PasswordHasher(int iterations) {
+        setIterations(iterations);
+    }
+
+    public int getIterations() {
+        return iterations;
+    }
+
+    public void setIterations(int iterations) {
+        this.iterations = Math.max(MIN_ITERATIONS, Math.min(MAX_ITERATIONS, iterations));
+    }
+
+    /**
+     * Pick the iteration count whose verify time is closest to the target on this machine.
+     * Returns the chosen count.
+     */
+    public int calibrate(long targetMillis) {
+        char[] sample = "calibration-password".toCharArray();
+        byte[] salt = new byte[SALT_BYTES];
+        int probe = 20_000;
+        derive(sample, salt, probe); // Warm up the JIT and provider
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < 3; i++) {
+            long start = System.nanoTime();
+            derive(sample, salt, probe);
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        double perIteration = (double) best / probe;
+        long wanted = (long) (targetMillis * 1_000_000.0 / perIteration);
+        setIterations((int) Math.min(Integer.MAX_VALUE, wanted));
+        return iterations;
+    }
+
+    @Override
+    public String hash(String password) {
+        int cost = iterations;
+        byte[] salt = new byte[SALT_BYTES];
+        random.nextBytes(salt);
+        byte[] hash = derive(password.toCharArray(), salt, cost);
+        Base64.Encoder enc = Base64.getEncoder().withoutPadding();
+        return PREFIX + cost + "$" + enc.encodeToString(salt) + "$" + enc.encodeToString(hash);
+    }
+
+    @Override
+    public boolean verify(String password, String storedHash) {
+        String[] parts = split(storedHash);
+        if (parts == null) return false;
+        try {
+            int cost = Integer.parseInt(parts[0]);
+            byte[] salt = Base64.getDecoder().decode(parts[1]);
+            byte[] expected = Base64.getDecoder().decode(parts[2]);
+            byte[] actual = derive(password.toCharArray(), salt, cost);
+            return MessageDigest.isEqual(expected, actual);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public boolean supports(String storedHash) {
+        return storedHash != null && storedHash.startsWith(PREFIX);
+    }
+
+    @Override
+    public boolean needsRehash(String storedHash) {
+        String[] parts = split(storedHash);
+        if (parts == null) return true;
+        try {
+            return Integer.parseInt(parts[0]) < iterations * REHASH_TOLERANCE;
+        } catch (NumberFormatException e) {
+            return true;
+        }
+    }
+
+    private static String[] split(String storedHash) {
+        if (storedHash == null || !storedHash.startsWith(PREFIX)) return null;
+        String[] parts = storedHash.substring(PREFIX.length()).split("\\$");
+        return parts.length == 3 ? parts : null;
+    }
+
+    private static byte[] derive(char[] password, byte[] salt, int iterations) {
+        try {
+            KeySpec spec = new PBEKeySpec(password, salt, iterations, KEY_BITS);
+            return SecretKeyFactory.getInstance(ALGORITHM).generateSecret(spec).getEncoded();
+        } catch (Exception e) {
+            throw new RuntimeException("Error hashing password", e);
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package utils;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Milliseconds from JVM start to each startup phase (first frame, pool ready,
+ * listing pre-warmed, ...). report() prints them and appends one line to
+ * ~/.javafx-filemanager/startup-timings.log, so cold-start regressions show up
+ * as a trend across runs.
+ */
+public class StartupTimings {
+    public static final Path LOG_FILE = Paths.get(System.getProperty("user.home"),
+            ".javafx-filemanager", "startup-timings.log");
+
+    private static final long JVM_START_MILLIS = ManagementFactory.getRuntimeMXBean().getStartTime();
+    private static final Map<String, Long> phases = new LinkedHashMap<>();
+    private static boolean reported;
+
+    /**
+     * Record that a phase finished now. Only the first mark of a phase counts.
+     */
+    public static synchronized void mark(String phase) {
+        phases.putIfAbsent(phase, System.currentTimeMillis() - JVM_START_MILLIS);
+    }
+
+    /** Milliseconds since JVM start for a phase, or -1 if it has not finished */
+    public static synchronized long get(String phase) {
+        return phases.getOrDefault(phase, -1L);
+    }
+
+    public static synchronized Map<String, Long> getAll() {
+        return new LinkedHashMap<>(phases);
+    }
+
+    /**
+     * Print and log the phases recorded so far. Runs once; later calls are ignored.
+     */
+    public static void report() {
+        String line;
+        synchronized (StartupTimings.class) {
+            if (reported) return;
+            reported = true;
+            StringBuilder sb = new StringBuilder(LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME));
+            phases.forEach((phase, ms) -> sb.append(' ').append(phase).append('=').append(ms));
+            line = sb.toString();
+            // Also shown in the Diagnostics view
+            phases.forEach((phase, ms) -> Metrics.gauge("startup." + phase, () -> ms));
+        }
+        System.out.println("Startup timings (ms since JVM start): " + line);
+        try {
+            Files.createDirectories(LOG_FILE.getParent());
+            Files.writeString(LOG_FILE, line + System.lineSeparator(), StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            System.err.println("Could not write startup timings: " + e.getMessage());
+        }
+    }
+}